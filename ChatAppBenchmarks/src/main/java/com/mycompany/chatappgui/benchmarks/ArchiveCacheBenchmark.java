@@ -0,0 +1,111 @@
+package com.mycompany.chatappgui.benchmarks;
+
+import com.mycompany.chatappgui.CachingMessageArchive;
+import com.mycompany.chatappgui.MappedMessageArchive;
+import com.mycompany.chatappgui.Message;
+import com.mycompany.chatappgui.MessageArchive;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Archive lookups with Zipf-distributed popularity (exponent {@code skew}) over the 1024
+ * recipients and 65536 of the message IDs, through a {@link CachingMessageArchive} of
+ * {@code cacheSize} entries per kind (0 = straight to the mapped archive). Hit rates are printed
+ * at the end of each trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class ArchiveCacheBenchmark {
+
+    private static final int IDS = 65_536;
+    private static final int SAMPLES = 1 << 20;
+
+    @Param({"100000"})
+    public int corpusSize;
+
+    @Param({"0", "64", "1024"})
+    public int cacheSize;
+
+    @Param({"0.99"})
+    public double skew;
+
+    private File archiveFile;
+    private MessageArchive archive;
+    private String[] ids;
+    private int[] recipientDraws;
+    private int[] idDraws;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        archiveFile = Corpus.tempStore("cache-bench");
+        ids = new String[IDS];
+        int stride = Math.max(1, corpusSize / IDS);
+        try (MappedMessageArchive.Writer w = MappedMessageArchive.writer(archiveFile)) {
+            for (int i = 0; i < corpusSize; i++) {
+                Message m = Corpus.message(i);
+                w.append(m);
+                if (i % stride == 0 && i / stride < IDS) ids[i / stride] = m.getMessageID();
+            }
+        }
+        MappedMessageArchive mapped = MappedMessageArchive.open(archiveFile);
+        archive = cacheSize == 0 ? mapped : new CachingMessageArchive(mapped, cacheSize, 0);
+
+        // Corpus.recipient is a bijection on 0..1023, so rank r is one distinct recipient
+        SplittableRandom random = new SplittableRandom(42);
+        recipientDraws = zipf(Corpus.RECIPIENTS, skew, random);
+        idDraws = zipf((int) Arrays.stream(ids).filter(s -> s != null).count(), skew, random);
+    }
+
+    // SAMPLES ranks in [0, n), rank r drawn with probability proportional to 1 / (r + 1)^skew
+    private static int[] zipf(int n, double skew, SplittableRandom random) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int r = 0; r < n; r++) cdf[r] = sum += 1 / Math.pow(r + 1, skew);
+        int[] draws = new int[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            int r = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+            draws[i] = Math.min(n - 1, r < 0 ? -r - 1 : r);
+        }
+        return draws;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (archive instanceof CachingMessageArchive c) System.out.printf("%n%s%n", c.statistics());
+        archive.close();
+        Corpus.deleteStore(archiveFile);
+    }
+
+    @Benchmark
+    public Message searchByMessageID() {
+        return archive.searchByMessageID(ids[idDraws[next++ & (SAMPLES - 1)]]);
+    }
+
+    @Benchmark
+    public List<Message> searchMessagesByRecipient() {
+        return archive.searchMessagesByRecipient(Corpus.recipient(recipientDraws[next++ & (SAMPLES - 1)]));
+    }
+}
@@ -0,0 +1,87 @@
+package com.mycompany.chatappgui.benchmarks;
+
+import com.mycompany.chatappgui.Message;
+import com.mycompany.chatappgui.MessageManager;
+import com.mycompany.chatappgui.SendPipeline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A burst of 10,000 stores: one storeMessage call each, one storeAll call, and through a
+ * {@link SendPipeline} in STORE mode. Scores are per message.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class BulkIngestBenchmark {
+
+    private static final int BURST = 10_000;
+
+    private File storedFile;
+    private MessageManager manager;
+    private SendPipeline pipeline;
+    private List<Message> burst;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        storedFile = Corpus.tempStore("bulk-bench");
+        manager = new MessageManager(storedFile);
+        pipeline = new SendPipeline(manager, SendPipeline.Mode.STORE);
+    }
+
+    @Setup(Level.Invocation)
+    public void newBurst() {
+        burst = new ArrayList<>(BURST);
+        for (int i = 0; i < BURST; i++) burst.add(Corpus.message(i));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        System.out.println();
+        System.out.println("pipeline: " + pipeline.getStats());
+        pipeline.close();
+        manager.close();
+        Corpus.deleteStore(storedFile);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void storeEach() {
+        for (Message m : burst) manager.storeMessage(m);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void storeAll() {
+        manager.storeAll(burst);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void pipeline() throws InterruptedException {
+        CompletableFuture<SendPipeline.Outcome> last = null;
+        for (Message m : burst) last = pipeline.submit(m, null);
+        last.join();
+    }
+}
@@ -0,0 +1,116 @@
+package com.mycompany.chatappgui.benchmarks;
+
+import com.mycompany.chatappgui.ColumnarMessageStore;
+import com.mycompany.chatappgui.Message;
+import com.mycompany.chatappgui.MessageManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memory footprint of the columnar store against the object model, plus lookups on both. Setup
+ * prints the heap retained per message by: the Message objects alone (IDs and hashes rendered, as
+ * indexing does), the same messages held and indexed by a MessageManager, and a
+ * {@link ColumnarMessageStore} built from them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class ColumnarStoreBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int corpusSize;
+
+    private File storedFile;
+    private MessageManager manager;
+    private ColumnarMessageStore store;
+    private String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        storedFile = Corpus.tempStore("columnar-bench");
+        long base = heapUsed();
+
+        List<Message> messages = new ArrayList<>(corpusSize);
+        for (int i = 0; i < corpusSize; i++) {
+            Message m = Corpus.message(i);
+            m.getMessageID();
+            m.getMessageHash();
+            messages.add(m);
+        }
+        long objects = heapUsed() - base;
+
+        manager = new MessageManager(storedFile);
+        manager.sendAll(messages);
+        long managed = heapUsed() - base;
+
+        long before = heapUsed();
+        store = ColumnarMessageStore.build(messages);
+        long columnar = heapUsed() - before;
+
+        ids = new String[4096];
+        for (int i = 0; i < ids.length; i++) ids[i] = messages.get(i * (corpusSize / ids.length)).getMessageID();
+
+        System.out.printf("%n%,d messages, heap bytes per message: objects %.1f, manager %.1f, columnar %.1f (estimate %.1f)%n",
+                corpusSize, (double) objects / corpusSize, (double) managed / corpusSize,
+                (double) columnar / corpusSize, (double) store.footprintBytes() / corpusSize);
+    }
+
+    private static long heapUsed() {
+        for (int i = 0; i < 3; i++) System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        manager.close();
+        Corpus.deleteStore(storedFile);
+    }
+
+    @Benchmark
+    public Message columnarSearchByMessageID() {
+        return store.searchByMessageID(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public Message managerSearchByMessageID() {
+        return manager.searchByMessageID(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public List<Message> columnarSearchByRecipient() {
+        return store.searchMessagesByRecipient(Corpus.recipient(ThreadLocalRandom.current().nextInt(Corpus.RECIPIENTS)));
+    }
+
+    @Benchmark
+    public List<Message> managerSearchByRecipient() {
+        return manager.searchMessagesByRecipient(Corpus.recipient(ThreadLocalRandom.current().nextInt(Corpus.RECIPIENTS)));
+    }
+
+    @Benchmark
+    public Message columnarLongest() {
+        return store.getLongestMessage();
+    }
+}
@@ -0,0 +1,63 @@
+package com.mycompany.chatappgui.benchmarks;
+
+import com.mycompany.chatappgui.Message;
+import com.mycompany.chatappgui.MessageManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Send throughput with each thread writing to its own recipient. Run with -t 1, -t 2, -t 4 ...
+ * to see scaling across cores.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ConcurrentSendBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        File storedFile;
+        MessageManager manager;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws IOException {
+            storedFile = Corpus.tempStore("send-bench");
+            manager = new MessageManager(storedFile);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            manager.close();
+            Corpus.deleteStore(storedFile);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Sender {
+        private static final AtomicInteger THREADS = new AtomicInteger();
+        final String recipient = Corpus.recipient(THREADS.getAndIncrement());
+        final String payload = Corpus.payload(7);
+    }
+
+    @Benchmark
+    public void sendMessage(Shared shared, Sender sender) {
+        shared.manager.sendMessage(new Message(sender.recipient, sender.payload));
+    }
+}
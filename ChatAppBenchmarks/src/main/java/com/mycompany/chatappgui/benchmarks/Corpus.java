@@ -0,0 +1,53 @@
+package com.mycompany.chatappgui.benchmarks;
+
+import com.mycompany.chatappgui.Message;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Deterministic message corpus shared by the benchmarks: a fixed pool of recipients and payloads
+ * of varying length up to the 250-character send limit.
+ */
+final class Corpus {
+
+    static final int RECIPIENTS = 1024;
+
+    private static final String WORDS = "where are you late dinner time cake gate leaving without "
+            + "ok did you get the on asked have i am at your yohoooo it is ";
+
+    private Corpus() {}
+
+    static String recipient(int i) {
+        return "+2783" + String.format("%07d", Math.floorMod(i * 7919, RECIPIENTS));
+    }
+
+    static String payload(int i) {
+        int len = 10 + Math.floorMod(i * 31, 240);
+        int from = Math.floorMod(i * 13, WORDS.length());
+        StringBuilder sb = new StringBuilder(len);
+        while (sb.length() < len) {
+            sb.append(WORDS, from, Math.min(WORDS.length(), from + len - sb.length()));
+            from = 0;
+        }
+        return sb.toString();
+    }
+
+    static Message message(int i) {
+        return new Message(recipient(i), payload(i));
+    }
+
+    static File tempStore(String prefix) throws IOException {
+        return Files.createTempDirectory(prefix).resolve("storedMessages.json").toFile();
+    }
+
+    static void deleteStore(File storedFile) throws IOException {
+        if (storedFile == null) return;
+        try (Stream<java.nio.file.Path> files = Files.walk(storedFile.getParentFile().toPath())) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.mycompany.chatappgui.benchmarks;
+
+import com.mycompany.chatappgui.MessageIds;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ID/hash generation: the original String.format + concatenated hashCode() against MessageIds.
+ * Run with -prof gc to compare bytes allocated per op.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IdHashBenchmark {
+
+    private final String recipient = Corpus.recipient(42);
+    private final String payload = Corpus.payload(42);
+    private int counter;
+
+    @Benchmark
+    public String legacyIdAndHash() {
+        // as Message did before: String.format ID, then a throwaway concatenation just to hash it
+        String id = String.format("MSG%05d", ++counter);
+        int h = (id + "|" + recipient + "|" + payload + "|" + System.currentTimeMillis()).hashCode();
+        return "HASH" + Math.abs(h);
+    }
+
+    @Benchmark
+    public long numericIdAndHash() {
+        // what the constructor now does; strings are only built when read
+        return MessageIds.hash(++counter, recipient, payload, System.nanoTime());
+    }
+
+    @Benchmark
+    public String materializedIdAndHash() {
+        long seq = ++counter;
+        String id = MessageIds.formatId(seq);
+        return MessageIds.formatHash(MessageIds.hash(seq, recipient, payload, System.nanoTime())) + id.length();
+    }
+}
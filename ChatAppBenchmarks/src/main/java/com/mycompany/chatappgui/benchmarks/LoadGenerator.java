@@ -0,0 +1,267 @@
+package com.mycompany.chatappgui.benchmarks;
+
+import com.mycompany.chatappgui.ChatClient;
+import com.mycompany.chatappgui.ChatProtocol;
+import com.mycompany.chatappgui.LatencyHistogram;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop load generator for {@link com.mycompany.chatappgui.ChatServer}. Opens
+ * {@code --connections} sockets on one selector thread, logs each one in as one of
+ * {@code --users} accounts, then keeps exactly one request in flight per connection until each
+ * has completed {@code --requests}: 70% send, 10% store, 20% search by one of its own message IDs.
+ * Prints throughput and latency percentiles for the login and request phases.
+ *
+ * <p>Without {@code --port} it starts the server in a child JVM on a free port, with a fresh
+ * storage directory and a 1 ms password-hash budget; a separate process keeps client and server
+ * sockets under their own file-descriptor limits.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.mycompany.chatappgui.benchmarks.LoadGenerator --connections 10000
+ * </pre>
+ */
+public class LoadGenerator {
+
+    private static final String PASSWORD = "Abcdef1!";
+
+    private final LatencyHistogram loginLatency = new LatencyHistogram();
+    private final LatencyHistogram requestLatency = new LatencyHistogram();
+    private final LatencyHistogram[] byOperation = {new LatencyHistogram(), new LatencyHistogram(), new LatencyHistogram()};
+    private final int requestsPerConnection;
+    private final int users;
+    private long errors;
+
+    private LoadGenerator(int requestsPerConnection, int users) {
+        this.requestsPerConnection = requestsPerConnection;
+        this.users = users;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int connections = 10_000;
+        int requests = 20;
+        int users = 100;
+        String host = "127.0.0.1";
+        int port = -1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--connections" -> connections = Integer.parseInt(args[++i]);
+                case "--requests" -> requests = Integer.parseInt(args[++i]);
+                case "--users" -> users = Integer.parseInt(args[++i]);
+                case "--host" -> host = args[++i];
+                case "--port" -> port = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        users = Math.min(users, connections);
+
+        Process server = null;
+        File storage = null;
+        try {
+            if (port < 0) {
+                storage = Files.createTempDirectory("chat-load").toFile();
+                server = startServer(storage);
+                port = awaitPort(server);
+            }
+            InetSocketAddress address = new InetSocketAddress(host, port);
+            // enough quota for every connection a user ends up with
+            int quota = (connections / users + 1) * requests;
+            try (ChatClient admin = new ChatClient(address)) {
+                for (int u = 0; u < users; u++) {
+                    ChatProtocol.Frame r = admin.call(ChatProtocol.REGISTER, "Load", "User", username(u), PASSWORD,
+                            "+2783" + String.format("%07d", u), String.valueOf(quota));
+                    if (!r.isOk()) throw new IllegalStateException("Register failed: " + r.field(0));
+                }
+            }
+            new LoadGenerator(requests, users).run(address, connections);
+        } finally {
+            if (server != null) {
+                server.destroy();
+                server.waitFor(30, TimeUnit.SECONDS);
+            }
+            if (storage != null) Corpus.deleteStore(new File(storage, "storedMessages.json"));
+        }
+    }
+
+    private static String username(int u) {
+        return "u_" + Integer.toString(u, 36);
+    }
+
+    private static Process startServer(File storage) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                "-Dchatapp.hash.millis=1",
+                "-Dchatapp.storage.dir=" + storage.getAbsolutePath(),
+                "com.mycompany.chatappgui.ChatServer", "0")
+                .redirectErrorStream(true)
+                .start();
+    }
+
+    private static int awaitPort(Process server) throws IOException {
+        BufferedReader out = new BufferedReader(new InputStreamReader(server.getInputStream(), StandardCharsets.UTF_8));
+        for (String line; (line = out.readLine()) != null; ) {
+            System.out.println("[server] " + line);
+            if (line.startsWith("ChatServer listening on port ")) {
+                Thread drain = new Thread(() -> {
+                    try {
+                        for (String l; (l = out.readLine()) != null; ) System.out.println("[server] " + l);
+                    } catch (IOException ignored) {
+                        // server gone
+                    }
+                }, "server-output");
+                drain.setDaemon(true);
+                drain.start();
+                return Integer.parseInt(line.substring("ChatServer listening on port ".length()).trim());
+            }
+        }
+        throw new IOException("Server exited before listening");
+    }
+
+    // ---------- Client side ----------
+
+    /** One connection: at most one request outstanding. */
+    private final class Connection {
+        final SocketChannel channel;
+        final int user;
+        ByteBuffer in = ByteBuffer.allocate(256);
+        ByteBuffer out;
+        int nextId;
+        int done = -1; // -1 until logged in
+        byte operation;
+        long startedAt;
+        final List<String> sentIds = new ArrayList<>();
+        final SplittableRandom random;
+
+        Connection(SocketChannel channel, int index) {
+            this.channel = channel;
+            this.user = index % users;
+            this.random = new SplittableRandom(index);
+        }
+
+        void login(SelectionKey key) throws IOException {
+            send(key, ChatProtocol.LOGIN, username(user), PASSWORD);
+        }
+
+        // true once this connection has finished its requests
+        boolean next(SelectionKey key) throws IOException {
+            if (done >= requestsPerConnection) return true;
+            int roll = random.nextInt(10);
+            if (roll < 2 && !sentIds.isEmpty()) {
+                send(key, ChatProtocol.SEARCH_ID, sentIds.get(random.nextInt(sentIds.size())));
+            } else if (roll == 2) {
+                send(key, ChatProtocol.STORE, Corpus.recipient(random.nextInt()), Corpus.payload(random.nextInt()) + "x".repeat(20));
+            } else {
+                send(key, ChatProtocol.SEND, Corpus.recipient(random.nextInt()), Corpus.payload(random.nextInt()));
+            }
+            return false;
+        }
+
+        void send(SelectionKey key, byte op, String... fields) throws IOException {
+            operation = op;
+            out = ChatProtocol.encode(op, ++nextId, fields);
+            startedAt = System.nanoTime();
+            channel.write(out);
+            key.interestOps(out.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
+        // the response, or null if not all of it has arrived yet
+        ChatProtocol.Frame read() throws IOException {
+            if (channel.read(in) < 0) throw new IOException("Server closed connection");
+            if (in.position() < 4) return null;
+            int length = in.getInt(0);
+            if (in.capacity() < 4 + length) {
+                in = ByteBuffer.allocate(4 + length).put(in.flip());
+            }
+            if (in.position() < 4 + length) return null;
+            ChatProtocol.Frame f = ChatProtocol.decode(ByteBuffer.wrap(in.array(), 4, length).slice());
+            in.clear(); // closed loop: nothing follows the one response
+            if (f.getId() != nextId) throw new IOException("Response " + f.getId() + " for request " + nextId);
+            return f;
+        }
+    }
+
+    private void run(InetSocketAddress address, int connections) throws IOException {
+        try (Selector selector = Selector.open()) {
+            System.out.printf("Opening %d connections to %s%n", connections, address);
+            List<SelectionKey> keys = new ArrayList<>(connections);
+            for (int i = 0; i < connections; i++) {
+                SocketChannel channel = SocketChannel.open(address);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.configureBlocking(false);
+                keys.add(channel.register(selector, 0, new Connection(channel, i)));
+            }
+
+            long loginStart = System.nanoTime();
+            for (SelectionKey key : keys) ((Connection) key.attachment()).login(key);
+            int loggedIn = 0;
+            int finished = 0;
+            long requestStart = 0;
+            while (finished < connections) {
+                selector.select();
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    Connection c = (Connection) key.attachment();
+                    if (key.isWritable()) {
+                        c.channel.write(c.out);
+                        if (!c.out.hasRemaining()) key.interestOps(SelectionKey.OP_READ);
+                        continue;
+                    }
+                    ChatProtocol.Frame response = c.read();
+                    if (response == null) continue;
+                    long latency = System.nanoTime() - c.startedAt;
+                    if (!response.isOk()) errors++;
+                    if (c.done < 0) {
+                        loginLatency.record(latency);
+                        c.done = 0;
+                        if (++loggedIn == connections) {
+                            requestStart = System.nanoTime();
+                            report("login", loginLatency, requestStart - loginStart);
+                            // everyone starts together so the request phase is measured at full concurrency
+                            for (SelectionKey k : keys) ((Connection) k.attachment()).next(k);
+                        }
+                        continue;
+                    }
+                    requestLatency.record(latency);
+                    byOperation[c.operation == ChatProtocol.SEND ? 0 : c.operation == ChatProtocol.STORE ? 1 : 2].record(latency);
+                    if (c.operation == ChatProtocol.SEND && response.isOk()) c.sentIds.add(response.field(0));
+                    c.done++;
+                    if (c.next(key)) {
+                        finished++;
+                        key.interestOps(0);
+                    }
+                }
+            }
+            long elapsed = System.nanoTime() - requestStart;
+            report("requests", requestLatency, elapsed);
+            report("  send", byOperation[0], elapsed);
+            report("  store", byOperation[1], elapsed);
+            report("  search", byOperation[2], elapsed);
+            System.out.printf("errors: %d%n", errors);
+            for (SelectionKey key : keys) key.channel().close();
+        }
+    }
+
+    private static void report(String phase, LatencyHistogram h, long elapsedNanos) {
+        System.out.printf("%-9s %8d ops in %6.2f s  %9.0f ops/s  p50 %7.2f ms  p99 %7.2f ms  max %7.2f ms%n",
+                phase, h.getCount(), elapsedNanos / 1e9, h.getCount() / (elapsedNanos / 1e9),
+                h.getPercentile(50) / 1e6, h.getPercentile(99) / 1e6, h.getMax() / 1e6);
+    }
+}
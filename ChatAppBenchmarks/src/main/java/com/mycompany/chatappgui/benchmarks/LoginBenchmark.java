@@ -0,0 +1,86 @@
+package com.mycompany.chatappgui.benchmarks;
+
+import com.mycompany.chatappgui.Login;
+import com.mycompany.chatappgui.PasswordHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * User lookup with a large registry. The KDF runs a single iteration here so the numbers show
+ * the registry, not PBKDF2; {@link #hashAtBudget} measures the production hash on its own.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class LoginBenchmark {
+
+    private static final String PASSWORD = "Abcdef1!";
+    private static final char[] DIGITS =
+            "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+
+    @Param({"1000", "1000000"})
+    public int users;
+
+    private Login login;
+    private PasswordHasher budgetHasher;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        login = new Login(new PasswordHasher(1));
+        IntStream.range(0, users).parallel()
+                .forEach(i -> login.registerUser("Bench", "User", username(i), PASSWORD, "+27830000000", 10));
+        budgetHasher = PasswordHasher.withBudget(Login.DEFAULT_HASH_BUDGET_MILLIS);
+    }
+
+    // usernames must be at most five characters with an underscore: four base-62 digits + "_"
+    static String username(int i) {
+        char[] buf = new char[5];
+        for (int k = 3; k >= 0; k--) {
+            buf[k] = DIGITS[i % 62];
+            i /= 62;
+        }
+        buf[4] = '_';
+        return new String(buf);
+    }
+
+    @Benchmark
+    public boolean loginExisting() {
+        return login.loginUser(username(ThreadLocalRandom.current().nextInt(users)), PASSWORD);
+    }
+
+    @Benchmark
+    public boolean loginUnknown() {
+        return login.loginUser("zz__", PASSWORD);
+    }
+
+    @Benchmark
+    public String registerDuplicate() {
+        return login.registerUser("Bench", "User", username(ThreadLocalRandom.current().nextInt(users)),
+                PASSWORD, "+27830000000", 10);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 20)
+    public String hashAtBudget() {
+        return budgetHasher.hash(PASSWORD);
+    }
+}
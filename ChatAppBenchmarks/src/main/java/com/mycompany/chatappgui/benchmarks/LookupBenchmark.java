@@ -0,0 +1,80 @@
+package com.mycompany.chatappgui.benchmarks;
+
+import com.mycompany.chatappgui.Message;
+import com.mycompany.chatappgui.MessageManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query paths over an in-memory corpus: 80% sent, 20% disregarded (stored messages live in
+ * {@link PersistenceBenchmark} so setup does not write gigabytes of log).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int corpusSize;
+
+    private File storedFile;
+    private MessageManager manager;
+    private String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        storedFile = Corpus.tempStore("lookup-bench");
+        manager = new MessageManager(storedFile);
+        ids = new String[Math.min(corpusSize, 65536)];
+        int stride = corpusSize / ids.length;
+        for (int i = 0; i < corpusSize; i++) {
+            Message m = Corpus.message(i);
+            if (i % 5 == 4) manager.disregardMessage(m);
+            else manager.sendMessage(m);
+            // sample IDs evenly across the corpus
+            if (i % stride == 0 && i / stride < ids.length) ids[i / stride] = m.getMessageID();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        manager.close();
+        Corpus.deleteStore(storedFile);
+    }
+
+    @Benchmark
+    public Message searchByMessageID() {
+        return manager.searchByMessageID(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public List<Message> searchMessagesByRecipient() {
+        return manager.searchMessagesByRecipient(Corpus.recipient(ThreadLocalRandom.current().nextInt(Corpus.RECIPIENTS)));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Message getLongestMessageAcrossAll() {
+        return manager.getLongestMessageAcrossAll();
+    }
+}
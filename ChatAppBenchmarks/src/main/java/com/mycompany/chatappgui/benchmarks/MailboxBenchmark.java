@@ -0,0 +1,96 @@
+package com.mycompany.chatappgui.benchmarks;
+
+import com.mycompany.chatappgui.Mailbox;
+import com.mycompany.chatappgui.Message;
+import com.mycompany.chatappgui.MessageManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Getting a recipient's new messages: send one, then read it back from the recipient's mailbox
+ * or by searching their whole history ({@code corpusSize} / 1024 earlier messages each).
+ * {@code handoff} is the raw mailbox with three senders and one reader draining in batches.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class MailboxBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int corpusSize;
+
+    private File storedFile;
+    private MessageManager manager;
+    private String recipient;
+    private final String payload = Corpus.payload(3);
+
+    private final Mailbox handoff = new Mailbox("+27830000000", 4096);
+    private final Message handoffMessage = new Message("+27830000000", "x");
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        storedFile = Corpus.tempStore("mailbox-bench");
+        manager = new MessageManager(storedFile);
+        List<Message> corpus = new ArrayList<>(corpusSize);
+        for (int i = 0; i < corpusSize; i++) corpus.add(Corpus.message(i));
+        manager.sendAll(corpus);
+        recipient = Corpus.recipient(0);
+        manager.enableMailboxes(); // after the corpus, so the mailboxes start empty
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        manager.close();
+        Corpus.deleteStore(storedFile);
+    }
+
+    @Benchmark
+    public List<Message> sendAndDrainMailbox() {
+        manager.sendMessage(new Message(recipient, payload));
+        return manager.getMailboxes().drain(recipient, 16);
+    }
+
+    @Benchmark
+    public Message sendAndSearchByRecipient() {
+        manager.sendMessage(new Message(recipient, payload));
+        List<Message> all = manager.searchMessagesByRecipient(recipient);
+        return all.get(all.size() - 1);
+    }
+
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(3)
+    public boolean offer() {
+        return handoff.offer(handoffMessage);
+    }
+
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(1)
+    public int drain(Blackhole bh) {
+        return handoff.drain(bh::consume, 64);
+    }
+}
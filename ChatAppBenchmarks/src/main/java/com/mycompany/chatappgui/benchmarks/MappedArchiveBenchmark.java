@@ -0,0 +1,85 @@
+package com.mycompany.chatappgui.benchmarks;
+
+import com.mycompany.chatappgui.MappedMessageArchive;
+import com.mycompany.chatappgui.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queries against a memory-mapped archive. Setup streams the corpus straight to disk and prints
+ * heap in use after opening it, which should stay flat as corpusSize grows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx512m", "-XX:MaxDirectMemorySize=4g"})
+@State(Scope.Benchmark)
+public class MappedArchiveBenchmark {
+
+    @Param({"100000", "1000000", "10000000"})
+    public int corpusSize;
+
+    private File archiveFile;
+    private MappedMessageArchive archive;
+    private String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        archiveFile = Corpus.tempStore("archive-bench");
+        ids = new String[4096];
+        int stride = corpusSize / ids.length;
+        try (MappedMessageArchive.Writer w = MappedMessageArchive.writer(archiveFile)) {
+            for (int i = 0; i < corpusSize; i++) {
+                Message m = Corpus.message(i);
+                w.append(m);
+                if (i % stride == 0 && i / stride < ids.length) ids[i / stride] = m.getMessageID();
+            }
+        }
+        archive = MappedMessageArchive.open(archiveFile);
+        System.gc();
+        long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        System.out.printf("%n%,d archived messages, file %,d bytes, heap used after open %,d bytes%n",
+                corpusSize, archiveFile.length(), heap);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        archive.close();
+        Corpus.deleteStore(archiveFile);
+    }
+
+    @Benchmark
+    public Message searchByMessageID() {
+        return archive.searchByMessageID(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Message> searchMessagesByRecipient() {
+        return archive.searchMessagesByRecipient(Corpus.recipient(ThreadLocalRandom.current().nextInt(Corpus.RECIPIENTS)));
+    }
+
+    @Benchmark
+    public Message getLongestMessage() {
+        return archive.getLongestMessage();
+    }
+}
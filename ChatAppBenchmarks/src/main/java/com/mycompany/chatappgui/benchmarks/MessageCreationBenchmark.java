@@ -0,0 +1,39 @@
+package com.mycompany.chatappgui.benchmarks;
+
+import com.mycompany.chatappgui.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of new Message(...): ID formatting plus hash generation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageCreationBenchmark {
+
+    private final String recipient = Corpus.recipient(42);
+    private final String payload = Corpus.payload(42);
+
+    @Benchmark
+    public Message newMessage() {
+        return new Message(recipient, payload);
+    }
+
+    @Benchmark
+    public String newMessageWithId() {
+        return new Message(recipient, payload).getMessageID();
+    }
+}
@@ -0,0 +1,104 @@
+package com.mycompany.chatappgui.benchmarks;
+
+import com.mycompany.chatappgui.Message;
+import com.mycompany.chatappgui.MessageManager;
+import com.mycompany.chatappgui.ShardedMessageStore;
+import com.mycompany.chatappgui.StorageFormat;
+import com.mycompany.chatappgui.StoredMessageLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stored-message persistence: per-store cost with N messages already stored (should not grow with N),
+ * full snapshot save, and load (snapshot + log replay) from one file or from {@code SHARDS} recipient
+ * shards replayed in parallel.
+ */
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class PersistenceBenchmark {
+
+    private static final int SHARDS = 8;
+
+    @Param({"1000", "100000", "1000000"})
+    public int corpusSize;
+
+    private File storedFile;
+    private File shardDirectory;
+    private List<Message> corpus;
+    private MessageManager manager;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        storedFile = Corpus.tempStore("persistence-bench");
+        corpus = new ArrayList<>(corpusSize);
+        for (int i = 0; i < corpusSize; i++) corpus.add(Corpus.message(i));
+        try (StoredMessageLog log = new StoredMessageLog(storedFile)) {
+            log.compact(corpus);
+        }
+        manager = new MessageManager(storedFile);
+        shardDirectory = new File(storedFile.getParentFile(), "shards");
+        try (ShardedMessageStore sharded = new ShardedMessageStore(shardDirectory, SHARDS, StorageFormat.JSON)) {
+            sharded.load(m -> { });
+            sharded.compact(corpus);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        manager.close();
+        Corpus.deleteStore(storedFile);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void storeMessage() {
+        manager.storeMessage(Corpus.message(next++));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void saveSnapshot() throws IOException {
+        File snapshot = new File(storedFile.getParentFile(), "snapshot-bench.json");
+        try (StoredMessageLog log = new StoredMessageLog(snapshot)) {
+            log.compact(corpus);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int loadStoredMessages() throws IOException {
+        return new StoredMessageLog(storedFile).load().size();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long loadShardedStore() throws IOException {
+        try (ShardedMessageStore sharded = new ShardedMessageStore(shardDirectory, SHARDS, StorageFormat.JSON)) {
+            return sharded.load(m -> { });
+        }
+    }
+}
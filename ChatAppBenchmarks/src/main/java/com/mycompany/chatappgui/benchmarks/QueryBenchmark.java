@@ -0,0 +1,98 @@
+package com.mycompany.chatappgui.benchmarks;
+
+import com.mycompany.chatappgui.Message;
+import com.mycompany.chatappgui.MessageManager;
+import com.mycompany.chatappgui.MessageQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full scans through {@link MessageQuery} on a fork/join pool of {@code parallelism} workers
+ * (1 = sequential), against the old approach of copying every list into one and looping.
+ * Speedup needs as many free cores as the pool has workers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+
+    @Param({"1000000"})
+    public int corpusSize;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private File storedFile;
+    private MessageManager manager;
+    private ForkJoinPool pool;
+    private MessageQuery query;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        storedFile = Corpus.tempStore("query-bench");
+        manager = new MessageManager(storedFile);
+        List<Message> sent = new ArrayList<>(corpusSize);
+        List<Message> disregarded = new ArrayList<>(corpusSize / 5);
+        for (int i = 0; i < corpusSize; i++) (i % 5 == 4 ? disregarded : sent).add(Corpus.message(i));
+        manager.sendAll(sent);
+        manager.disregardAll(disregarded);
+        pool = new ForkJoinPool(parallelism);
+        query = manager.query().with(pool, MessageQuery.DEFAULT_THRESHOLD);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        manager.close();
+        Corpus.deleteStore(storedFile);
+    }
+
+    @Benchmark
+    public Message longest() {
+        return query.longest();
+    }
+
+    @Benchmark
+    public Map<String, Long> countByRecipient() {
+        return query.countByRecipient();
+    }
+
+    @Benchmark
+    public List<Message> filter() {
+        return query.filter(m -> m.getPayload().contains("cake gate"));
+    }
+
+    @Benchmark
+    public Message longestFromCombinedCopy() {
+        List<Message> all = new ArrayList<>(manager.getSentMessages());
+        all.addAll(manager.getStoredMessages());
+        all.addAll(manager.getDisregardedMessages());
+        Message best = null;
+        for (Message m : all) {
+            if (best == null || m.getPayload().length() > best.getPayload().length()) best = m;
+        }
+        return best;
+    }
+}
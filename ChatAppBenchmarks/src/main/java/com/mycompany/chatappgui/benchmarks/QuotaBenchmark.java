@@ -0,0 +1,96 @@
+package com.mycompany.chatappgui.benchmarks;
+
+import com.mycompany.chatappgui.MessageQuota;
+import com.mycompany.chatappgui.Quota;
+import com.mycompany.chatappgui.TokenBucket;
+import com.mycompany.chatappgui.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One user's send quota debited from every benchmark thread at once. Run with -t 1, -t 4, -t 8 ...
+ * to compare a synchronized counter (how User used to work), a single CAS counter, the striped
+ * {@link MessageQuota}, a {@link TokenBucket} and a User's full reserve-and-commit send path.
+ * Allowances are large enough never to run out during a run.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuotaBenchmark {
+
+    private static final long PLENTY = Long.MAX_VALUE / 4;
+
+    /** The old User quota: check and decrement under the object's monitor. */
+    static final class SynchronizedCounter {
+        private long remaining = PLENTY;
+
+        synchronized int debit(int requested) {
+            int granted = (int) Math.min(requested, remaining);
+            remaining -= granted;
+            return granted;
+        }
+    }
+
+    private SynchronizedCounter synchronizedCounter;
+    private AtomicLong casCounter;
+    private MessageQuota striped;
+    private TokenBucket bucket;
+    private User user;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        synchronizedCounter = new SynchronizedCounter();
+        casCounter = new AtomicLong(PLENTY);
+        striped = new MessageQuota(PLENTY);
+        bucket = new TokenBucket(PLENTY / 1_000_000_000L, 1e12);
+        user = User.withPasswordHash("Bench", "User", "b_1", null, "+27830000001", Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public int synchronizedDebit() {
+        return synchronizedCounter.debit(1);
+    }
+
+    @Benchmark
+    public long casDebit() {
+        long have;
+        do {
+            have = casCounter.get();
+            if (have == 0) return 0;
+        } while (!casCounter.compareAndSet(have, have - 1));
+        return 1;
+    }
+
+    @Benchmark
+    public int stripedDebit() {
+        return striped.acquireUpTo(1);
+    }
+
+    @Benchmark
+    public int tokenBucketDebit() {
+        return bucket.acquireUpTo(1);
+    }
+
+    @Benchmark
+    public int userReserveAndCommit() {
+        try (Quota.Reservation r = user.reserveSends(1)) {
+            r.commit();
+            return r.getGranted();
+        }
+    }
+}
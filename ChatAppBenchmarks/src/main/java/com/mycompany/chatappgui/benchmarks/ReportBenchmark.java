@@ -0,0 +1,85 @@
+package com.mycompany.chatappgui.benchmarks;
+
+import com.mycompany.chatappgui.Message;
+import com.mycompany.chatappgui.MessageManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Report builders over the sent list (menu options 4, 7 and 12) and "longest" (option 8). A 10M
+ * report is a multi-GB string, so that size is only run when asked for with -p corpusSize=10000000.
+ * The views are incremental, so the plain report benchmarks measure the cached path and
+ * {@link #sendThenReport} the cost of catching up on one new message.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class ReportBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int corpusSize;
+
+    private File storedFile;
+    private MessageManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        storedFile = Corpus.tempStore("report-bench");
+        manager = new MessageManager(storedFile);
+        for (int i = 0; i < corpusSize; i++) manager.sendMessage(Corpus.message(i));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        manager.close();
+        Corpus.deleteStore(storedFile);
+    }
+
+    @Benchmark
+    public String generateSentMessagesReport() {
+        return manager.generateSentMessagesReport();
+    }
+
+    @Benchmark
+    public String displaySenderRecipientAllSent() {
+        return manager.displaySenderRecipientAllSent();
+    }
+
+    @Benchmark
+    public String sendThenReport() {
+        manager.sendMessage(Corpus.message(ThreadLocalRandom.current().nextInt(corpusSize)));
+        return manager.generateSentMessagesReport();
+    }
+
+    @Benchmark
+    public Message longestMessage() {
+        return manager.getLongestMessageAcrossAll();
+    }
+
+    @Benchmark
+    public Message sendDeleteThenLongest() {
+        Message m = Corpus.message(ThreadLocalRandom.current().nextInt(corpusSize));
+        manager.sendMessage(m);
+        manager.deleteMessageByHash(m.getMessageHash());
+        return manager.getLongestMessageAcrossAll();
+    }
+}
@@ -0,0 +1,88 @@
+package com.mycompany.chatappgui.benchmarks;
+
+import com.mycompany.chatappgui.Message;
+import com.mycompany.chatappgui.MessageManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-text payload search. The shared corpus reuses a couple of dozen words, so every message
+ * here also carries a tag word ("k" + base-36 number, TAGS distinct values) to give queries a
+ * realistic rare term. {@link #commonTerm} is the worst case: a word in nearly every message.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    private static final int TAGS = 50_000;
+
+    @Param({"100000", "1000000"})
+    public int corpusSize;
+
+    private File storedFile;
+    private MessageManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        storedFile = Corpus.tempStore("search-bench");
+        manager = new MessageManager(storedFile);
+        for (int i = 0; i < corpusSize; i++) {
+            Message m = new Message(Corpus.recipient(i), Corpus.payload(i) + " " + tag(i % TAGS));
+            if (i % 5 == 4) manager.disregardMessage(m);
+            else manager.sendMessage(m);
+        }
+    }
+
+    private static String tag(int i) {
+        return "k" + Integer.toString(i, 36);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        manager.close();
+        Corpus.deleteStore(storedFile);
+    }
+
+    @Benchmark
+    public List<Message> rareTerm() {
+        return manager.searchPayload(tag(ThreadLocalRandom.current().nextInt(TAGS)));
+    }
+
+    @Benchmark
+    public List<Message> rareAndCommonTerms() {
+        return manager.searchPayload("dinner " + tag(ThreadLocalRandom.current().nextInt(TAGS)));
+    }
+
+    @Benchmark
+    public List<Message> prefix() {
+        // "k1a*" style: a few dozen tag words share each three-character prefix
+        return manager.searchPayload(tag(36 + ThreadLocalRandom.current().nextInt(36 * 35)).substring(0, 3) + "*");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Message> commonTerm() {
+        return manager.searchPayload("dinner", 10);
+    }
+}
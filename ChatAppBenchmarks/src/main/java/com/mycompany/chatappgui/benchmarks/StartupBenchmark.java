@@ -0,0 +1,92 @@
+package com.mycompany.chatappgui.benchmarks;
+
+import com.mycompany.chatappgui.ChatService;
+import com.mycompany.chatappgui.Message;
+import com.mycompany.chatappgui.StorageConfig;
+import com.mycompany.chatappgui.StorageFormat;
+import com.mycompany.chatappgui.StoredMessageLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to first dialog: how long {@link ChatService#open} takes with an archive of
+ * {@code corpusSize} stored messages, loading eagerly or lazily. {@link #lazyFirstStoredSearch}
+ * is the other side of the trade: open lazily, then wait for the first answer that needs the
+ * stored messages. Services are closed outside the measured time.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int corpusSize;
+
+    private File storedFile;
+    private String someId;
+    private ChatService service;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        storedFile = Corpus.tempStore("startup-bench");
+        List<Message> corpus = new ArrayList<>(corpusSize);
+        for (int i = 0; i < corpusSize; i++) corpus.add(Corpus.message(i));
+        someId = corpus.get(corpusSize / 2).getMessageID();
+        try (StoredMessageLog log = new StoredMessageLog(storedFile)) {
+            log.compact(corpus);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeService() {
+        if (service != null) service.close();
+        service = null;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Corpus.deleteStore(storedFile);
+    }
+
+    private StorageConfig config(boolean lazy) {
+        StorageConfig config = new StorageConfig(storedFile, StorageFormat.JSON);
+        config.setLazyLoad(lazy);
+        return config;
+    }
+
+    @Benchmark
+    public ChatService eagerOpen() {
+        return service = ChatService.open(config(false)).join();
+    }
+
+    @Benchmark
+    public ChatService lazyOpen() {
+        return service = ChatService.open(config(true)).join();
+    }
+
+    @Benchmark
+    public Message lazyFirstStoredSearch() {
+        service = ChatService.open(config(true)).join();
+        return service.searchByMessageID(someId).join();
+    }
+}
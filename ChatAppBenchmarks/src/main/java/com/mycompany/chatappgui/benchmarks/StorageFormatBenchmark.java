@@ -0,0 +1,99 @@
+package com.mycompany.chatappgui.benchmarks;
+
+import com.mycompany.chatappgui.Message;
+import com.mycompany.chatappgui.StorageFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Save/load time per snapshot format. Setup prints each format's file size and the heap the
+ * loaded messages hold (COMPRESSED and BINARY share one String per recipient; JSON does not).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class StorageFormatBenchmark {
+
+    @Param({"JSON", "NDJSON", "BINARY", "COMPRESSED"})
+    public StorageFormat format;
+
+    @Param({"1000", "100000", "1000000"})
+    public int corpusSize;
+
+    private File storedFile;
+    private File saveTarget;
+    private List<Message> corpus;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        storedFile = Corpus.tempStore("format-bench");
+        saveTarget = new File(storedFile.getParentFile(), "save-target");
+        corpus = new ArrayList<>(corpusSize);
+        for (int i = 0; i < corpusSize; i++) corpus.add(Corpus.message(i));
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(storedFile))) {
+            format.codec().write(out, corpus);
+        }
+        System.out.printf("%n%s, %d messages: %,d bytes (%.1f bytes/message)%n",
+                format, corpusSize, storedFile.length(), (double) storedFile.length() / corpusSize);
+
+        long before = heapUsed();
+        List<Message> loaded = new ArrayList<>(corpusSize);
+        try (InputStream in = new BufferedInputStream(new FileInputStream(storedFile))) {
+            format.codec().read(in, loaded::add);
+        }
+        long retained = heapUsed() - before;
+        System.out.printf("%s, %d messages loaded: %,d heap bytes (%.1f bytes/message)%n",
+                format, loaded.size(), retained, (double) retained / corpusSize);
+    }
+
+    private static long heapUsed() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Corpus.deleteStore(storedFile);
+    }
+
+    @Benchmark
+    public long save() throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(saveTarget))) {
+            return format.codec().write(out, corpus);
+        }
+    }
+
+    @Benchmark
+    public long load() throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(storedFile))) {
+            return format.codec().read(in, m -> { });
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.mycompany.chatappgui.benchmarks;
+
+import com.mycompany.chatappgui.Registration;
+import com.mycompany.chatappgui.UserValidator;
+import com.mycompany.chatappgui.ValidationError;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Registration rule checks: the original Pattern.matches calls (regex compiled on every call),
+ * the same regexes precompiled, and the single-pass {@link UserValidator}. {@link #validateBatch}
+ * checks a whole user file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+
+    private static final String PASSWORD_REGEX = "^(?=.*[A-Z])(?=.*[a-z])(?=.*\\d)(?=.*[^A-Za-z0-9]).{8,}$";
+    private static final String CELL_REGEX = "^\\+\\d{1,3}\\d{4,12}$";
+    private static final Pattern PASSWORD = Pattern.compile(PASSWORD_REGEX);
+    private static final Pattern CELL = Pattern.compile(CELL_REGEX);
+
+    // a mix of valid and invalid inputs, so no branch is always taken
+    private static final String[] PASSWORDS = {"Ch&&sec@ke99!", "password", "Abcdef1!", "ABCDEFGH1!", "Abcdefghijklmnop", "Ab1!"};
+    private static final String[] CELLS = {"+27838968976", "0838968976", "+2783", "+278300000000000", "+27 838968976"};
+
+    @Param({"1000000"})
+    public int batchSize;
+
+    private List<Registration> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            // every 50th username repeats an earlier one
+            String username = LoginBenchmark.username(i % 50 == 49 ? i - 1 : i);
+            batch.add(new Registration("Bench", "User", username,
+                    PASSWORDS[i % PASSWORDS.length], CELLS[i % CELLS.length], 10));
+        }
+    }
+
+    @Benchmark
+    public void regexRecompiled(Blackhole bh) {
+        for (String p : PASSWORDS) bh.consume(Pattern.matches(PASSWORD_REGEX, p));
+        for (String c : CELLS) bh.consume(Pattern.matches(CELL_REGEX, c));
+    }
+
+    @Benchmark
+    public void regexPrecompiled(Blackhole bh) {
+        for (String p : PASSWORDS) bh.consume(PASSWORD.matcher(p).matches());
+        for (String c : CELLS) bh.consume(CELL.matcher(c).matches());
+    }
+
+    @Benchmark
+    public void singlePass(Blackhole bh) {
+        for (String p : PASSWORDS) bh.consume(UserValidator.isValidPassword(p));
+        for (String c : CELLS) bh.consume(UserValidator.isValidCellPhone(c));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<EnumSet<ValidationError>> validateBatch() {
+        return UserValidator.validateAll(batch, username -> false);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int regexBatch() {
+        // the pre-change per-entry path, sequential and without duplicate detection
+        int invalid = 0;
+        for (Registration r : batch) {
+            String u = r.getUsername();
+            if (!(u.contains("_") && u.length() <= 5)
+                    || !Pattern.matches(PASSWORD_REGEX, r.getPassword())
+                    || !Pattern.matches(CELL_REGEX, r.getCellPhone())) invalid++;
+        }
+        return invalid;
+    }
+}
@@ -0,0 +1,239 @@
+package com.mycompany.chatappgui;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary codec. Layout:
+ * <pre>
+ *   header : "CHMB" version(1) flags(1)
+ *   record : varint bodyLength, body, crc32(body) as 4 bytes big-endian
+ *   body   : recipient, payload, messageID, messageHash
+ * </pre>
+ * Strings are varint (length + 1) followed by UTF-8 bytes, 0 meaning null. With the dictionary flag
+ * the recipient is a varint code instead: codes below the dictionary size refer to an earlier
+ * recipient, the next free code introduces a new one followed by its string.
+ */
+public class BinaryMessageCodec implements MessageCodec {
+
+    static final byte[] MAGIC = {'C', 'H', 'M', 'B'};
+    static final int VERSION = 1;
+    static final int FLAG_DICTIONARY = 1;
+
+    private final boolean dictionary;
+
+    public BinaryMessageCodec() {
+        this(true);
+    }
+
+    public BinaryMessageCodec(boolean dictionaryRecipients) {
+        this.dictionary = dictionaryRecipients;
+    }
+
+    // ---------- Reading ----------
+
+    @Override
+    public long read(InputStream raw, Consumer<Message> sink) throws IOException {
+        DataInputStream in = new DataInputStream(raw instanceof BufferedInputStream ? raw : new BufferedInputStream(raw));
+        byte[] magic = new byte[MAGIC.length];
+        try {
+            in.readFully(magic);
+        } catch (EOFException empty) {
+            return 0;
+        }
+        if (!Arrays.equals(magic, MAGIC)) throw new IOException("Not a binary message file");
+        int version = in.readUnsignedByte();
+        if (version != VERSION) throw new IOException("Unsupported binary message version " + version);
+        boolean dict = (in.readUnsignedByte() & FLAG_DICTIONARY) != 0;
+
+        List<String> recipients = new ArrayList<>();
+        CRC32 crc = new CRC32();
+        byte[] body = new byte[256];
+        long count = 0;
+        while (true) {
+            int first = in.read();
+            if (first < 0) break;
+            int len = readVarint(in, first);
+            if (body.length < len) body = new byte[Math.max(len, body.length * 2)];
+            in.readFully(body, 0, len);
+            crc.reset();
+            crc.update(body, 0, len);
+            if ((int) crc.getValue() != in.readInt()) throw new IOException("Checksum mismatch in record " + count);
+
+            int[] pos = {0};
+            Message m = new Message();
+            if (dict) {
+                int code = readVarint(body, pos);
+                if (code == recipients.size()) recipients.add(readString(body, pos));
+                else if (code > recipients.size()) throw new IOException("Bad recipient code in record " + count);
+                m.setRecipient(recipients.get(code));
+            } else {
+                m.setRecipient(readString(body, pos));
+            }
+            m.setPayload(readString(body, pos));
+            m.setMessageID(readString(body, pos));
+            m.setMessageHash(readString(body, pos));
+            sink.accept(m);
+            count++;
+        }
+        return count;
+    }
+
+    static int readVarint(InputStream in, int first) throws IOException {
+        int value = first & 0x7F;
+        int shift = 7;
+        int b = first;
+        while ((b & 0x80) != 0) {
+            b = in.read();
+            if (b < 0) throw new EOFException("Truncated record length");
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        }
+        return value;
+    }
+
+    static int readVarint(byte[] buf, int[] pos) {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = buf[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    static String readString(byte[] buf, int[] pos) {
+        int len = readVarint(buf, pos) - 1;
+        if (len < 0) return null;
+        String s = new String(buf, pos[0], len, StandardCharsets.UTF_8);
+        pos[0] += len;
+        return s;
+    }
+
+    // ---------- Writing ----------
+
+    @Override
+    public MessageCodec.Writer writer(OutputStream out) throws IOException {
+        return new BinaryWriter(out, dictionary);
+    }
+
+    private static final class BinaryWriter implements MessageCodec.Writer {
+        private final OutputStream out;
+        private final boolean dict;
+        private final Map<String, Integer> codes = new HashMap<>();
+        private static final int HEADROOM = 5; // room for the record-length varint
+        private final CRC32 crc = new CRC32();
+        private byte[] body = new byte[512];
+        private int size;
+        private long count;
+
+        BinaryWriter(OutputStream out, boolean dict) throws IOException {
+            this.out = out;
+            this.dict = dict;
+            out.write(MAGIC);
+            out.write(VERSION);
+            out.write(dict ? FLAG_DICTIONARY : 0);
+        }
+
+        @Override
+        public void write(Message m) throws IOException {
+            size = HEADROOM;
+            if (dict) {
+                Integer code = codes.get(m.getRecipient());
+                if (code != null) {
+                    putVarint(code);
+                } else {
+                    int next = codes.size();
+                    codes.put(m.getRecipient(), next);
+                    putVarint(next);
+                    putString(m.getRecipient());
+                }
+            } else {
+                putString(m.getRecipient());
+            }
+            putString(m.getPayload());
+            putString(m.getMessageID());
+            putString(m.getMessageHash());
+
+            // frame = varint length in the headroom, body, crc32; handed to the stream in one write
+            int len = size - HEADROOM;
+            crc.reset();
+            crc.update(body, HEADROOM, len);
+            int start = HEADROOM - varintSize(len);
+            for (int i = start, v = len; i < HEADROOM; i++, v >>>= 7) {
+                body[i] = (byte) (i == HEADROOM - 1 ? v : (v & 0x7F) | 0x80);
+            }
+            ensure(4);
+            int c = (int) crc.getValue();
+            body[size++] = (byte) (c >>> 24);
+            body[size++] = (byte) (c >>> 16);
+            body[size++] = (byte) (c >>> 8);
+            body[size++] = (byte) c;
+            out.write(body, start, size - start);
+            count++;
+        }
+
+        private static int varintSize(int v) {
+            int n = 1;
+            while ((v & ~0x7F) != 0) { v >>>= 7; n++; }
+            return n;
+        }
+
+        private void putString(String s) {
+            if (s == null) { putVarint(0); return; }
+            int n = s.length();
+            if (isAscii(s, n)) {
+                // common case (phone numbers, IDs, most payloads): encode in place, no byte[] copy
+                putVarint(n + 1);
+                ensure(n);
+                for (int i = 0; i < n; i++) body[size++] = (byte) s.charAt(i);
+                return;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            putVarint(bytes.length + 1);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, body, size, bytes.length);
+            size += bytes.length;
+        }
+
+        private static boolean isAscii(String s, int n) {
+            for (int i = 0; i < n; i++) if (s.charAt(i) >= 0x80) return false;
+            return true;
+        }
+
+        private void putVarint(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                body[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            body[size++] = (byte) v;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > body.length) body = Arrays.copyOf(body, Math.max(size + extra, body.length * 2));
+        }
+
+        @Override
+        public long getCount() { return count; }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
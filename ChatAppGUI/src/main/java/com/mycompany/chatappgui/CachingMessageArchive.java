@@ -0,0 +1,73 @@
+package com.mycompany.chatappgui;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link MessageArchive} decorator that remembers ID and recipient lookups in {@link LookupCache}s,
+ * so popular recipients are answered from memory instead of the archive's file. Messages only
+ * leave the archive, never join it, so the one thing that changes an answer is a delete: it drops
+ * the cached lookups for the removed messages' IDs and recipients and leaves the rest alone.
+ */
+public class CachingMessageArchive implements MessageArchive {
+
+    private final MessageArchive archive;
+    private final LookupCache<String, Message> byId;
+    private final LookupCache<String, List<Message>> byRecipient;
+
+    /** {@code maxEntries} each for ID and recipient lookups; {@code ttlMillis} 0 = no expiry. */
+    public CachingMessageArchive(MessageArchive archive, int maxEntries, long ttlMillis) {
+        this.archive = archive;
+        this.byId = new LookupCache<>(maxEntries, ttlMillis);
+        this.byRecipient = new LookupCache<>(maxEntries, ttlMillis);
+    }
+
+    public MessageArchive getArchive() { return archive; }
+    public LookupCache<String, Message> getIdCache() { return byId; }
+    public LookupCache<String, List<Message>> getRecipientCache() { return byRecipient; }
+
+    @Override
+    public Message searchByMessageID(String id) {
+        return byId.get(id, archive::searchByMessageID);
+    }
+
+    /** The cached list is shared between callers, so it is read-only. */
+    @Override
+    public List<Message> searchMessagesByRecipient(String recipient) {
+        return byRecipient.get(recipient, r -> Collections.unmodifiableList(archive.searchMessagesByRecipient(r)));
+    }
+
+    @Override
+    public Message getLongestMessage() {
+        return archive.getLongestMessage();
+    }
+
+    @Override
+    public List<Message> removeByHash(String hash) {
+        List<Message> removed = archive.removeByHash(hash);
+        for (Message m : removed) invalidate(m);
+        return removed;
+    }
+
+    /** Forget the lookups the message answers (its ID and its recipient). */
+    public void invalidate(Message m) {
+        if (m.getMessageID() != null) byId.invalidate(m.getMessageID());
+        if (m.getRecipient() != null) byRecipient.invalidate(m.getRecipient());
+    }
+
+    @Override
+    public long size() {
+        return archive.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        archive.close();
+    }
+
+    /** One line of hit/miss/eviction counts per cache. */
+    public String statistics() {
+        return "id lookups: " + byId + "\nrecipient lookups: " + byRecipient;
+    }
+}
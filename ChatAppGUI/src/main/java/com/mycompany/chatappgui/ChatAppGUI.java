@@ -1,32 +1,63 @@
 package com.mycompany.chatappgui;
 
 import javax.swing.*;
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.io.File;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Option A - Menu-driven popup (JOptionPane).
  * Follows original flow: register -> login -> operations (send/store/disregard/view/search/delete/report)
+ * All work goes through {@link ChatService}; the EDT only shows dialogs and waits behind a
+ * progress dialog, so it keeps painting while messages load, save or are searched.
  */
 public class ChatAppGUI {
 
-    private final Login login = new Login();
-    private final MessageManager manager = new MessageManager();
+    private ChatService service;
     private User currentUser = null;
 
     public static void main(String[] args) {
+        // operation metrics: always visible over JMX; -Dchatapp.metrics.file=metrics.json also dumps them
+        Metrics.registerMBeans();
+        String dump = System.getProperty("chatapp.metrics.file");
+        if (dump != null) Metrics.startReporter(new File(dump), Long.getLong("chatapp.metrics.seconds", 60), TimeUnit.SECONDS);
         SwingUtilities.invokeLater(() -> new ChatAppGUI().start());
     }
 
     public void start() {
+        CompletableFuture<ChatService> opening;
+        try {
+            opening = ChatService.open(StorageConfig.fromSystemProperties());
+        } catch (IllegalArgumentException e) { // e.g. an unknown -Dchatapp.storage.format
+            opening = CompletableFuture.failedFuture(e);
+        }
+        try {
+            service = await(opening, "Starting...");
+        } catch (TaskFailed e) {
+            return; // already reported; nothing was opened
+        }
+
         // 1) Registration / Login loop
         while (currentUser == null) {
             String[] options = {"Register", "Login", "Exit"};
             int choice = JOptionPane.showOptionDialog(null, "Choose:", "ChatApp",
                     JOptionPane.DEFAULT_OPTION, JOptionPane.PLAIN_MESSAGE, null, options, options[0]);
 
-            if (choice == 0) doRegister();
-            else if (choice == 1) doLogin();
-            else return;
+            try {
+                if (choice == 0) doRegister();
+                else if (choice == 1) doLogin();
+                else {
+                    close();
+                    return;
+                }
+            } catch (TaskFailed e) {
+                // already reported; back to the menu
+            }
         }
 
         // 2) Main menu loop (Option A)
@@ -45,7 +76,8 @@ public class ChatAppGUI {
                     "10. Search messages by recipient\n" +
                     "11. Delete a message by hash\n" +
                     "12. Display full sent messages report\n" +
-                    "13. Logout / Exit";
+                    "13. Logout / Exit\n" +
+                    "14. Search message text";
 
             String input = JOptionPane.showInputDialog(null, menu, "Select option (enter number)", JOptionPane.PLAIN_MESSAGE);
             if (input == null) break;
@@ -57,26 +89,40 @@ public class ChatAppGUI {
                 continue;
             }
 
-            switch (option) {
-                case 1 -> doSendMessage();
-                case 2 -> doStoreMessage();
-                case 3 -> doDisregardMessage();
-                case 4 -> JOptionPane.showMessageDialog(null, manager.generateSentMessagesReport(), "Sent Messages", JOptionPane.INFORMATION_MESSAGE);
-                case 5 -> showMessageList(manager.getStoredMessages(), "Stored Messages");
-                case 6 -> showMessageList(manager.getDisregardedMessages(), "Disregarded Messages");
-                case 7 -> JOptionPane.showMessageDialog(null, manager.displaySenderRecipientAllSent(), "Senders & Recipients", JOptionPane.INFORMATION_MESSAGE);
-                case 8 -> {
-                    Message longest = manager.getLongestMessageAcrossAll();
-                    JOptionPane.showMessageDialog(null, longest == null ? "No messages." : longest.displayMessage(), "Longest Message", JOptionPane.INFORMATION_MESSAGE);
+            try {
+                switch (option) {
+                    case 1 -> doSendMessage();
+                    case 2 -> doStoreMessage();
+                    case 3 -> doDisregardMessage();
+                    case 4 -> JOptionPane.showMessageDialog(null, await(service.generateSentMessagesReport(), "Building report..."), "Sent Messages", JOptionPane.INFORMATION_MESSAGE);
+                    case 5 -> showMessageList(await(service.whenStoredLoaded(), "Loading stored messages..."), "Stored Messages");
+                    case 6 -> showMessageList(service.getDisregardedMessages(), "Disregarded Messages");
+                    case 7 -> JOptionPane.showMessageDialog(null, await(service.displaySenderRecipientAllSent(), "Building report..."), "Senders & Recipients", JOptionPane.INFORMATION_MESSAGE);
+                    case 8 -> {
+                        Message longest = await(service.getLongestMessageAcrossAll(), "Searching...");
+                        JOptionPane.showMessageDialog(null, longest == null ? "No messages." : longest.displayMessage(), "Longest Message", JOptionPane.INFORMATION_MESSAGE);
+                    }
+                    case 9 -> doSearchByMessageID();
+                    case 10 -> doSearchByRecipient();
+                    case 11 -> doDeleteByHash();
+                    case 12 -> JOptionPane.showMessageDialog(null, await(service.generateSentMessagesReport(), "Building report..."), "Full Report", JOptionPane.INFORMATION_MESSAGE);
+                    case 13 -> { running = false; JOptionPane.showMessageDialog(null, "Goodbye!"); }
+                    case 14 -> doSearchText();
+                    default -> JOptionPane.showMessageDialog(null, "Choose a valid option.");
                 }
-                case 9 -> doSearchByMessageID();
-                case 10 -> doSearchByRecipient();
-                case 11 -> doDeleteByHash();
-                case 12 -> JOptionPane.showMessageDialog(null, manager.generateSentMessagesReport(), "Full Report", JOptionPane.INFORMATION_MESSAGE);
-                case 13 -> { running = false; JOptionPane.showMessageDialog(null, "Goodbye!"); }
-                default -> JOptionPane.showMessageDialog(null, "Choose a valid option.");
+            } catch (TaskFailed e) {
+                // already reported; back to the menu
             }
         }
+        close();
+    }
+
+    private void close() {
+        try {
+            await(service.closeAsync(), "Saving...");
+        } catch (TaskFailed e) {
+            // already reported; nothing more to save
+        }
     }
 
     private void doRegister() {
@@ -99,7 +145,7 @@ public class ChatAppGUI {
             quota = 5;
         }
 
-        String res = login.registerUser(first, last, username, password, cell, quota);
+        String res = await(service.registerUser(first, last, username, password, cell, quota), "Registering...");
         JOptionPane.showMessageDialog(null, res);
     }
 
@@ -109,26 +155,70 @@ public class ChatAppGUI {
         String password = JOptionPane.showInputDialog("Login - Enter password:");
         if (password == null) return;
 
-        boolean ok = login.loginUser(username, password);
-        JOptionPane.showMessageDialog(null, login.returnLoginStatus());
-        if (ok) currentUser = login.getLoggedInUser();
+        // password hashing is slow by design: verify off the EDT
+        boolean ok = await(service.loginUser(username, password), "Checking credentials...");
+        JOptionPane.showMessageDialog(null, service.returnLoginStatus());
+        if (ok) currentUser = service.getLoggedInUser();
+    }
+
+    /** Background work that failed; {@link #await} has already shown the error. */
+    private static final class TaskFailed extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        TaskFailed(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Wait for background work behind a modal progress dialog. The modal loop keeps dispatching
+     * events, so the EDT stays responsive; tasks that finish at once never show the dialog.
+     * A failed task is shown in an error dialog and then thrown as {@link TaskFailed}, which the
+     * menu loops catch so one bad operation does not end the app.
+     */
+    private <T> T await(CompletableFuture<T> task, String message) {
+        if (!task.isDone()) {
+            JProgressBar bar = new JProgressBar();
+            bar.setIndeterminate(true);
+            JOptionPane pane = new JOptionPane(new Object[]{message, bar}, JOptionPane.PLAIN_MESSAGE,
+                    JOptionPane.DEFAULT_OPTION, null, new Object[]{}, null);
+            JDialog dialog = pane.createDialog("Please wait");
+            dialog.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+            task.whenComplete((r, e) -> SwingUtilities.invokeLater(dialog::dispose));
+            dialog.setVisible(true);
+        }
+        try {
+            return task.join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            String reason = cause.getMessage() == null ? cause.toString() : cause.getMessage();
+            JOptionPane.showMessageDialog(null, "Failed while " + message.replace("...", "").toLowerCase() + ":\n" + reason, "Error", JOptionPane.ERROR_MESSAGE);
+            throw new TaskFailed(cause);
+        }
     }
 
     private void doSendMessage() {
         if (currentUser == null) { JOptionPane.showMessageDialog(null, "Not logged in."); return; }
-        if (currentUser.getMessageQuota() <= 0) { JOptionPane.showMessageDialog(null, "You have no messages left to send."); return; }
+        // hold one send up front so another sender cannot take the last one while the dialogs are open
+        try (Quota.Reservation sending = currentUser.reserveSends(1)) {
+            if (sending.getGranted() == 0) {
+                JOptionPane.showMessageDialog(null, currentUser.isRateLimited()
+                        ? "You are sending too fast; try again shortly." : "You have no messages left to send.");
+                return;
+            }
 
-        String recipient = JOptionPane.showInputDialog("Enter recipient (with +countrycode):");
-        if (recipient == null) return;
-        String payload = JOptionPane.showInputDialog("Enter message (max 250 chars):");
-        if (payload == null) return;
-        if (payload.length() > 250) {
-            JOptionPane.showMessageDialog(null, "Message exceeds 250 characters. Use store instead.");
-            return;
+            String recipient = JOptionPane.showInputDialog("Enter recipient (with +countrycode):");
+            if (recipient == null) return;
+            String payload = JOptionPane.showInputDialog("Enter message (max 250 chars):");
+            if (payload == null) return;
+            if (payload.length() > Message.MAX_SEND_LENGTH) {
+                JOptionPane.showMessageDialog(null, "Message exceeds 250 characters. Use store instead.");
+                return;
+            }
+            Message msg = new Message(recipient, payload);
+            await(service.sendMessage(msg), "Sending...");
+            sending.commit();
         }
-        Message msg = new Message(recipient, payload);
-        manager.sendMessage(msg);
-        currentUser.decrementQuota();
         JOptionPane.showMessageDialog(null, "Message sent. Messages remaining: " + currentUser.getMessageQuota());
     }
 
@@ -138,7 +228,7 @@ public class ChatAppGUI {
         String payload = JOptionPane.showInputDialog("Enter message (this will be stored):");
         if (payload == null) return;
         Message msg = new Message(recipient, payload);
-        manager.storeMessage(msg);
+        await(service.storeMessage(msg), "Storing...");
         JOptionPane.showMessageDialog(null, "Message stored to JSON.");
     }
 
@@ -148,36 +238,63 @@ public class ChatAppGUI {
         String payload = JOptionPane.showInputDialog("Enter message (this will be disregarded):");
         if (payload == null) return;
         Message msg = new Message(recipient, payload);
-        manager.disregardMessage(msg);
+        await(service.disregardMessage(msg), "Saving...");
         JOptionPane.showMessageDialog(null, "Message disregarded.");
     }
 
+    // Table over the list: only visible rows are rendered, pages load off the EDT (see MessageTableModel)
     private void showMessageList(List<Message> list, String title) {
         if (list.isEmpty()) { JOptionPane.showMessageDialog(null, "No " + title.toLowerCase() + "."); return; }
-        StringBuilder sb = new StringBuilder();
-        for (Message m : list) sb.append(m.displayMessage()).append("\n-----------------\n");
-        JOptionPane.showMessageDialog(null, sb.toString(), title, JOptionPane.INFORMATION_MESSAGE);
+        MessageTableModel model = new MessageTableModel(list);
+        JTable table = new JTable(model);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.getColumnModel().getColumn(3).setPreferredWidth(400);
+
+        JTextArea details = new JTextArea(5, 60);
+        details.setEditable(false);
+        details.setLineWrap(true);
+        details.setWrapStyleWord(true);
+        table.getSelectionModel().addListSelectionListener(e -> {
+            int row = table.getSelectedRow();
+            if (!e.getValueIsAdjusting() && row >= 0) details.setText(model.getMessage(row).displayMessage());
+        });
+
+        JScrollPane rows = new JScrollPane(table);
+        rows.setPreferredSize(new Dimension(800, 400));
+        JPanel panel = new JPanel(new BorderLayout(0, 6));
+        panel.add(new JLabel(model.getRowCount() + " messages"), BorderLayout.NORTH);
+        panel.add(rows, BorderLayout.CENTER);
+        panel.add(new JScrollPane(details), BorderLayout.SOUTH);
+        JOptionPane.showMessageDialog(null, panel, title, JOptionPane.PLAIN_MESSAGE);
     }
 
     private void doSearchByMessageID() {
         String id = JOptionPane.showInputDialog("Enter message ID to search:");
         if (id == null) return;
-        Message m = manager.searchByMessageID(id);
+        Message m = await(service.searchByMessageID(id), "Searching...");
         JOptionPane.showMessageDialog(null, m == null ? "Message not found." : m.displayMessage());
     }
 
     private void doSearchByRecipient() {
         String recipient = JOptionPane.showInputDialog("Enter recipient to search:");
         if (recipient == null) return;
-        List<Message> found = manager.searchMessagesByRecipient(recipient);
+        List<Message> found = await(service.searchMessagesByRecipient(recipient), "Searching...");
         if (found.isEmpty()) JOptionPane.showMessageDialog(null, "No messages found for " + recipient);
         else showMessageList(found, "Messages for " + recipient);
     }
 
+    private void doSearchText() {
+        String query = JOptionPane.showInputDialog("Enter words to search for (end a word with * to match by prefix):");
+        if (query == null || query.isBlank()) return;
+        List<Message> found = await(service.searchPayload(query), "Searching...");
+        if (found.isEmpty()) JOptionPane.showMessageDialog(null, "No messages contain \"" + query + "\"");
+        else showMessageList(found, "Messages matching \"" + query + "\"");
+    }
+
     private void doDeleteByHash() {
         String hash = JOptionPane.showInputDialog("Enter message hash to delete:");
         if (hash == null) return;
-        boolean ok = manager.deleteMessageByHash(hash);
+        boolean ok = await(service.deleteMessageByHash(hash), "Deleting...");
         JOptionPane.showMessageDialog(null, ok ? "Message deleted." : "Message hash not found.");
     }
 }
@@ -0,0 +1,53 @@
+package com.mycompany.chatappgui;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Blocking {@link ChatServer} client: one request in flight at a time.
+ */
+public class ChatClient implements AutoCloseable {
+
+    private final SocketChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocate(4);
+    private int nextId;
+
+    public ChatClient(InetSocketAddress address) throws IOException {
+        this.channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    }
+
+    /**
+     * Send one request (see the operation codes in {@link ChatProtocol}) and wait for its response.
+     */
+    public synchronized ChatProtocol.Frame call(byte operation, String... fields) throws IOException {
+        int id = ++nextId;
+        ByteBuffer request = ChatProtocol.encode(operation, id, fields);
+        while (request.hasRemaining()) channel.write(request);
+
+        header.clear();
+        readFully(header);
+        int length = header.getInt(0);
+        if (length < 9 || length > ChatProtocol.MAX_FRAME) throw new IOException("Bad frame length " + length);
+        ByteBuffer body = ByteBuffer.allocate(length);
+        readFully(body);
+        ChatProtocol.Frame response = ChatProtocol.decode(body.flip());
+        if (response.getId() != id) throw new IOException("Response " + response.getId() + " does not match request " + id);
+        return response;
+    }
+
+    private void readFully(ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf) < 0) throw new EOFException("Server closed the connection");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
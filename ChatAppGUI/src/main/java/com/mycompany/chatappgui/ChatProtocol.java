@@ -0,0 +1,136 @@
+package com.mycompany.chatappgui;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wire format shared by {@link ChatServer} and its clients. Every message is one frame:
+ * <pre>
+ *   int length   (of what follows)
+ *   byte code    (request operation, or response status)
+ *   int id       (chosen by the client, echoed in the response)
+ *   int count    then count fields, each int byteLength (-1 = null) + UTF-8 bytes
+ * </pre>
+ * All ints are big-endian. Responses carry OK plus the operation's result fields, or ERROR plus
+ * a message. Messages in results are flattened as recipient, payload, messageID, messageHash.
+ */
+public final class ChatProtocol {
+
+    /** Largest frame body accepted either way. */
+    public static final int MAX_FRAME = 1 << 20;
+
+    // requests
+    public static final byte REGISTER = 1;          // firstName, lastName, username, password, cellPhone, quota
+    public static final byte LOGIN = 2;             // username, password
+    public static final byte SEND = 3;              // recipient, payload -> messageID, messageHash
+    public static final byte STORE = 4;             // recipient, payload -> messageID, messageHash
+    public static final byte SEARCH_ID = 5;         // messageID -> message (or nothing)
+    public static final byte SEARCH_RECIPIENT = 6;  // recipient -> messages
+    public static final byte SEARCH_TEXT = 7;       // query -> messages, best first
+    public static final byte DELETE = 8;            // messageHash -> "true" / "false"
+    public static final byte RECEIVE = 9;           // [max] -> messages queued for the caller's number
+
+    // responses
+    public static final byte OK = 0;
+    public static final byte ERROR = -1;
+
+    private ChatProtocol() {}
+
+    /** One decoded frame. */
+    public static final class Frame {
+        private final byte code;
+        private final int id;
+        private final String[] fields;
+
+        public Frame(byte code, int id, String... fields) {
+            this.code = code;
+            this.id = id;
+            this.fields = fields;
+        }
+
+        public byte getCode() { return code; }
+        public int getId() { return id; }
+        public int getFieldCount() { return fields.length; }
+
+        /** Field i, or null if the frame has fewer fields. */
+        public String field(int i) { return i < fields.length ? fields[i] : null; }
+
+        public boolean isOk() { return code == OK; }
+
+        /** Result fields read back as messages (groups of four). */
+        public List<Message> messages() {
+            List<Message> result = new ArrayList<>(fields.length / 4);
+            for (int i = 0; i + 3 < fields.length; i += 4) {
+                Message m = new Message();
+                m.setRecipient(fields[i]);
+                m.setPayload(fields[i + 1]);
+                m.setMessageID(fields[i + 2]);
+                m.setMessageHash(fields[i + 3]);
+                result.add(m);
+            }
+            return result;
+        }
+    }
+
+    /** Complete frame (length prefix included), ready to write. */
+    public static ByteBuffer encode(byte code, int id, String... fields) {
+        byte[][] bytes = new byte[fields.length][];
+        int length = 1 + 4 + 4;
+        for (int i = 0; i < fields.length; i++) {
+            bytes[i] = fields[i] == null ? null : fields[i].getBytes(StandardCharsets.UTF_8);
+            length += 4 + (bytes[i] == null ? 0 : bytes[i].length);
+        }
+        if (length > MAX_FRAME) throw new IllegalArgumentException("Frame too large: " + length + " bytes");
+        ByteBuffer buf = ByteBuffer.allocate(4 + length);
+        buf.putInt(length).put(code).putInt(id).putInt(fields.length);
+        for (byte[] b : bytes) {
+            if (b == null) {
+                buf.putInt(-1);
+            } else {
+                buf.putInt(b.length).put(b);
+            }
+        }
+        return buf.flip();
+    }
+
+    /** Flatten messages into result fields (see {@link Frame#messages()}). */
+    public static String[] fields(List<Message> messages) {
+        String[] f = new String[messages.size() * 4];
+        int i = 0;
+        for (Message m : messages) {
+            f[i++] = m.getRecipient();
+            f[i++] = m.getPayload();
+            f[i++] = m.getMessageID();
+            f[i++] = m.getMessageHash();
+        }
+        return f;
+    }
+
+    /**
+     * Decode one frame body (the bytes after the length prefix).
+     */
+    public static Frame decode(ByteBuffer body) throws IOException {
+        try {
+            byte code = body.get();
+            int id = body.getInt();
+            int count = body.getInt();
+            if (count < 0 || count > body.remaining() / 4) throw new IOException("Bad field count " + count);
+            String[] fields = new String[count];
+            for (int i = 0; i < count; i++) {
+                int n = body.getInt();
+                if (n < -1 || n > body.remaining()) throw new IOException("Bad field length " + n);
+                if (n >= 0) {
+                    fields[i] = new String(body.array(), body.arrayOffset() + body.position(), n, StandardCharsets.UTF_8);
+                    body.position(body.position() + n);
+                }
+            }
+            if (body.hasRemaining()) throw new IOException("Trailing bytes in frame");
+            return new Frame(code, id, fields);
+        } catch (java.nio.BufferUnderflowException e) {
+            throw new IOException("Truncated frame", e);
+        }
+    }
+}
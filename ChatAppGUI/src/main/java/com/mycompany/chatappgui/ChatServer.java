@@ -0,0 +1,464 @@
+package com.mycompany.chatappgui;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless TCP front for {@link Login} and {@link MessageManager}, speaking {@link ChatProtocol}.
+ * One selector thread accepts connections, reads frames and writes responses; requests run on a
+ * worker pool, one at a time per connection and in arrival order, so a session's login always
+ * happens before its sends. Each connection has its own logged-in {@link User}, and sends are
+ * charged against that user's quota. Sessions read messages sent to their user's cell phone number
+ * from its {@link Mailbox}.
+ * <p>
+ * Every message operation needs a logged-in session and only reaches that user's messages: the
+ * ones addressed to their cell phone number and the ones they sent or stored through this server.
+ * Only the user who sent or stored a message may delete it. Authorship is kept in memory, so
+ * messages from before a restart are reachable through their recipient only.
+ * <p>
+ * A connection stops being read while it has {@link #MAX_IN_FLIGHT} requests unanswered or
+ * {@link #MAX_QUEUED_OUTPUT} bytes of responses not yet written, so a client that pipelines
+ * faster than it reads waits in its own socket buffers instead of growing the server's queues.
+ */
+public class ChatServer implements AutoCloseable {
+
+    static final int MAX_RECIPIENT_RESULTS = 1000;
+    static final int DEFAULT_RECEIVE_BATCH = 100;
+    static final int MAX_TEXT_RESULTS = 50;
+    // per connection: requests received but not answered, and response bytes not yet written
+    static final int MAX_IN_FLIGHT = 32;
+    static final int MAX_QUEUED_OUTPUT = 1 << 20;
+
+    private final Login login;
+    private final MessageManager manager;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final ExecutorService workers;
+    private final Thread loop;
+    private final Queue<Session> flushQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private final AtomicInteger sessions = new AtomicInteger();
+    // username of whoever sent or stored each message through this server, by message hash
+    private final ConcurrentHashMap<String, String> authors = new ConcurrentHashMap<>();
+    private final LongAdder readPauses = new LongAdder();
+    // shutdown in stages: stop reading, let the workers finish, flush, then close
+    private volatile boolean stopping;
+    private final CountDownLatch readsStopped = new CountDownLatch(1);
+    private volatile boolean drained;
+    private volatile boolean closed;
+
+    public ChatServer(Login login, MessageManager manager, InetSocketAddress address) throws IOException {
+        this(login, manager, address, Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public ChatServer(Login login, MessageManager manager, InetSocketAddress address, int workerThreads) throws IOException {
+        this.login = login;
+        this.manager = manager;
+        manager.enableMailboxes(); // sessions read their messages from them
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(address, 4096);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        AtomicInteger n = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerThreads, r -> {
+            Thread t = new Thread(r, "chat-server-worker-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.loop = new Thread(this::run, "chat-server");
+        loop.setDaemon(true);
+        loop.start();
+    }
+
+    /** Port actually bound (useful when started on port 0). */
+    public int getPort() { return server.socket().getLocalPort(); }
+
+    /** Number of open connections. */
+    public int getSessionCount() { return sessions.get(); }
+
+    /** Times a connection stopped being read because it hit its in-flight or output limit. */
+    long getReadPauses() { return readPauses.sum(); }
+
+    // ---------- Selector loop ----------
+
+    private void run() {
+        try {
+            while (!closed) {
+                selector.select();
+                wakeupPending.set(false);
+                if (stopping && readsStopped.getCount() > 0) stopReading();
+                for (Session s; (s = flushQueue.poll()) != null; ) s.flush();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Session s = (Session) key.attachment();
+                    if (key.isReadable()) s.read();
+                    if (key.isValid() && key.isWritable()) s.flush();
+                }
+                if (drained && allFlushed()) break;
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (!closed) e.printStackTrace();
+        } finally {
+            readsStopped.countDown();
+        }
+    }
+
+    // selector thread: no new connections or requests once close() has started
+    private void stopReading() throws IOException {
+        server.close();
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Session s) s.updateInterest();
+        }
+        readsStopped.countDown();
+    }
+
+    private boolean allFlushed() {
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid() && key.attachment() instanceof Session s && !s.out.isEmpty()) return false;
+        }
+        return true;
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Session s = new Session(channel);
+            s.key = channel.register(selector, SelectionKey.OP_READ, s);
+            sessions.incrementAndGet();
+        }
+    }
+
+    private void wakeup() {
+        if (wakeupPending.compareAndSet(false, true)) selector.wakeup();
+    }
+
+    /**
+     * One client connection. The selector thread owns the channel, the input buffer and the
+     * interest set; workers hand responses back through {@code out} and the flush queue.
+     */
+    private final class Session {
+        final SocketChannel channel;
+        SelectionKey key;
+        ByteBuffer in = ByteBuffer.allocate(512);
+        final Queue<ByteBuffer> out = new ConcurrentLinkedQueue<>();
+        final ArrayDeque<ChatProtocol.Frame> pending = new ArrayDeque<>(); // guarded by this
+        boolean busy; // guarded by this
+        final AtomicInteger inFlight = new AtomicInteger(); // submitted, response not yet queued
+        final AtomicLong queuedBytes = new AtomicLong(); // queued in out, not yet written
+        volatile User user;
+
+        Session(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        boolean overloaded() {
+            return inFlight.get() >= MAX_IN_FLIGHT || queuedBytes.get() >= MAX_QUEUED_OUTPUT;
+        }
+
+        void read() {
+            if (stopping) return;
+            try {
+                int n = channel.read(in);
+                if (n < 0) {
+                    close();
+                    return;
+                }
+                parse();
+                updateInterest();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        // hand complete frames in the input buffer to the workers; frames past the limit wait there
+        void parse() throws IOException {
+            while (in.position() >= 4 && !stopping && !overloaded()) {
+                int length = in.getInt(0);
+                if (length < 9 || length > ChatProtocol.MAX_FRAME) throw new IOException("Bad frame length " + length);
+                if (in.position() < 4 + length) {
+                    if (in.capacity() < 4 + length) {
+                        ByteBuffer bigger = ByteBuffer.allocate(Math.max(4 + length, in.capacity() * 2));
+                        in = bigger.put(in.flip());
+                    }
+                    break;
+                }
+                ByteBuffer body = ByteBuffer.wrap(in.array(), 4, length);
+                submit(ChatProtocol.decode(body.slice()));
+                in.flip().position(4 + length);
+                in.compact();
+            }
+        }
+
+        // read while under the limits and not shutting down; write while responses are queued
+        void updateInterest() {
+            if (!key.isValid()) return;
+            boolean reading = !stopping && !overloaded();
+            int ops = (reading ? SelectionKey.OP_READ : 0) | (out.isEmpty() ? 0 : SelectionKey.OP_WRITE);
+            int was = key.interestOps();
+            if (was == ops) return;
+            if (!reading && (was & SelectionKey.OP_READ) != 0 && !stopping) readPauses.increment();
+            key.interestOps(ops);
+        }
+
+        void submit(ChatProtocol.Frame request) {
+            inFlight.incrementAndGet();
+            synchronized (this) {
+                pending.add(request);
+                if (busy) return;
+                busy = true;
+            }
+            workers.execute(this::drain);
+        }
+
+        // worker side: answer queued requests in order until none are left
+        void drain() {
+            while (true) {
+                ChatProtocol.Frame request;
+                synchronized (this) {
+                    request = pending.poll();
+                    if (request == null) {
+                        busy = false;
+                        return;
+                    }
+                }
+                ByteBuffer response = handle(this, request);
+                queuedBytes.addAndGet(response.remaining());
+                out.add(response);
+                // the selector re-reads a paused session once it sees this flush
+                inFlight.decrementAndGet();
+                flushQueue.add(this);
+                wakeup();
+            }
+        }
+
+        // selector thread only
+        void flush() {
+            if (!key.isValid()) return;
+            try {
+                for (ByteBuffer b; (b = out.peek()) != null; ) {
+                    queuedBytes.addAndGet(-channel.write(b));
+                    if (b.hasRemaining()) break;
+                    out.poll();
+                }
+                parse(); // frames held back while the session was over its limits
+                updateInterest();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void close() {
+            if (!key.isValid()) return;
+            key.cancel();
+            sessions.decrementAndGet();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // already gone
+            }
+        }
+    }
+
+    // ---------- Requests ----------
+
+    private ByteBuffer handle(Session session, ChatProtocol.Frame r) {
+        int id = r.getId();
+        try {
+            switch (r.getCode()) {
+                case ChatProtocol.REGISTER -> {
+                    int quota = Integer.parseInt(r.field(5).trim());
+                    ValidationError error = login.register(r.field(0), r.field(1), r.field(2), r.field(3), r.field(4), quota);
+                    return error == null ? ok(id, "User successfully registered.") : error(id, error.getMessage());
+                }
+                case ChatProtocol.LOGIN -> {
+                    User u = login.authenticate(r.field(0), r.field(1));
+                    session.user = u;
+                    if (u == null) return error(id, "Username or password incorrect, please try again.");
+                    return ok(id, String.format("Welcome %s ,%s it is great to see you.", u.getFirstName(), u.getLastName()));
+                }
+                case ChatProtocol.SEND, ChatProtocol.STORE -> {
+                    User u = session.user;
+                    if (u == null) return error(id, "Not logged in.");
+                    Message m = new Message(r.field(0), r.field(1));
+                    if (r.getCode() == ChatProtocol.STORE) {
+                        authors.put(m.getMessageHash(), u.getUsername());
+                        manager.storeMessage(m);
+                    } else {
+                        if (m.getPayload() == null || m.getPayload().length() > Message.MAX_SEND_LENGTH) {
+                            return error(id, "Message exceeds 250 characters. Use store instead.");
+                        }
+                        try (Quota.Reservation sending = u.reserveSends(1)) {
+                            if (sending.getGranted() == 0) {
+                                return error(id, u.isRateLimited() ? "Sending too fast; try again shortly." : "You have no messages left to send.");
+                            }
+                            authors.put(m.getMessageHash(), u.getUsername());
+                            manager.sendMessage(m);
+                            sending.commit();
+                        }
+                    }
+                    return ok(id, m.getMessageID(), m.getMessageHash());
+                }
+                case ChatProtocol.SEARCH_ID -> {
+                    User u = session.user;
+                    if (u == null) return error(id, "Not logged in.");
+                    Message m = manager.searchByMessageID(r.field(0));
+                    return m == null || !canRead(u, m) ? ok(id) : ok(id, ChatProtocol.fields(List.of(m)));
+                }
+                case ChatProtocol.SEARCH_RECIPIENT -> {
+                    User u = session.user;
+                    if (u == null) return error(id, "Not logged in.");
+                    List<Message> found = readable(u, manager.searchMessagesByRecipient(r.field(0)), MAX_RECIPIENT_RESULTS);
+                    return ok(id, ChatProtocol.fields(found));
+                }
+                case ChatProtocol.SEARCH_TEXT -> {
+                    User u = session.user;
+                    if (u == null) return error(id, "Not logged in.");
+                    List<Message> found = readable(u, manager.searchPayload(r.field(0), MAX_RECIPIENT_RESULTS), MAX_TEXT_RESULTS);
+                    return ok(id, ChatProtocol.fields(found));
+                }
+                case ChatProtocol.DELETE -> {
+                    User u = session.user;
+                    if (u == null) return error(id, "Not logged in.");
+                    String hash = r.field(0);
+                    // someone else's message answers exactly like a missing one
+                    if (hash == null || !authors.remove(hash, u.getUsername())) return ok(id, "false");
+                    return ok(id, String.valueOf(manager.deleteMessageByHash(hash)));
+                }
+                case ChatProtocol.RECEIVE -> {
+                    User u = session.user;
+                    if (u == null) return error(id, "Not logged in.");
+                    int max = r.field(0) == null ? DEFAULT_RECEIVE_BATCH : Integer.parseInt(r.field(0).trim());
+                    max = Math.max(0, Math.min(max, MAX_RECIPIENT_RESULTS));
+                    Mailbox box = manager.getMailboxes().get(u.getCellPhone());
+                    if (box == null) return ok(id);
+                    // a mailbox has one reader at a time: sessions sharing a login take turns
+                    synchronized (box) {
+                        return ok(id, ChatProtocol.fields(box.drain(max)));
+                    }
+                }
+                default -> {
+                    return error(id, "Unknown operation " + r.getCode());
+                }
+            }
+        } catch (RuntimeException e) {
+            return error(id, "Request failed: " + e);
+        }
+    }
+
+    private boolean canRead(User u, Message m) {
+        return (m.getRecipient() != null && m.getRecipient().equals(u.getCellPhone()))
+                || u.getUsername().equals(authors.get(m.getMessageHash()));
+    }
+
+    private List<Message> readable(User u, List<Message> found, int max) {
+        List<Message> mine = new ArrayList<>(Math.min(found.size(), max));
+        for (Message m : found) {
+            if (mine.size() == max) break;
+            if (canRead(u, m)) mine.add(m);
+        }
+        return mine;
+    }
+
+    private static ByteBuffer ok(int id, String... fields) {
+        return ChatProtocol.encode(ChatProtocol.OK, id, fields);
+    }
+
+    private static ByteBuffer error(int id, String message) {
+        return ChatProtocol.encode(ChatProtocol.ERROR, id, message);
+    }
+
+    /**
+     * Stop accepting connections and reading requests, let the workers answer the requests already
+     * received, write those responses out, then close every connection. Clients that stop reading
+     * get up to five seconds before their connections are closed anyway. The manager and login are
+     * left open for the owner to close. Closing again does nothing.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        stopping = true;
+        selector.wakeup();
+        boolean interrupted = false;
+        try {
+            readsStopped.await(5, TimeUnit.SECONDS);
+            workers.shutdown();
+            workers.awaitTermination(30, TimeUnit.SECONDS);
+            drained = true;
+            selector.wakeup();
+            loop.join(5000);
+        } catch (InterruptedException e) {
+            interrupted = true;
+            workers.shutdownNow();
+        }
+        closed = true;
+        selector.wakeup();
+        try {
+            loop.join(1000);
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+        for (SelectionKey key : selector.keys()) key.channel().close();
+        selector.close();
+        server.close();
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    // ---------- Entry point ----------
+
+    /**
+     * {@code java ... ChatServer [port]} (default 7070). Storage comes from the usual
+     * -Dchatapp.storage.* properties; -Dchatapp.hash.millis sets the password-hash budget and
+     * -Dchatapp.quota.perMinute / -Dchatapp.quota.burst a per-user send rate.
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+        Metrics.registerMBeans();
+        long budget = Long.getLong("chatapp.hash.millis", Login.DEFAULT_HASH_BUDGET_MILLIS);
+        Login login = new Login(PasswordHasher.withBudget(budget));
+        login.setSendRateLimitFromSystemProperties();
+        MessageManager manager = new MessageManager(StorageConfig.fromSystemProperties());
+        ChatServer server = new ChatServer(login, manager, new InetSocketAddress(port));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            manager.close();
+        }, "chat-server-shutdown"));
+        System.out.println("ChatServer listening on port " + server.getPort());
+        server.loop.join();
+    }
+}
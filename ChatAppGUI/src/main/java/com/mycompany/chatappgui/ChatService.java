@@ -0,0 +1,110 @@
+package com.mycompany.chatappgui;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous front for {@link Login} and {@link MessageManager}, so the GUI never runs file I/O,
+ * searches or report building on the EDT. Every call returns at once with a future completed on
+ * the service's worker threads; both underlying classes are thread-safe, so calls may overlap.
+ */
+public class ChatService implements AutoCloseable {
+
+    private final Login login;
+    private final MessageManager manager;
+    private final ExecutorService workers;
+
+    public ChatService(Login login, MessageManager manager) {
+        this.login = login;
+        this.manager = manager;
+        this.workers = newWorkers();
+    }
+
+    private static ExecutorService newWorkers() {
+        return Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread t = new Thread(r, "chat-service");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Build the service in the background: loading stored messages and calibrating the password
+     * hasher both take a while. With {@link StorageConfig#isLazyLoad()} the service is ready before
+     * the stored messages are; calls that need them wait for the load.
+     */
+    public static CompletableFuture<ChatService> open(StorageConfig config) {
+        return CompletableFuture.supplyAsync(() -> {
+            Login login = new Login();
+            login.setSendRateLimitFromSystemProperties();
+            return new ChatService(login, new MessageManager(config));
+        });
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, workers);
+    }
+
+    private CompletableFuture<Void> run(Runnable task) {
+        return CompletableFuture.runAsync(task, workers);
+    }
+
+    // --- Users ---
+    public CompletableFuture<String> registerUser(String firstName, String lastName, String username, String password, String cellPhone, int messageQuota) {
+        return submit(() -> login.registerUser(firstName, lastName, username, password, cellPhone, messageQuota));
+    }
+
+    public CompletableFuture<Boolean> loginUser(String username, String password) {
+        return login.loginUserAsync(username, password);
+    }
+
+    public String returnLoginStatus() { return login.returnLoginStatus(); }
+    public User getLoggedInUser() { return login.getLoggedInUser(); }
+
+    // --- Messages ---
+    public CompletableFuture<Void> sendMessage(Message m) { return run(() -> manager.sendMessage(m)); }
+    public CompletableFuture<Void> storeMessage(Message m) { return run(() -> manager.storeMessage(m)); }
+    public CompletableFuture<Void> disregardMessage(Message m) { return run(() -> manager.disregardMessage(m)); }
+
+    // views are cheap (no copy); the table renders them lazily
+    public List<Message> getStoredMessages() { return manager.getStoredMessages(); }
+
+    /** The stored messages view once a lazy load has finished (at once otherwise). */
+    public CompletableFuture<List<Message>> whenStoredLoaded() {
+        return manager.whenStoredLoaded().thenApply(v -> manager.getStoredMessages());
+    }
+    public List<Message> getDisregardedMessages() { return manager.getDisregardedMessages(); }
+
+    public CompletableFuture<String> generateSentMessagesReport() { return submit(manager::generateSentMessagesReport); }
+    public CompletableFuture<String> displaySenderRecipientAllSent() { return submit(manager::displaySenderRecipientAllSent); }
+    public CompletableFuture<Message> getLongestMessageAcrossAll() { return submit(manager::getLongestMessageAcrossAll); }
+    public CompletableFuture<Message> searchByMessageID(String id) { return submit(() -> manager.searchByMessageID(id)); }
+    public CompletableFuture<List<Message>> searchMessagesByRecipient(String recipient) { return submit(() -> manager.searchMessagesByRecipient(recipient)); }
+    public CompletableFuture<List<Message>> searchPayload(String query) { return submit(() -> manager.searchPayload(query)); }
+    public CompletableFuture<Boolean> deleteMessageByHash(String hash) { return submit(() -> manager.deleteMessageByHash(hash)); }
+
+    public MessageManager getManager() { return manager; }
+
+    /**
+     * Finish queued work, then flush and close the manager.
+     */
+    @Override
+    public void close() {
+        workers.shutdown();
+        try {
+            workers.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        manager.close();
+    }
+
+    /** Same as {@link #close()} but off the calling thread. */
+    public CompletableFuture<Void> closeAsync() {
+        return CompletableFuture.runAsync(this::close);
+    }
+}
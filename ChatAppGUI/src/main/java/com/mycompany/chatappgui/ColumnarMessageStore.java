@@ -0,0 +1,569 @@
+package com.mycompany.chatappgui;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * In-memory stored-message archive laid out as primitive columns instead of Message objects.
+ * IDs are kept as their numeric sequence and hashes as 64-bit values (the forms {@link MessageIds}
+ * renders), recipients as int codes into a dictionary, and payloads as UTF-8 in shared byte pages.
+ * A message costs a few dozen bytes plus its payload, and Message objects are only built for the
+ * results a query returns.
+ * <p>
+ * IDs and hashes that are not in MessageIds' shape (set by hand, or loaded from old files) are
+ * kept as strings on the side. The ID and hash indexes are chained hash tables over the columns;
+ * recipient chains are kept in insertion order, and a heap ordered by payload length tracks the
+ * longest row. Deletes flag the row; once flagged rows outnumber live ones the columns, dictionary
+ * and payload pages are rebuilt from the live rows.
+ * <p>
+ * Besides serving as an archive, it can hold MessageManager's stored list itself (see
+ * {@link StorageConfig#setColumnarStored}); {@link #snapshot()} is then the stored-message list.
+ */
+public class ColumnarMessageStore implements MessageArchive {
+
+    private static final int PAGE = 1 << 20;
+
+    private static final byte IRREGULAR_ID = 1;
+    private static final byte IRREGULAR_HASH = 2;
+    private static final byte NULL_PAYLOAD = 4;
+    private static final byte DELETED = 8;
+
+    // ---------- Columns (one entry per ordinal) ----------
+    private long[] ids;       // sequence, or keyOf(id) when irregular
+    private long[] hashes;    // hash, or keyOf(hash) when irregular
+    private int[] recipients; // dictionary code, -1 for null
+    private long[] payloads;  // page << 32 | position of the length-prefixed bytes
+    private int[] payloadChars;
+    private byte[] flags;
+    private int count;
+    private int live;
+    private Frame frame;   // the current arrays, as snapshots capture them
+    private Rows snapshot; // the live rows as of the last append/delete, built on demand
+    private boolean closed;
+
+    private Map<Integer, String> irregularIds;
+    private Map<Integer, String> irregularHashes;
+
+    // ---------- Payload arena ----------
+    private byte[][] pages;
+    private int page;
+    private int pageUsed;
+
+    // ---------- Recipient dictionary and chains ----------
+    private Map<String, Integer> recipientCodes;
+    private String[] recipientNames;
+    private int[] recipientFirst;
+    private int[] recipientLast;
+    private int[] recipientNext;
+
+    private KeyIndex idIndex;
+    private KeyIndex hashIndex;
+    private LengthHeap lengths;
+
+    public ColumnarMessageStore() {
+        reset(16);
+    }
+
+    // fresh arrays throughout, so frames captured before keep reading the old ones
+    private void reset(int capacity) {
+        ids = new long[capacity];
+        hashes = new long[capacity];
+        recipients = new int[capacity];
+        payloads = new long[capacity];
+        payloadChars = new int[capacity];
+        flags = new byte[capacity];
+        recipientNext = new int[capacity];
+        count = 0;
+        live = 0;
+        frame = null;
+        snapshot = null;
+        irregularIds = new HashMap<>();
+        irregularHashes = new HashMap<>();
+        pages = new byte[4][];
+        page = -1;
+        pageUsed = 0;
+        recipientCodes = new HashMap<>();
+        recipientNames = new String[16];
+        recipientFirst = new int[16];
+        recipientLast = new int[16];
+        idIndex = new KeyIndex();
+        hashIndex = new KeyIndex();
+        lengths = new LengthHeap();
+    }
+
+    public static ColumnarMessageStore build(Iterable<Message> messages) {
+        ColumnarMessageStore store = new ColumnarMessageStore();
+        store.appendAll(messages);
+        return store;
+    }
+
+    public synchronized void appendAll(Iterable<Message> messages) {
+        for (Message m : messages) append(m);
+    }
+
+    public synchronized void append(Message m) {
+        ensureOpen();
+        if (count == ids.length) grow();
+        int ord = count;
+        byte f = 0;
+
+        long seq = m.sequence();
+        if (seq <= 0) seq = parseId(m.getMessageID());
+        if (seq > 0) {
+            ids[ord] = seq;
+        } else {
+            String id = m.getMessageID();
+            ids[ord] = keyOf(id);
+            irregularIds.put(ord, id);
+            f |= IRREGULAR_ID;
+        }
+
+        String hashText = m.hasNumericHash() ? null : m.getMessageHash();
+        if (m.hasNumericHash()) {
+            hashes[ord] = m.numericHash();
+        } else if (isRegularHash(hashText)) {
+            hashes[ord] = Long.parseUnsignedLong(hashText, 4, 20, 16);
+        } else {
+            hashes[ord] = keyOf(hashText);
+            irregularHashes.put(ord, hashText);
+            f |= IRREGULAR_HASH;
+        }
+
+        String payload = m.getPayload();
+        if (payload == null) {
+            f |= NULL_PAYLOAD;
+        } else {
+            payloads[ord] = writePayload(payload.getBytes(StandardCharsets.UTF_8));
+            payloadChars[ord] = payload.length();
+        }
+        flags[ord] = f;
+
+        int code = recipientCode(m.getRecipient());
+        recipients[ord] = code;
+        recipientNext[ord] = -1;
+        if (code >= 0) {
+            if (recipientFirst[code] < 0) recipientFirst[code] = ord;
+            else recipientNext[recipientLast[code]] = ord;
+            recipientLast[code] = ord;
+        }
+
+        count = ord + 1;
+        idIndex.add(ids, ord);
+        hashIndex.add(hashes, ord);
+        lengths.add(payloadChars, ord);
+        live++;
+        snapshot = null;
+    }
+
+    private void grow() {
+        int n = count * 2;
+        ids = Arrays.copyOf(ids, n);
+        hashes = Arrays.copyOf(hashes, n);
+        recipients = Arrays.copyOf(recipients, n);
+        payloads = Arrays.copyOf(payloads, n);
+        payloadChars = Arrays.copyOf(payloadChars, n);
+        flags = Arrays.copyOf(flags, n);
+        recipientNext = Arrays.copyOf(recipientNext, n);
+        frame = null;
+    }
+
+    private int recipientCode(String recipient) {
+        if (recipient == null) return -1;
+        Integer code = recipientCodes.get(recipient);
+        if (code != null) return code;
+        int c = recipientCodes.size();
+        if (c == recipientNames.length) {
+            recipientNames = Arrays.copyOf(recipientNames, c * 2);
+            recipientFirst = Arrays.copyOf(recipientFirst, c * 2);
+            recipientLast = Arrays.copyOf(recipientLast, c * 2);
+            frame = null;
+        }
+        recipientNames[c] = recipient;
+        recipientFirst[c] = -1;
+        recipientLast[c] = -1;
+        recipientCodes.put(recipient, c);
+        return c;
+    }
+
+    // ---------- Payload arena ----------
+
+    // varint byte length, then the bytes; a payload never straddles two pages
+    private long writePayload(byte[] bytes) {
+        int need = bytes.length + 5;
+        if (page < 0 || pageUsed + need > pages[page].length) {
+            if (++page == pages.length) {
+                pages = Arrays.copyOf(pages, page * 2);
+                frame = null;
+            }
+            pages[page] = new byte[Math.max(PAGE, need)];
+            pageUsed = 0;
+        }
+        byte[] p = pages[page];
+        long at = (long) page << 32 | pageUsed;
+        int pos = pageUsed;
+        int len = bytes.length;
+        while (len >= 0x80) {
+            p[pos++] = (byte) (len | 0x80);
+            len >>>= 7;
+        }
+        p[pos++] = (byte) len;
+        System.arraycopy(bytes, 0, p, pos, bytes.length);
+        pageUsed = pos + bytes.length;
+        return at;
+    }
+
+    // ---------- IDs and hashes ----------
+
+    // sequence behind an ID in formatId's shape ("MSG" + at least five digits, no extra zeros), else -1
+    static long parseId(String id) {
+        if (id == null || id.length() < 8 || id.length() > 21 || !id.startsWith("MSG")) return -1;
+        if (id.length() > 8 && id.charAt(3) == '0') return -1;
+        long v = 0;
+        for (int i = 3; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    // "HASH" + 16 lower-case hex digits, as formatHash renders
+    static boolean isRegularHash(String hash) {
+        if (hash == null || hash.length() != 20 || !hash.startsWith("HASH")) return false;
+        for (int i = 4; i < 20; i++) {
+            char c = hash.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) return false;
+        }
+        return true;
+    }
+
+    private static long keyOf(String s) {
+        return s == null ? 0 : s.hashCode() * 0x9E3779B97F4A7C15L;
+    }
+
+    private boolean idEquals(int ord, String id, long key, boolean regular) {
+        if (ids[ord] != key) return false;
+        boolean irregular = (flags[ord] & IRREGULAR_ID) != 0;
+        return irregular ? id.equals(irregularIds.get(ord)) : regular;
+    }
+
+    private boolean hashEquals(int ord, String hash, long key, boolean regular) {
+        if (hashes[ord] != key) return false;
+        boolean irregular = (flags[ord] & IRREGULAR_HASH) != 0;
+        return irregular ? hash.equals(irregularHashes.get(ord)) : regular;
+    }
+
+    private Frame frame() {
+        if (frame == null) frame = new Frame(this);
+        return frame;
+    }
+
+    private Message materialize(int ord) {
+        return frame().materialize(ord);
+    }
+
+    private boolean isDeleted(int ord) {
+        return (flags[ord] & DELETED) != 0;
+    }
+
+    // drops deleted rows off the top of the length heap
+    private int longest() {
+        int top;
+        while ((top = lengths.peek()) >= 0 && isDeleted(top)) lengths.poll(payloadChars);
+        return top;
+    }
+
+    // rebuild everything from the live rows once deleted ones outnumber them; snapshots already
+    // handed out keep their frame, so they still read the old arrays
+    private void reclaim() {
+        Frame old = frame();
+        byte[] oldFlags = flags;
+        int n = count;
+        reset(Math.max(16, live));
+        for (int i = 0; i < n; i++) if ((oldFlags[i] & DELETED) == 0) append(old.materialize(i));
+    }
+
+    // ---------- MessageArchive ----------
+
+    private void ensureOpen() {
+        if (closed) throw new IllegalStateException("Columnar store is closed");
+    }
+
+    @Override
+    public synchronized Message searchByMessageID(String id) {
+        ensureOpen();
+        if (id == null) return null;
+        long seq = parseId(id);
+        boolean regular = seq > 0;
+        long key = regular ? seq : keyOf(id);
+        int first = -1;
+        // chains run newest first; the last match is the earliest message
+        for (int ord = idIndex.first(key); ord >= 0; ord = idIndex.next(ord)) {
+            if (!isDeleted(ord) && idEquals(ord, id, key, regular)) first = ord;
+        }
+        return first < 0 ? null : materialize(first);
+    }
+
+    @Override
+    public synchronized List<Message> searchMessagesByRecipient(String recipient) {
+        ensureOpen();
+        List<Message> results = new ArrayList<>();
+        Integer code = recipient == null ? null : recipientCodes.get(recipient);
+        if (code == null) return results;
+        for (int ord = recipientFirst[code]; ord >= 0; ord = recipientNext[ord]) {
+            if (!isDeleted(ord)) results.add(materialize(ord));
+        }
+        return results;
+    }
+
+    @Override
+    public synchronized Message getLongestMessage() {
+        ensureOpen();
+        int top = longest();
+        return top < 0 ? null : materialize(top);
+    }
+
+    @Override
+    public synchronized List<Message> removeByHash(String hash) {
+        ensureOpen();
+        List<Message> removed = new ArrayList<>(1);
+        if (hash == null) return removed;
+        boolean regular = isRegularHash(hash);
+        long key = regular ? Long.parseUnsignedLong(hash, 4, 20, 16) : keyOf(hash);
+        for (int ord = hashIndex.first(key); ord >= 0; ord = hashIndex.next(ord)) {
+            if (isDeleted(ord) || !hashEquals(ord, hash, key, regular)) continue;
+            removed.add(0, materialize(ord)); // chains run newest first
+            flags[ord] |= DELETED;
+            live--;
+        }
+        if (removed.isEmpty()) return removed;
+        snapshot = null;
+        if (count - live > live) reclaim();
+        return removed;
+    }
+
+    @Override
+    public synchronized long size() {
+        ensureOpen();
+        return live;
+    }
+
+    /**
+     * The live messages as a read-only list fixed at this moment: later appends and deletes do
+     * not change it. Rows are decoded into Message objects on each {@code get}.
+     */
+    public synchronized List<Message> snapshot() {
+        ensureOpen();
+        if (snapshot == null) {
+            int[] ordinals = null; // null = every row is live, ordinal == index
+            if (live != count) {
+                ordinals = new int[live];
+                int w = 0;
+                for (int i = 0; i < count; i++) if (!isDeleted(i)) ordinals[w++] = i;
+            }
+            snapshot = new Rows(frame(), ordinals, live);
+        }
+        return snapshot;
+    }
+
+    private final class Rows extends AbstractList<Message> implements RandomAccess {
+        private final Frame frame;
+        private final int[] ordinals;
+        private final int size;
+
+        Rows(Frame frame, int[] ordinals, int size) {
+            this.frame = frame;
+            this.ordinals = ordinals;
+            this.size = size;
+        }
+
+        @Override
+        public Message get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            synchronized (ColumnarMessageStore.this) {
+                ensureOpen();
+                return frame.materialize(ordinals == null ? index : ordinals[index]);
+            }
+        }
+
+        @Override
+        public int size() { return size; }
+    }
+
+    /** Number of distinct recipients in the dictionary. */
+    public synchronized int recipientCount() {
+        return recipientCodes.size();
+    }
+
+    /**
+     * Approximate heap held by the columns, indexes, dictionary and payload pages.
+     */
+    public synchronized long footprintBytes() {
+        long bytes = (long) ids.length * (8 + 8 + 4 + 8 + 4 + 1 + 4);
+        bytes += idIndex.footprintBytes() + hashIndex.footprintBytes() + lengths.footprintBytes();
+        for (int p = 0; p <= page; p++) bytes += pages[p].length;
+        bytes += (long) recipientNames.length * 12;
+        for (String r : recipientCodes.keySet()) bytes += 64 + r.length(); // name, boxed code, map node
+        bytes += (irregularIds.size() + irregularHashes.size()) * 96L;
+        return bytes;
+    }
+
+    /** Drops every row and index; the store is unusable afterwards. */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        reset(0);
+    }
+
+    /**
+     * The arrays rows are decoded from, as they were when captured. Appends only fill new ordinals
+     * (growing by copy) and reclaiming starts fresh arrays, so a frame keeps decoding the rows it
+     * had for as long as a snapshot holds it.
+     */
+    private static final class Frame {
+        private final long[] ids;
+        private final long[] hashes;
+        private final int[] recipients;
+        private final long[] payloads;
+        private final byte[] flags;
+        private final Map<Integer, String> irregularIds;
+        private final Map<Integer, String> irregularHashes;
+        private final byte[][] pages;
+        private final String[] recipientNames;
+
+        Frame(ColumnarMessageStore s) {
+            ids = s.ids;
+            hashes = s.hashes;
+            recipients = s.recipients;
+            payloads = s.payloads;
+            flags = s.flags;
+            irregularIds = s.irregularIds;
+            irregularHashes = s.irregularHashes;
+            pages = s.pages;
+            recipientNames = s.recipientNames;
+        }
+
+        Message materialize(int ord) {
+            byte f = flags[ord];
+            int code = recipients[ord];
+            Message m = Message.restore(code < 0 ? null : recipientNames[code], readPayload(ord),
+                    (f & IRREGULAR_ID) != 0 ? 0 : ids[ord], hashes[ord]);
+            if ((f & IRREGULAR_ID) != 0) m.setMessageID(irregularIds.get(ord));
+            if ((f & IRREGULAR_HASH) != 0) m.setMessageHash(irregularHashes.get(ord));
+            return m;
+        }
+
+        private String readPayload(int ord) {
+            if ((flags[ord] & NULL_PAYLOAD) != 0) return null;
+            byte[] p = pages[(int) (payloads[ord] >>> 32)];
+            int pos = (int) payloads[ord];
+            int len = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = p[pos++];
+                len |= (b & 0x7F) << shift;
+                if (b >= 0) break;
+            }
+            return new String(p, pos, len, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Binary max-heap of ordinals by payload length, earliest ordinal first among equals (what a
+     * front-to-back scan would pick). Deleted rows are left in and dropped once they reach the top.
+     */
+    private static final class LengthHeap {
+        private int[] heap = new int[16];
+        private int size;
+
+        // lengths[ordinal] is set
+        void add(int[] lengths, int ordinal) {
+            if (size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(lengths, ordinal, heap[parent])) break;
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = ordinal;
+        }
+
+        int peek() {
+            return size == 0 ? -1 : heap[0];
+        }
+
+        void poll(int[] lengths) {
+            int last = heap[--size];
+            int i = 0;
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && before(lengths, heap[child + 1], heap[child])) child++;
+                if (!before(lengths, heap[child], last)) break;
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+        }
+
+        long footprintBytes() {
+            return (long) heap.length * Integer.BYTES;
+        }
+
+        private static boolean before(int[] lengths, int a, int b) {
+            return lengths[a] > lengths[b] || lengths[a] == lengths[b] && a < b;
+        }
+    }
+
+    /**
+     * Chained hash index over a long column: a slot table of chain heads plus one "next" link per
+     * ordinal, newest first. Keys are read back from the column, so a chain may mix keys that
+     * share a slot and callers compare the key for every ordinal. Links are ordinal + 1.
+     */
+    private static final class KeyIndex {
+        private int[] slots = new int[32];
+        private int[] next = new int[16];
+        private int mask = 31;
+
+        // keys[0..ordinal] are set; ordinals arrive in order
+        void add(long[] keys, int ordinal) {
+            if (ordinal == next.length) next = Arrays.copyOf(next, ordinal * 2);
+            if (ordinal >= slots.length / 2) rehash(keys, ordinal);
+            link(keys[ordinal], ordinal);
+        }
+
+        private void link(long key, int ordinal) {
+            int s = slot(key);
+            next[ordinal] = slots[s];
+            slots[s] = ordinal + 1;
+        }
+
+        private void rehash(long[] keys, int ordinals) {
+            slots = new int[slots.length * 2];
+            mask = slots.length - 1;
+            for (int i = 0; i < ordinals; i++) link(keys[i], i);
+        }
+
+        int first(long key) {
+            return slots[slot(key)] - 1;
+        }
+
+        int next(int ordinal) {
+            return next[ordinal] - 1;
+        }
+
+        long footprintBytes() {
+            return (long) (slots.length + next.length) * Integer.BYTES;
+        }
+
+        private int slot(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.mycompany.chatappgui;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Block-compressed binary codec. Layout:
+ * <pre>
+ *   header : "CHMZ" version(1) varint dictionaryLength, dictionary bytes
+ *   block  : varint rawLength, varint compressedLength, crc32(raw) as 4 bytes big-endian, deflated raw
+ *   raw    : records of recipient code, payload, messageID, messageHash
+ * </pre>
+ * Records are encoded as in {@link BinaryMessageCodec} with its recipient dictionary, which spans
+ * the whole file: each distinct recipient is written once and read back as a single shared String.
+ * Records are grouped into blocks of about {@link #BLOCK_BYTES} and each block is deflated on its
+ * own, primed with a preset dictionary of the words that recur most in the first block's payloads.
+ */
+public class CompressedMessageCodec implements MessageCodec {
+
+    static final byte[] MAGIC = {'C', 'H', 'M', 'Z'};
+    static final int VERSION = 1;
+    static final int BLOCK_BYTES = 64 * 1024;
+    static final int MAX_DICTIONARY_BYTES = 16 * 1024;
+    // sanity bound on a block's declared size (a record can exceed BLOCK_BYTES on its own)
+    private static final int MAX_BLOCK_BYTES = 64 * 1024 * 1024;
+
+    private final int level;
+
+    public CompressedMessageCodec() {
+        this(Deflater.BEST_SPEED);
+    }
+
+    /** {@code level} as for {@link Deflater}: 1 (fastest) to 9 (smallest). */
+    public CompressedMessageCodec(int level) {
+        this.level = level;
+    }
+
+    // ---------- Reading ----------
+
+    @Override
+    public long read(InputStream raw, Consumer<Message> sink) throws IOException {
+        DataInputStream in = new DataInputStream(raw instanceof BufferedInputStream ? raw : new BufferedInputStream(raw));
+        byte[] magic = new byte[MAGIC.length];
+        try {
+            in.readFully(magic);
+        } catch (EOFException empty) {
+            return 0;
+        }
+        if (!Arrays.equals(magic, MAGIC)) throw new IOException("Not a compressed message file");
+        int version = in.readUnsignedByte();
+        if (version != VERSION) throw new IOException("Unsupported compressed message version " + version);
+        byte[] dictionary = new byte[readLength(in, MAX_DICTIONARY_BYTES)];
+        in.readFully(dictionary);
+
+        List<String> recipients = new ArrayList<>();
+        Inflater inflater = new Inflater();
+        CRC32 crc = new CRC32();
+        byte[] packed = new byte[0];
+        byte[] block = new byte[0];
+        long count = 0;
+        try {
+            while (true) {
+                int first = in.read();
+                if (first < 0) break;
+                int rawLength = BinaryMessageCodec.readVarint(in, first);
+                if (rawLength > MAX_BLOCK_BYTES) throw new IOException("Bad block length " + rawLength);
+                int packedLength = readLength(in, MAX_BLOCK_BYTES);
+                int checksum = in.readInt();
+                if (packed.length < packedLength) packed = new byte[packedLength];
+                if (block.length < rawLength) block = new byte[rawLength];
+                in.readFully(packed, 0, packedLength);
+
+                inflater.reset();
+                inflater.setInput(packed, 0, packedLength);
+                int n = inflate(inflater, block, rawLength, dictionary);
+                crc.reset();
+                crc.update(block, 0, n);
+                if (n != rawLength || (int) crc.getValue() != checksum) {
+                    throw new IOException("Corrupt block after record " + count);
+                }
+
+                int[] pos = {0};
+                while (pos[0] < rawLength) {
+                    Message m = new Message();
+                    int code = BinaryMessageCodec.readVarint(block, pos);
+                    if (code == recipients.size()) recipients.add(BinaryMessageCodec.readString(block, pos));
+                    else if (code > recipients.size()) throw new IOException("Bad recipient code in record " + count);
+                    m.setRecipient(recipients.get(code));
+                    m.setPayload(BinaryMessageCodec.readString(block, pos));
+                    m.setMessageID(BinaryMessageCodec.readString(block, pos));
+                    m.setMessageHash(BinaryMessageCodec.readString(block, pos));
+                    sink.accept(m);
+                    count++;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Truncated record " + count, e);
+        } finally {
+            inflater.end();
+        }
+        return count;
+    }
+
+    private static int readLength(InputStream in, int max) throws IOException {
+        int first = in.read();
+        if (first < 0) throw new EOFException("Truncated block header");
+        int n = BinaryMessageCodec.readVarint(in, first);
+        if (n < 0 || n > max) throw new IOException("Bad length " + n);
+        return n;
+    }
+
+    private static int inflate(Inflater inflater, byte[] out, int length, byte[] dictionary) throws IOException {
+        try {
+            int n = 0;
+            while (n < length && !inflater.finished()) {
+                int got = inflater.inflate(out, n, length - n);
+                if (got == 0) {
+                    if (inflater.needsDictionary()) inflater.setDictionary(dictionary);
+                    else if (inflater.needsInput()) break;
+                }
+                n += got;
+            }
+            return n;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block", e);
+        }
+    }
+
+    // ---------- Writing ----------
+
+    @Override
+    public MessageCodec.Writer writer(OutputStream out) throws IOException {
+        return new CompressedWriter(out, level);
+    }
+
+    private static final class CompressedWriter implements MessageCodec.Writer {
+        private final OutputStream out;
+        private final Deflater deflater;
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final CRC32 crc = new CRC32();
+        private final ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        private byte[] block = new byte[BLOCK_BYTES + 512];
+        private int size;
+        private byte[] packed = new byte[BLOCK_BYTES];
+        private byte[] dictionary; // null until the first block is written
+        // payloads of the first block, to pick the dictionary from
+        private final List<String> firstPayloads = new ArrayList<>();
+        private long count;
+
+        CompressedWriter(OutputStream out, int level) {
+            this.out = out;
+            this.deflater = new Deflater(level);
+        }
+
+        @Override
+        public void write(Message m) throws IOException {
+            Integer code = codes.get(m.getRecipient());
+            if (code != null) {
+                putVarint(code);
+            } else {
+                int next = codes.size();
+                codes.put(m.getRecipient(), next);
+                putVarint(next);
+                putString(m.getRecipient());
+            }
+            putString(m.getPayload());
+            putString(m.getMessageID());
+            putString(m.getMessageHash());
+            if (dictionary == null && m.getPayload() != null) firstPayloads.add(m.getPayload());
+            count++;
+            if (size >= BLOCK_BYTES) flushBlock();
+        }
+
+        private void flushBlock() throws IOException {
+            if (dictionary == null) {
+                dictionary = buildDictionary(firstPayloads);
+                firstPayloads.clear();
+                frame.write(MAGIC);
+                frame.write(VERSION);
+                writeVarint(frame, dictionary.length);
+                frame.write(dictionary);
+            }
+            if (size > 0) {
+                deflater.reset();
+                if (dictionary.length > 0) deflater.setDictionary(dictionary);
+                deflater.setInput(block, 0, size);
+                deflater.finish();
+                int packedLength = 0;
+                while (!deflater.finished()) {
+                    if (packedLength == packed.length) packed = Arrays.copyOf(packed, packed.length * 2);
+                    packedLength += deflater.deflate(packed, packedLength, packed.length - packedLength);
+                }
+                crc.reset();
+                crc.update(block, 0, size);
+                writeVarint(frame, size);
+                writeVarint(frame, packedLength);
+                int c = (int) crc.getValue();
+                frame.write(c >>> 24);
+                frame.write(c >>> 16);
+                frame.write(c >>> 8);
+                frame.write(c);
+                frame.write(packed, 0, packedLength);
+                size = 0;
+            }
+            frame.writeTo(out);
+            frame.reset();
+        }
+
+        private void putString(String s) {
+            if (s == null) {
+                putVarint(0);
+                return;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            putVarint(bytes.length + 1);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, block, size, bytes.length);
+            size += bytes.length;
+        }
+
+        private void putVarint(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                block[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            block[size++] = (byte) v;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > block.length) block = Arrays.copyOf(block, Math.max(size + extra, block.length * 2));
+        }
+
+        @Override
+        public long getCount() { return count; }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flushBlock();
+                out.flush();
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+
+    private static void writeVarint(OutputStream out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.write((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.write(v);
+    }
+
+    /**
+     * Preset dictionary from sample payloads: the words seen more than once, scored by the bytes
+     * they would save (count x length), best last since deflate reaches the nearest matches cheapest.
+     */
+    static byte[] buildDictionary(List<String> payloads) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String p : payloads) {
+            for (String word : p.split(" ")) {
+                if (word.length() > 2) counts.merge(word, 1, Integer::sum);
+            }
+        }
+        List<Map.Entry<String, Integer>> words = new ArrayList<>(counts.entrySet());
+        words.removeIf(e -> e.getValue() < 2);
+        words.sort(Comparator.comparingLong((Map.Entry<String, Integer> e) -> (long) e.getValue() * e.getKey().length())
+                .reversed()
+                .thenComparing(Map.Entry::getKey));
+        List<byte[]> chosen = new ArrayList<>();
+        int total = 0;
+        for (Map.Entry<String, Integer> e : words) {
+            byte[] b = (e.getKey() + " ").getBytes(StandardCharsets.UTF_8);
+            if (total + b.length > MAX_DICTIONARY_BYTES) break;
+            chosen.add(b);
+            total += b.length;
+        }
+        byte[] dictionary = new byte[total];
+        int at = total;
+        for (byte[] b : chosen) { // highest score ends up at the end
+            at -= b.length;
+            System.arraycopy(b, 0, dictionary, at, b.length);
+        }
+        return dictionary;
+    }
+}
@@ -0,0 +1,33 @@
+package com.mycompany.chatappgui;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+
+/**
+ * JSON codec (array or NDJSON) on top of {@link MessageJsonStreams}.
+ */
+public class JsonMessageCodec implements MessageCodec {
+
+    private final MessageJsonStreams.Layout layout;
+
+    public JsonMessageCodec(MessageJsonStreams.Layout layout) {
+        this.layout = layout;
+    }
+
+    @Override
+    public long read(InputStream in, Consumer<Message> sink) throws IOException {
+        return MessageJsonStreams.read(in, sink);
+    }
+
+    @Override
+    public Writer writer(OutputStream out) throws IOException {
+        MessageJsonStreams.Writer w = MessageJsonStreams.writer(out, layout);
+        return new Writer() {
+            @Override public void write(Message m) throws IOException { w.write(m); }
+            @Override public long getCount() { return w.getCount(); }
+            @Override public void close() throws IOException { w.close(); }
+        };
+    }
+}
@@ -1,72 +1,158 @@
 package com.mycompany.chatappgui;
 
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
 
 /**
  * Registration and login logic with validation helpers.
+ * Users are kept in a registry keyed by username and passwords are stored as PBKDF2 hashes.
  */
 public class Login {
-    private final List<User> users = new ArrayList<>();
-    private User loggedInUser = null;
+    // default KDF cost: whatever fits in this many milliseconds per hash on this machine
+    public static final long DEFAULT_HASH_BUDGET_MILLIS = 50;
+
+    // password hashing is deliberately slow, so it runs here rather than on the caller (UI) thread
+    private static final ExecutorService VERIFIER = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2), r -> {
+                Thread t = new Thread(r, "login-verifier");
+                t.setDaemon(true);
+                return t;
+            });
+
+    private final Map<String, User> users = new ConcurrentHashMap<>();
+    private final PasswordHasher hasher;
+    private final String dummyHash; // verified against for unknown usernames, so both paths cost the same
+    private volatile User loggedInUser = null;
+    // per-user send rate applied to every user; perMinute 0 = no rate limit
+    private volatile int rateBurst;
+    private volatile double ratePerMinute;
 
     public Login() {
         // no default users by design; tests/register flow create users
+        this(DefaultHasher.INSTANCE);
+    }
+
+    public Login(PasswordHasher hasher) {
+        this.hasher = hasher;
+        this.dummyHash = hasher.hash("not-a-real-password");
     }
 
     public boolean checkUserName(String username) {
-        if (username == null) return false;
-        return username.contains("_") && username.length() <= 5;
+        return UserValidator.isValidUsername(username);
     }
 
     public boolean checkPasswordComplexity(String password) {
-        if (password == null) return false;
         // At least 8 chars, at least one uppercase, one lowercase, one digit, one special char
-        String regex = "^(?=.*[A-Z])(?=.*[a-z])(?=.*\\d)(?=.*[^A-Za-z0-9]).{8,}$";
-        return Pattern.matches(regex, password);
+        return UserValidator.isValidPassword(password);
     }
 
     public boolean checkCellPhoneNumber(String cell) {
-        if (cell == null) return false;
         // +<countrycode><number>, country 1-3 digits, subscriber 4-12 digits
-        return Pattern.matches("^\\+\\d{1,3}\\d{4,12}$", cell);
+        return UserValidator.isValidCellPhone(cell);
     }
 
     /**
      * Register a user. Returns a human-readable message for UI/tests.
      */
     public String registerUser(String firstName, String lastName, String username, String password, String cellPhone, int messageQuota) {
-        if (!checkUserName(username)) {
-            return "Username is not correctly formatted, please ensure that your username contains an underscore and is no more than five characters in length.";
-        }
-        if (!checkPasswordComplexity(password)) {
-            return "Password is not correctly formatted; please ensure that the password contains at least eight characters, an uppercase letter, a lowercase letter, a number, and a special character.";
-        }
-        if (!checkCellPhoneNumber(cellPhone)) {
-            return "Cell phone number incorrectly formatted or does not contain international code.";
-        }
-        // Unique username
-        for (User u : users) if (u.getUsername().equals(username)) return "Username already exists.";
+        ValidationError error = register(firstName, lastName, username, password, cellPhone, messageQuota);
+        return error == null ? "User successfully registered." : error.getMessage();
+    }
+
+    /**
+     * Register a user, returning the first rule broken or null on success.
+     */
+    public ValidationError register(String firstName, String lastName, String username, String password, String cellPhone, int messageQuota) {
+        if (!checkUserName(username)) return ValidationError.USERNAME_FORMAT;
+        if (!checkPasswordComplexity(password)) return ValidationError.PASSWORD_FORMAT;
+        if (!checkCellPhoneNumber(cellPhone)) return ValidationError.CELL_PHONE_FORMAT;
+        // Unique username (cheap check before paying for the hash)
+        if (users.containsKey(username)) return ValidationError.DUPLICATE_USERNAME;
 
-        users.add(new User(firstName, lastName, username, password, cellPhone, messageQuota));
-        return "User successfully registered.";
+        User user = withRateLimit(User.withPasswordHash(firstName, lastName, username, hasher.hash(password), cellPhone, messageQuota));
+        if (users.putIfAbsent(username, user) != null) return ValidationError.DUPLICATE_USERNAME;
+        return null;
+    }
+
+    /**
+     * Bulk import: validates the whole batch first (see {@link UserValidator#validateAll}), then
+     * hashes and registers the valid entries in parallel. Returns one error set per entry, empty
+     * for entries that were registered.
+     */
+    public List<EnumSet<ValidationError>> registerAll(List<Registration> batch) {
+        List<EnumSet<ValidationError>> results = UserValidator.validateAll(batch, users::containsKey);
+        IntStream.range(0, batch.size()).parallel()
+                .filter(i -> results.get(i).isEmpty())
+                .forEach(i -> {
+                    Registration r = batch.get(i);
+                    User user = withRateLimit(User.withPasswordHash(r.getFirstName(), r.getLastName(), r.getUsername(),
+                            hasher.hash(r.getPassword()), r.getCellPhone(), r.getMessageQuota()));
+                    // registered concurrently by someone else since validation
+                    if (users.putIfAbsent(r.getUsername(), user) != null) results.get(i).add(ValidationError.DUPLICATE_USERNAME);
+                });
+        return results;
+    }
+
+    /**
+     * Limit every user, current and future, to {@code perMinute} sends a minute in bursts of up to
+     * {@code burst} (each user has their own bucket); 0 per minute removes the limit.
+     */
+    public void setSendRateLimit(int burst, double perMinute) {
+        rateBurst = burst;
+        ratePerMinute = perMinute;
+        for (User u : users.values()) u.limitRate(burst, perMinute);
+    }
+
+    /** Rate limit from -Dchatapp.quota.perMinute (default none) and -Dchatapp.quota.burst (default one minute's worth). */
+    public void setSendRateLimitFromSystemProperties() {
+        String perMinute = System.getProperty("chatapp.quota.perMinute");
+        if (perMinute == null) return;
+        double rate = Double.parseDouble(perMinute.trim());
+        setSendRateLimit(Integer.getInteger("chatapp.quota.burst", (int) Math.max(1, Math.ceil(rate))), rate);
+    }
+
+    private User withRateLimit(User user) {
+        if (ratePerMinute > 0) user.limitRate(rateBurst, ratePerMinute);
+        return user;
     }
 
     public boolean loginUser(String username, String password) {
-        for (User u : users) {
-            if (u.getUsername().equals(username) && u.getPassword().equals(password)) {
-                loggedInUser = u;
-                return true;
-            }
-        }
-        loggedInUser = null;
-        return false;
+        User u = authenticate(username, password);
+        loggedInUser = u;
+        return u != null;
+    }
+
+    /**
+     * Check credentials without changing {@link #getLoggedInUser()} (for servers with many
+     * sessions); returns the user, or null if the username or password is wrong.
+     */
+    public User authenticate(String username, String password) {
+        long start = System.nanoTime();
+        User u = username == null ? null : users.get(username);
+        boolean ok = hasher.verify(password, u == null ? dummyHash : u.getPasswordHash()) && u != null;
+        if (ok) Metric.LOGIN.recordSince(start);
+        else Metric.LOGIN.failedSince(start);
+        return ok ? u : null;
+    }
+
+    /**
+     * Same as {@link #loginUser} but the password check runs on the verifier pool.
+     */
+    public CompletableFuture<Boolean> loginUserAsync(String username, String password) {
+        return CompletableFuture.supplyAsync(() -> loginUser(username, password), VERIFIER);
     }
 
     public String returnLoginStatus() {
-        if (loggedInUser != null) {
-            return String.format("Welcome %s ,%s it is great to see you.", loggedInUser.getFirstName(), loggedInUser.getLastName());
+        User u = loggedInUser;
+        if (u != null) {
+            return String.format("Welcome %s ,%s it is great to see you.", u.getFirstName(), u.getLastName());
         } else {
             return "Username or password incorrect, please try again.";
         }
@@ -74,7 +160,14 @@ public class Login {
 
     public User getLoggedInUser() { return loggedInUser; }
 
+    public User findUser(String username) { return username == null ? null : users.get(username); }
+
     // helpers for tests and admin
     public void clearUsers() { users.clear(); loggedInUser = null; }
-    public List<User> getUsers() { return users; }
+    public List<User> getUsers() { return new ArrayList<>(users.values()); }
+
+    // calibrated on first use only, not at class load
+    private static final class DefaultHasher {
+        static final PasswordHasher INSTANCE = PasswordHasher.withBudget(DEFAULT_HASH_BUDGET_MILLIS);
+    }
 }
@@ -0,0 +1,60 @@
+package com.mycompany.chatappgui;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The longest message of one list, kept in an ordered multiset keyed by payload length so it
+ * survives deletes without a rescan. Like {@link ReportView} it catches up on the messages added
+ * since the last call, so adds cost nothing until someone asks. Among equally long messages the
+ * earliest added wins, matching a front-to-back scan.
+ */
+final class LongestMessageView {
+
+    // payload length -> messages of that length in list order (Message has identity equality)
+    private final TreeMap<Integer, Set<Message>> byLength = new TreeMap<>();
+    private MessageBuffer source;
+    private int absorbed;
+
+    synchronized Message longest(MessageBuffer current) {
+        catchUp(current);
+        Map.Entry<Integer, Set<Message>> top = byLength.lastEntry();
+        return top == null ? null : top.getValue().iterator().next();
+    }
+
+    /**
+     * A delete replaced {@code before} with {@code after} (= before minus doomed). Called while
+     * no adds are in flight (the manager's write lock).
+     */
+    synchronized void removed(MessageBuffer before, Set<Message> doomed, MessageBuffer after) {
+        if (before != source) {
+            source = null; // never tracked this one: rebuild lazily from the new list
+            return;
+        }
+        catchUp(before);
+        for (Message m : doomed) {
+            if (m.getPayload() == null) continue;
+            Integer length = m.getPayload().length();
+            Set<Message> same = byLength.get(length);
+            if (same != null && same.remove(m) && same.isEmpty()) byLength.remove(length);
+        }
+        source = after;
+        absorbed = after.size();
+    }
+
+    private void catchUp(MessageBuffer current) {
+        if (current != source) {
+            byLength.clear();
+            source = current;
+            absorbed = 0;
+        }
+        int n = current.size();
+        for (int i = absorbed; i < n; i++) {
+            Message m = current.get(i);
+            if (m.getPayload() != null) byLength.computeIfAbsent(m.getPayload().length(), k -> new LinkedHashSet<>()).add(m);
+        }
+        absorbed = n;
+    }
+}
@@ -0,0 +1,179 @@
+package com.mycompany.chatappgui;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Bounded cache with least-recently-used eviction and an optional time to live. Keys are spread
+ * over independently locked segments, each an access-ordered LinkedHashMap holding its share of
+ * {@code maxEntries}, so eviction is LRU per segment and lookups on different keys rarely contend.
+ * Null values are cached too (a known miss is as useful as a hit).
+ */
+public class LookupCache<K, V> {
+
+    private static final int MAX_SEGMENTS = 16;
+    // small caches keep fewer segments: LRU over a handful of entries evicts hot keys
+    private static final int MIN_SEGMENT_ENTRIES = 64;
+
+    private final Segment<K, V>[] segments;
+    private final long ttlNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private static final class Entry<V> {
+        final V value;
+        final long loadedAt;
+
+        Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private static final class Segment<K, V> extends LinkedHashMap<K, Entry<V>> {
+        private static final long serialVersionUID = 1L;
+
+        final int capacity;
+        final LongAdder evictions;
+        long generation; // bumped by every invalidation, so a load that raced one is not cached
+
+        Segment(int capacity, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+            if (size() <= capacity) return false;
+            evictions.increment();
+            return true;
+        }
+    }
+
+    /**
+     * @param maxEntries total entries kept
+     * @param ttlMillis  how long an entry stays valid after it is loaded; 0 = until evicted
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public LookupCache(int maxEntries, long ttlMillis) {
+        if (maxEntries < 1) throw new IllegalArgumentException("Cache size must be positive: " + maxEntries);
+        if (ttlMillis < 0) throw new IllegalArgumentException("Negative TTL: " + ttlMillis);
+        int segmentCount = Math.max(1, Math.min(MAX_SEGMENTS, maxEntries / MIN_SEGMENT_ENTRIES));
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // spread the remainder so the capacities add up to maxEntries
+            segments[i] = new Segment<>(maxEntries / segmentCount + (i < maxEntries % segmentCount ? 1 : 0), evictions);
+        }
+        this.ttlNanos = ttlMillis * 1_000_000L;
+    }
+
+    private Segment<K, V> segmentFor(Object key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return segments[Math.floorMod(h, segments.length)];
+    }
+
+    /**
+     * Cached value for the key, or {@code loader}'s answer (cached before it is returned).
+     * The loader runs outside the segment lock, so two threads missing on the same key may
+     * both load it; an answer loaded while the segment was invalidated is returned but not cached.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        Segment<K, V> segment = segmentFor(key);
+        long now = System.nanoTime();
+        long generation;
+        synchronized (segment) {
+            generation = segment.generation;
+            Entry<V> e = segment.get(key);
+            if (e != null) {
+                if (ttlNanos == 0 || now - e.loadedAt < ttlNanos) {
+                    hits.increment();
+                    return e.value;
+                }
+                segment.remove(key);
+                expirations.increment();
+            }
+        }
+        misses.increment();
+        V value = loader.apply(key);
+        synchronized (segment) {
+            if (segment.generation == generation) segment.put(key, new Entry<>(value, now));
+        }
+        return value;
+    }
+
+    /** Drop the key if cached. */
+    public void invalidate(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.generation++;
+            if (segment.remove(key) != null) invalidations.increment();
+        }
+    }
+
+    /** Drop every entry the predicate matches; walks the whole cache. */
+    public void invalidateIf(BiPredicate<? super K, ? super V> doomed) {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.generation++;
+                Iterator<Map.Entry<K, Entry<V>>> it = segment.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<K, Entry<V>> e = it.next();
+                    if (doomed.test(e.getKey(), e.getValue().value)) {
+                        it.remove();
+                        invalidations.increment();
+                    }
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.generation++;
+                invalidations.add(segment.size());
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int n = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                n += segment.size();
+            }
+        }
+        return n;
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    /** Entries dropped to stay within the size bound. */
+    public long getEvictions() { return evictions.sum(); }
+    /** Entries found past their TTL. */
+    public long getExpirations() { return expirations.sum(); }
+    /** Entries dropped by invalidate/invalidateIf/clear. */
+    public long getInvalidations() { return invalidations.sum(); }
+
+    public double getHitRate() {
+        long h = hits.sum(), total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d misses=%d hitRate=%.3f evictions=%d expirations=%d invalidations=%d size=%d",
+                getHits(), getMisses(), getHitRate(), getEvictions(), getExpirations(), getInvalidations(), size());
+    }
+}
@@ -0,0 +1,154 @@
+package com.mycompany.chatappgui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Bounded delivery queue for one recipient: any number of senders, one reader at a time.
+ * A ring of message references (never copies) with a CAS-claimed tail; the reader frees slots
+ * as it drains, so neither side takes a lock. A full mailbox rejects the message rather than
+ * blocking the sender. The ring is allocated in chunks as it first fills, so a recipient that is
+ * only ever a few messages behind holds one small chunk however large the bound.
+ */
+public class Mailbox {
+
+    // slots per chunk (fewer when the whole ring is smaller)
+    static final int CHUNK = 32;
+    // left in a slot by withdraw(): the reader frees it without handing it on
+    private static final Message WITHDRAWN = new Message();
+
+    private final String recipient;
+    private final AtomicReferenceArray<AtomicReferenceArray<Message>> chunks;
+    private final int capacity;
+    private final int mask;
+    private final int chunkShift;
+    private final AtomicLong tail = new AtomicLong(); // next slot to claim (senders)
+    private final AtomicLong head = new AtomicLong(); // next slot to read (reader only writes it)
+    private final AtomicBoolean reading = new AtomicBoolean();
+    private final LongAdder rejected = new LongAdder();
+
+    /** Capacity is rounded up to a power of two. */
+    public Mailbox(String recipient, int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) throw new IllegalArgumentException("Bad mailbox capacity " + capacity);
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        int chunk = Math.min(size, CHUNK);
+        this.recipient = recipient;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.chunkShift = Integer.numberOfTrailingZeros(chunk);
+        this.chunks = new AtomicReferenceArray<>(size / chunk);
+    }
+
+    public String getRecipient() { return recipient; }
+    public int capacity() { return capacity; }
+
+    /** Slots allocated so far; grows towards {@link #capacity()} as the backlog does. */
+    public int allocated() {
+        int n = 0;
+        for (int i = 0; i < chunks.length(); i++) if (chunks.get(i) != null) n++;
+        return n << chunkShift;
+    }
+
+    /** Messages waiting (approximate while senders are active). */
+    public int size() {
+        return (int) Math.max(0, Math.min(capacity, tail.get() - head.get()));
+    }
+
+    /** Messages turned away because the mailbox was full. */
+    public long getRejected() { return rejected.sum(); }
+
+    // the chunk holding the slot, allocated by whichever sender gets there first
+    private AtomicReferenceArray<Message> chunkFor(int slot) {
+        int c = slot >>> chunkShift;
+        AtomicReferenceArray<Message> chunk = chunks.get(c);
+        if (chunk == null) {
+            chunks.compareAndSet(c, null, new AtomicReferenceArray<>(1 << chunkShift));
+            chunk = chunks.get(c);
+        }
+        return chunk;
+    }
+
+    private int offset(int slot) { return slot & ((1 << chunkShift) - 1); }
+
+    /**
+     * Queue a message; false (and counted as rejected) if the mailbox is full.
+     */
+    public boolean offer(Message m) {
+        if (m == null) throw new NullPointerException("message");
+        while (true) {
+            long t = tail.get();
+            if (t - head.get() >= capacity) {
+                rejected.increment();
+                return false;
+            }
+            if (tail.compareAndSet(t, t + 1)) {
+                int slot = (int) t & mask;
+                chunkFor(slot).lazySet(offset(slot), m);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Take back a queued message (matched by identity) so the reader never sees it; false if it
+     * has already been read or was never queued. A message whose offer has not finished yet is
+     * not found, so callers withdraw only messages whose delivery they know has completed.
+     */
+    public boolean withdraw(Message m) {
+        long h = head.get();
+        long t = tail.get();
+        for (long i = h; i < t; i++) {
+            int slot = (int) i & mask;
+            AtomicReferenceArray<Message> chunk = chunks.get(slot >>> chunkShift);
+            if (chunk != null && chunk.compareAndSet(offset(slot), m, WITHDRAWN)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Hand up to {@code max} queued messages to {@code reader}, oldest first, and return how many.
+     * Withdrawn messages are skipped. Stops early at a slot a sender has claimed but not yet
+     * filled. Only one thread may drain at a time.
+     */
+    public int drain(Consumer<? super Message> reader, int max) {
+        if (!reading.compareAndSet(false, true)) {
+            throw new IllegalStateException("Mailbox " + recipient + " is already being drained");
+        }
+        long start = head.get();
+        long h = start;
+        int delivered = 0;
+        try {
+            while (delivered < max) {
+                int slot = (int) h & mask;
+                AtomicReferenceArray<Message> chunk = chunks.get(slot >>> chunkShift);
+                if (chunk == null) break;
+                Message m = chunk.get(offset(slot));
+                if (m == null) break;
+                // swap rather than clear what was read: a concurrent withdraw either lands first or misses
+                m = chunk.getAndSet(offset(slot), null);
+                h++;
+                if (m == WITHDRAWN) continue;
+                delivered++;
+                reader.accept(m);
+            }
+            return delivered;
+        } finally {
+            // publish the freed slots once per batch (even if the reader threw)
+            if (h != start) head.lazySet(h);
+            reading.set(false);
+        }
+    }
+
+    /** Up to {@code max} queued messages, oldest first. */
+    public List<Message> drain(int max) {
+        List<Message> batch = new ArrayList<>(Math.min(max, size()));
+        drain(batch::add, max);
+        return batch;
+    }
+}
@@ -0,0 +1,70 @@
+package com.mycompany.chatappgui;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * One {@link Mailbox} per recipient number, created on first delivery. Delivering and reading
+ * touch only that recipient's mailbox, so their cost does not grow with the number of messages
+ * held elsewhere.
+ */
+public class Mailboxes {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final ConcurrentHashMap<String, Mailbox> byRecipient = new ConcurrentHashMap<>();
+    private final int capacity;
+
+    public Mailboxes() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /** {@code capacity} messages per recipient. */
+    public Mailboxes(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Queue the message for its recipient; false if it has no recipient or that mailbox is full.
+     */
+    public boolean deliver(Message m) {
+        String recipient = m.getRecipient();
+        if (recipient == null) return false;
+        Mailbox box = byRecipient.get(recipient);
+        if (box == null) box = byRecipient.computeIfAbsent(recipient, r -> new Mailbox(r, capacity));
+        return box.offer(m);
+    }
+
+    /** Take back a message delivered earlier and not read yet; false if it is gone already. */
+    public boolean withdraw(Message m) {
+        Mailbox box = get(m.getRecipient());
+        return box != null && box.withdraw(m);
+    }
+
+    /** The recipient's mailbox, or null if nothing has been delivered to them. */
+    public Mailbox get(String recipient) {
+        return recipient == null ? null : byRecipient.get(recipient);
+    }
+
+    /** Hand up to {@code max} of the recipient's queued messages to {@code reader}; returns how many. */
+    public int drain(String recipient, Consumer<? super Message> reader, int max) {
+        Mailbox box = get(recipient);
+        return box == null ? 0 : box.drain(reader, max);
+    }
+
+    /** Up to {@code max} of the recipient's queued messages, oldest first. */
+    public List<Message> drain(String recipient, int max) {
+        Mailbox box = get(recipient);
+        return box == null ? Collections.emptyList() : box.drain(max);
+    }
+
+    /** Recipients that have had a message delivered. */
+    public int recipientCount() { return byRecipient.size(); }
+
+    public Collection<Mailbox> all() { return Collections.unmodifiableCollection(byRecipient.values()); }
+
+    public int getCapacity() { return capacity; }
+}
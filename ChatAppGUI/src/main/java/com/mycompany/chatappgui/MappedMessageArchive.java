@@ -0,0 +1,366 @@
+package com.mycompany.chatappgui;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stored-message archive backed by memory-mapped files, for archives too large to keep as Message
+ * objects. Records live in the mapped data file; the offset table, the ID/hash/recipient indexes
+ * and the deleted bitmap are direct buffers, so heap use does not grow with the archive.
+ * Queries compare raw UTF-8 bytes in the mapping and only decode the messages they return.
+ * <p>
+ * Record layout (segments of 1 GiB, a record never straddles two):
+ * <pre>
+ *   int recipientLen, int payloadLen, int payloadChars, int idLen, int hashLen  (-1 = null)
+ *   recipient, payload, messageID, messageHash as UTF-8
+ * </pre>
+ * Deletes are recorded as ordinals in a sidecar "&lt;file&gt;.deleted" file.
+ */
+public class MappedMessageArchive implements MessageArchive {
+
+    static final int SEGMENT_BITS = 30;
+    static final long SEGMENT = 1L << SEGMENT_BITS;
+    static final int HEADER = 5 * Integer.BYTES;
+    static final int PAD = -2;
+    static final int MAX_RECORDS = (1 << 28) - 1;
+
+    private final File file;
+    private final MappedByteBuffer[] segments;
+    private final LongBuffer offsets;
+    private final int count;
+    private final OffHeapKeyIndex idIndex;
+    private final OffHeapKeyIndex hashIndex;
+    private final OffHeapKeyIndex recipientIndex;
+    private final IntBuffer deleted;
+    private final DataOutputStream deletedLog;
+    private int live;
+    private volatile int longest = -1;
+    private boolean closed; // guarded by this
+
+    // ---------- Building ----------
+
+    /**
+     * Sequential writer for a new archive file; feed it from a codec stream to convert an existing
+     * storedMessages file without loading it.
+     */
+    public static Writer writer(File file) throws IOException {
+        return new Writer(file);
+    }
+
+    public static MappedMessageArchive build(File file, Iterable<Message> messages) throws IOException {
+        try (Writer w = writer(file)) {
+            for (Message m : messages) w.append(m);
+        }
+        return open(file);
+    }
+
+    public static final class Writer implements AutoCloseable {
+        private final DataOutputStream out;
+        private long offset;
+        private int records;
+
+        private Writer(File file) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+            new File(file.getPath() + ".deleted").delete();
+        }
+
+        public void append(Message m) throws IOException {
+            if (records == MAX_RECORDS) throw new IOException("Archive is full");
+            byte[] recipient = bytes(m.getRecipient());
+            byte[] payload = bytes(m.getPayload());
+            byte[] id = bytes(m.getMessageID());
+            byte[] hash = bytes(m.getMessageHash());
+            long len = HEADER + length(recipient) + length(payload) + length(id) + length(hash);
+            if (len > SEGMENT) throw new IOException("Message too large for archive");
+            long room = SEGMENT - (offset & (SEGMENT - 1));
+            if (room < len) {
+                if (room >= HEADER) { out.writeInt(PAD); room -= Integer.BYTES; }
+                for (long i = 0; i < room; i++) out.write(0);
+                offset += SEGMENT - (offset & (SEGMENT - 1));
+            }
+            out.writeInt(recipient == null ? -1 : recipient.length);
+            out.writeInt(payload == null ? -1 : payload.length);
+            out.writeInt(m.getPayload() == null ? -1 : m.getPayload().length());
+            out.writeInt(id == null ? -1 : id.length);
+            out.writeInt(hash == null ? -1 : hash.length);
+            write(recipient);
+            write(payload);
+            write(id);
+            write(hash);
+            offset += len;
+            records++;
+        }
+
+        private void write(byte[] b) throws IOException {
+            if (b != null) out.write(b);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] b) {
+        return b == null ? 0 : b.length;
+    }
+
+    // ---------- Opening ----------
+
+    public static MappedMessageArchive open(File file) throws IOException {
+        return new MappedMessageArchive(file);
+    }
+
+    private MappedMessageArchive(File file) throws IOException {
+        this.file = file;
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = ch.size();
+            segments = new MappedByteBuffer[(int) ((size + SEGMENT - 1) >>> SEGMENT_BITS)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i << SEGMENT_BITS;
+                segments[i] = ch.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT, size - start));
+            }
+        }
+
+        // pass 1: count records, pass 2: fill the off-heap offset table
+        int n = 0;
+        for (long off = firstRecord(0); off >= 0; off = nextRecord(off)) n++;
+        count = n;
+        offsets = ByteBuffer.allocateDirect(Math.max(1, n) * Long.BYTES).asLongBuffer();
+        int ordinal = 0;
+        for (long off = firstRecord(0); off >= 0; off = nextRecord(off)) offsets.put(ordinal++, off);
+
+        // build chains back to front so each chain lists records in archive order
+        idIndex = new OffHeapKeyIndex(n);
+        hashIndex = new OffHeapKeyIndex(n);
+        recipientIndex = new OffHeapKeyIndex(n);
+        for (int i = n - 1; i >= 0; i--) {
+            long off = offsets.get(i);
+            if (len(off, F_ID) >= 0) idIndex.add(hashBytes(off, F_ID), i);
+            if (len(off, F_HASH) >= 0) hashIndex.add(hashBytes(off, F_HASH), i);
+            if (len(off, F_RECIPIENT) >= 0) recipientIndex.add(hashBytes(off, F_RECIPIENT), i);
+        }
+
+        deleted = ByteBuffer.allocateDirect(((n + 31) >>> 5) * Integer.BYTES).asIntBuffer();
+        live = n;
+        File deletedFile = new File(file.getPath() + ".deleted");
+        if (deletedFile.exists()) {
+            try (FileChannel ch = FileChannel.open(deletedFile.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size() & ~3L);
+                while (buf.remaining() >= Integer.BYTES) {
+                    int ord = buf.getInt();
+                    if (ord >= 0 && ord < n && !isDeleted(ord)) markDeleted(ord);
+                }
+            }
+        }
+        deletedLog = new DataOutputStream(new FileOutputStream(deletedFile, true));
+        longest = scanLongest();
+    }
+
+    // ---------- Record access ----------
+
+    private static final int F_RECIPIENT = 0, F_PAYLOAD = 1, F_CHARS = 2, F_ID = 3, F_HASH = 4;
+
+    private ByteBuffer seg(long off) {
+        return segments[(int) (off >>> SEGMENT_BITS)];
+    }
+
+    private static int pos(long off) {
+        return (int) (off & (SEGMENT - 1));
+    }
+
+    private int len(long off, int field) {
+        return seg(off).getInt(pos(off) + field * Integer.BYTES);
+    }
+
+    // start of a field's bytes (fields follow the header in order recipient, payload, id, hash)
+    private int fieldStart(long off, int field) {
+        int p = pos(off) + HEADER;
+        if (field > F_RECIPIENT) p += Math.max(0, len(off, F_RECIPIENT));
+        if (field > F_PAYLOAD) p += Math.max(0, len(off, F_PAYLOAD));
+        if (field > F_ID) p += Math.max(0, len(off, F_ID));
+        return p;
+    }
+
+    private long recordLength(long off) {
+        return HEADER + Math.max(0, len(off, F_RECIPIENT)) + Math.max(0, len(off, F_PAYLOAD))
+                + Math.max(0, len(off, F_ID)) + Math.max(0, len(off, F_HASH));
+    }
+
+    // first real record at or after off, skipping segment padding; -1 at end of file
+    private long firstRecord(long off) {
+        while (true) {
+            int s = (int) (off >>> SEGMENT_BITS);
+            if (s >= segments.length) return -1;
+            int p = pos(off);
+            if (segments[s].limit() - p < HEADER || segments[s].getInt(p) == PAD) {
+                if (s + 1 >= segments.length || segments[s].limit() < SEGMENT) return -1;
+                off = (long) (s + 1) << SEGMENT_BITS;
+                continue;
+            }
+            return off;
+        }
+    }
+
+    private long nextRecord(long off) {
+        return firstRecord(off + recordLength(off));
+    }
+
+    private int hashBytes(long off, int field) {
+        ByteBuffer b = seg(off);
+        int start = fieldStart(off, field);
+        int h = 1;
+        for (int i = start, end = start + len(off, field); i < end; i++) h = 31 * h + b.get(i);
+        return h;
+    }
+
+    private static int hashBytes(byte[] key) {
+        int h = 1;
+        for (byte x : key) h = 31 * h + x;
+        return h;
+    }
+
+    private boolean fieldEquals(long off, int field, byte[] key) {
+        if (len(off, field) != key.length) return false;
+        ByteBuffer b = seg(off);
+        int start = fieldStart(off, field);
+        for (int i = 0; i < key.length; i++) if (b.get(start + i) != key[i]) return false;
+        return true;
+    }
+
+    private String string(long off, int field) {
+        int n = len(off, field);
+        if (n < 0) return null;
+        byte[] bytes = new byte[n];
+        seg(off).get(fieldStart(off, field), bytes, 0, n);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Message materialize(int ordinal) {
+        long off = offsets.get(ordinal);
+        Message m = new Message();
+        m.setRecipient(string(off, F_RECIPIENT));
+        m.setPayload(string(off, F_PAYLOAD));
+        m.setMessageID(string(off, F_ID));
+        m.setMessageHash(string(off, F_HASH));
+        return m;
+    }
+
+    private boolean isDeleted(int ordinal) {
+        return (deleted.get(ordinal >>> 5) & (1 << (ordinal & 31))) != 0;
+    }
+
+    private void markDeleted(int ordinal) {
+        deleted.put(ordinal >>> 5, deleted.get(ordinal >>> 5) | (1 << (ordinal & 31)));
+        live--;
+    }
+
+    // ordinals in the key's chain whose field really equals the key
+    private List<Integer> matches(OffHeapKeyIndex index, int field, String key, boolean firstOnly) {
+        List<Integer> result = new ArrayList<>(firstOnly ? 1 : 4);
+        if (key == null) return result;
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        for (int ord = index.first(hashBytes(k)); ord >= 0; ord = index.next(ord)) {
+            if (!isDeleted(ord) && fieldEquals(offsets.get(ord), field, k)) {
+                result.add(ord);
+                if (firstOnly) break;
+            }
+        }
+        return result;
+    }
+
+    private int scanLongest() {
+        int best = -1;
+        int max = -1;
+        for (int i = 0; i < count; i++) {
+            if (isDeleted(i)) continue;
+            int chars = len(offsets.get(i), F_CHARS);
+            if (chars > max) { max = chars; best = i; }
+        }
+        return best;
+    }
+
+    // ---------- MessageArchive ----------
+
+    // the mappings are released on close, so a later query must fail cleanly rather than fault
+    private void ensureOpen() {
+        if (closed) throw new IllegalStateException("Archive " + file + " is closed");
+    }
+
+    @Override
+    public synchronized Message searchByMessageID(String id) {
+        ensureOpen();
+        List<Integer> hit = matches(idIndex, F_ID, id, true);
+        return hit.isEmpty() ? null : materialize(hit.get(0));
+    }
+
+    @Override
+    public synchronized List<Message> searchMessagesByRecipient(String recipient) {
+        ensureOpen();
+        List<Message> results = new ArrayList<>();
+        for (int ord : matches(recipientIndex, F_RECIPIENT, recipient, false)) results.add(materialize(ord));
+        return results;
+    }
+
+    @Override
+    public synchronized Message getLongestMessage() {
+        ensureOpen();
+        return longest < 0 ? null : materialize(longest);
+    }
+
+    @Override
+    public synchronized List<Message> removeByHash(String hash) {
+        ensureOpen();
+        List<Integer> hits = matches(hashIndex, F_HASH, hash, false);
+        List<Message> removed = new ArrayList<>(hits.size());
+        if (hits.isEmpty()) return removed;
+        boolean longestGone = false;
+        try {
+            for (int ord : hits) {
+                removed.add(materialize(ord));
+                markDeleted(ord);
+                deletedLog.writeInt(ord);
+                longestGone |= ord == longest;
+            }
+            deletedLog.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (longestGone) longest = scanLongest();
+        return removed;
+    }
+
+    @Override
+    public synchronized long size() {
+        ensureOpen();
+        return live;
+    }
+
+    public File getFile() { return file; }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        deletedLog.close();
+        Arrays.fill(segments, null); // unmapped once collected
+    }
+}
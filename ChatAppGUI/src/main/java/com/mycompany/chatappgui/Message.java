@@ -1,37 +1,62 @@
 package com.mycompany.chatappgui;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Message POJO with auto-generated ID and hash. Has no-arg constructor for JSON (Jackson).
+ * The ID and hash are kept as numbers and only turned into strings the first time they are read
+ * (see {@link MessageIds}).
  */
 public class Message {
-    private static final AtomicInteger COUNTER = new AtomicInteger(0);
+    /** Longest payload that may be sent; longer messages can only be stored. */
+    public static final int MAX_SEND_LENGTH = 250;
+
+    private static final AtomicLong COUNTER = new AtomicLong(0);
 
     private String recipient;
     private String payload;
     private String messageID;
     private String messageHash;
 
+    // numeric forms behind the lazily built strings (unset for messages loaded from JSON)
+    private long sequence;
+    private long hash;
+    private boolean hashed;
+
     public Message() {} // needed by Jackson
 
     public Message(String recipient, String payload) {
         this.recipient = recipient;
         this.payload = payload;
-        this.messageID = generateMessageID();
-        this.messageHash = generateMessageHash();
+        this.sequence = COUNTER.incrementAndGet();
+        this.hash = MessageIds.hash(sequence, recipient, payload, System.nanoTime());
+        this.hashed = true;
     }
 
-    private String generateMessageID() {
-        return String.format("MSG%05d", COUNTER.incrementAndGet());
+    // rebuilt from numeric columns (see ColumnarMessageStore); strings are rendered on first read
+    static Message restore(String recipient, String payload, long sequence, long hash) {
+        Message m = new Message();
+        m.recipient = recipient;
+        m.payload = payload;
+        m.sequence = sequence;
+        m.hash = hash;
+        m.hashed = true;
+        return m;
     }
 
-    private String generateMessageHash() {
-        int h = (messageID + "|" + recipient + "|" + payload + "|" + System.currentTimeMillis()).hashCode();
-        return "HASH" + Math.abs(h);
-    }
+    /** Numeric ID behind getMessageID(), or 0 when the ID was set as a string. */
+    long sequence() { return sequence; }
+
+    /** True if {@link #numericHash()} is the value getMessageHash() renders. */
+    boolean hasNumericHash() { return hashed; }
 
-    public void regenerateHash() { this.messageHash = generateMessageHash(); }
+    long numericHash() { return hash; }
+
+    public void regenerateHash() {
+        this.hash = MessageIds.hash(sequence, recipient, payload, System.nanoTime());
+        this.hashed = true;
+        this.messageHash = null;
+    }
 
     public String getRecipient() { return recipient; }
     public void setRecipient(String recipient) { this.recipient = recipient; }
@@ -39,15 +64,23 @@ public class Message {
     public String getPayload() { return payload; }
     public void setPayload(String payload) { this.payload = payload; }
 
-    public String getMessageID() { return messageID; }
-    public void setMessageID(String messageID) { this.messageID = messageID; } // careful to use only in tests if needed
+    public String getMessageID() {
+        String id = messageID;
+        if (id == null && sequence != 0) messageID = id = MessageIds.formatId(sequence);
+        return id;
+    }
+    public void setMessageID(String messageID) { this.messageID = messageID; this.sequence = 0; } // careful to use only in tests if needed
 
-    public String getMessageHash() { return messageHash; }
-    public void setMessageHash(String messageHash) { this.messageHash = messageHash; }
+    public String getMessageHash() {
+        String h = messageHash;
+        if (h == null && hashed) messageHash = h = MessageIds.formatHash(hash);
+        return h;
+    }
+    public void setMessageHash(String messageHash) { this.messageHash = messageHash; this.hashed = false; }
 
     public String displayMessage() {
-        return "Message ID: " + messageID +
-               "\nMessage Hash: " + messageHash +
+        return "Message ID: " + getMessageID() +
+               "\nMessage Hash: " + getMessageHash() +
                "\nRecipient: " + recipient +
                "\nMessage: " + payload;
     }
@@ -0,0 +1,35 @@
+package com.mycompany.chatappgui;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Read-mostly store of stored messages kept outside MessageManager's in-memory lists.
+ * Implementations answer the same queries MessageManager does and only build Message objects
+ * for the results they return.
+ */
+public interface MessageArchive extends AutoCloseable {
+
+    /** First archived message with this ID, or null. */
+    Message searchByMessageID(String id);
+
+    /** All archived messages for the recipient, in archive order. */
+    List<Message> searchMessagesByRecipient(String recipient);
+
+    /** Archived message with the longest payload (first one on ties), or null when empty. */
+    Message getLongestMessage();
+
+    /** Remove every archived message with this hash and return them in archive order (empty if none). */
+    List<Message> removeByHash(String hash);
+
+    /** Remove every archived message with this hash; true if any was removed. */
+    default boolean deleteByHash(String hash) {
+        return !removeByHash(hash).isEmpty();
+    }
+
+    /** Number of live (not deleted) archived messages. */
+    long size();
+
+    @Override
+    void close() throws IOException;
+}
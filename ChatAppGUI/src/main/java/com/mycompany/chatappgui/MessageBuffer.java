@@ -0,0 +1,114 @@
+package com.mycompany.chatappgui;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+
+/**
+ * Append-only, thread-safe message list. Appends claim a slot with one atomic increment and
+ * publish it with a release store of their own, so no writer ever waits for another; readers
+ * never lock and see the gap-free prefix up to the first slot not yet filled. Storage is a fixed
+ * directory of chunks that double in size (2, 4, 8, ...), so nothing is ever copied on growth and
+ * small lists (a recipient's postings) stay small. Removal builds a new buffer instead of
+ * mutating this one.
+ */
+public class MessageBuffer extends AbstractList<Message> implements RandomAccess {
+
+    private static final int FIRST_CHUNK_BITS = 1;
+    private static final int MAX_CHUNKS = 31 - FIRST_CHUNK_BITS;
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Message[].class);
+
+    private final AtomicReferenceArray<Message[]> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+    private final AtomicInteger reserved = new AtomicInteger();
+    // every slot below this is filled; only ever raised, and may lag behind the real prefix
+    private final AtomicInteger published = new AtomicInteger();
+
+    public MessageBuffer() {}
+
+    public MessageBuffer(Iterable<Message> messages) {
+        for (Message m : messages) add(m);
+    }
+
+    /**
+     * Appends the message. It becomes visible once every slot claimed before it is filled too:
+     * the list never shows a gap, so while an earlier append is still in progress a reader, even
+     * the appending thread, does not see this one yet. That is the price of lock-free appends; the
+     * ID and hash lookups in {@link MessageIndex} do not have it.
+     */
+    @Override
+    public boolean add(Message m) {
+        fill(claim(), m);
+        return true;
+    }
+
+    // an append in two steps, so tests can hold a slot open
+    int claim() {
+        int i = reserved.getAndIncrement();
+        if (i < 0) throw new IllegalStateException("MessageBuffer is full");
+        return i;
+    }
+
+    void fill(int i, Message m) {
+        int j = i + (1 << FIRST_CHUNK_BITS);
+        int hi = 31 - Integer.numberOfLeadingZeros(j);
+        SLOT.setRelease(chunk(hi - FIRST_CHUNK_BITS, 1 << hi), j - (1 << hi), m);
+        if (published.get() == i) advance(i);
+    }
+
+    private Message[] chunk(int c, int length) {
+        Message[] chunk = chunks.get(c);
+        if (chunk == null) {
+            chunks.compareAndSet(c, null, new Message[length]);
+            chunk = chunks.get(c);
+        }
+        return chunk;
+    }
+
+    /** The message in slot {@code index}, or null while it is claimed but not yet filled. */
+    private Message slot(int index) {
+        int j = index + (1 << FIRST_CHUNK_BITS);
+        int hi = 31 - Integer.numberOfLeadingZeros(j);
+        Message[] chunk = chunks.get(hi - FIRST_CHUNK_BITS);
+        return chunk == null ? null : (Message) SLOT.getAcquire(chunk, j - (1 << hi));
+    }
+
+    /** Moves the published mark from {@code from} past every filled slot and returns it. */
+    private int advance(int from) {
+        int n = from;
+        int limit = reserved.get();
+        while (n < limit && slot(n) != null) n++;
+        return n > from ? published.accumulateAndGet(n, Math::max) : n;
+    }
+
+    @Override
+    public Message get(int index) {
+        if (index < 0 || (index >= published.get() && index >= advance(published.get()))) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        return slot(index);
+    }
+
+    @Override
+    public int size() {
+        int mark = published.get();
+        return mark == reserved.get() ? mark : advance(mark);
+    }
+
+    /**
+     * A new buffer holding the messages not matched by the filter; this buffer is left untouched
+     * so concurrent readers keep a consistent view.
+     */
+    public MessageBuffer without(Predicate<Message> filter) {
+        MessageBuffer kept = new MessageBuffer();
+        int n = size();
+        for (int i = 0; i < n; i++) {
+            Message m = get(i);
+            if (!filter.test(m)) kept.add(m);
+        }
+        return kept;
+    }
+}
@@ -0,0 +1,31 @@
+package com.mycompany.chatappgui;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+
+/**
+ * On-disk encoding for a stream of stored messages (see {@link StorageFormat}).
+ */
+public interface MessageCodec {
+
+    /** Decode every message in the stream, handing each to the sink; returns the count. */
+    long read(InputStream in, Consumer<Message> sink) throws IOException;
+
+    /** Incremental encoder; closing it finishes the encoding but leaves the stream open. */
+    Writer writer(OutputStream out) throws IOException;
+
+    default long write(OutputStream out, Iterable<Message> messages) throws IOException {
+        try (Writer w = writer(out)) {
+            for (Message m : messages) w.write(m);
+            return w.getCount();
+        }
+    }
+
+    interface Writer extends Closeable {
+        void write(Message m) throws IOException;
+        long getCount();
+    }
+}
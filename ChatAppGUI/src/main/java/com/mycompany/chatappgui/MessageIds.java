@@ -0,0 +1,81 @@
+package com.mycompany.chatappgui;
+
+import java.security.SecureRandom;
+
+/**
+ * Message ID and hash generation without String.format or temporary strings. IDs keep the
+ * "MSG%05d" shape; hashes are 64-bit (mixed per character, murmur3 finaliser) and rendered as
+ * "HASH" + 16 hex digits, so collisions are negligible even across millions of messages.
+ */
+public final class MessageIds {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // per-JVM seed: the ID counter restarts every run, the hash must not repeat with it
+    private static final long SEED = new SecureRandom().nextLong();
+
+    private MessageIds() {}
+
+    /** "MSG" followed by the sequence, zero-padded to at least five digits. */
+    public static String formatId(long sequence) {
+        int digits = Math.max(5, digitCount(sequence));
+        char[] buf = new char[3 + digits];
+        buf[0] = 'M';
+        buf[1] = 'S';
+        buf[2] = 'G';
+        long v = sequence;
+        for (int i = buf.length - 1; i >= 3; i--) {
+            buf[i] = (char) ('0' + (v % 10));
+            v /= 10;
+        }
+        return new String(buf);
+    }
+
+    private static int digitCount(long v) {
+        int n = 1;
+        while (v >= 10) { v /= 10; n++; }
+        return n;
+    }
+
+    /** 64-bit hash over the sequence, recipient, payload and a salt (creation time). */
+    public static long hash(long sequence, String recipient, String payload, long salt) {
+        long h = SEED ^ mix(sequence) ^ (salt * 0x9E3779B97F4A7C15L);
+        h = mixChars(h, recipient);
+        h = mixChars(h ^ 0x7C, payload);
+        return mix(h);
+    }
+
+    private static long mixChars(long h, String s) {
+        if (s == null) return mix(h);
+        int n = s.length();
+        for (int i = 0; i < n; i++) {
+            h = (h ^ s.charAt(i)) * 0x100000001B3L;
+            h ^= h >>> 29;
+        }
+        return h ^ n;
+    }
+
+    // murmur3 fmix64
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /** "HASH" followed by the hash as 16 lower-case hex digits. */
+    public static String formatHash(long hash) {
+        char[] buf = new char[20];
+        buf[0] = 'H';
+        buf[1] = 'A';
+        buf[2] = 'S';
+        buf[3] = 'H';
+        for (int i = 19; i >= 4; i--) {
+            buf[i] = HEX[(int) (hash & 0xF)];
+            hash >>>= 4;
+        }
+        return new String(buf);
+    }
+}
@@ -0,0 +1,129 @@
+package com.mycompany.chatappgui;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lookup indexes over one message list: messageID, messageHash and recipient. An ID or hash almost
+ * always names one message, so those map straight to it and a lookup sees an add as soon as the add
+ * returns; the rare repeat (IDs restart per run, hashes can collide) is kept in insertion order on
+ * the side. Recipients map to a {@link MessageBuffer} posting list, which shows a new message once
+ * every add to that list that started before it has finished.
+ * Adds are safe from any number of threads; removals must be made while no adds are in flight
+ * (MessageManager holds its write lock). Messages must not have their indexed fields changed while indexed.
+ */
+public class MessageIndex {
+
+    // ConcurrentHashMap has no null keys; messages loaded from JSON may lack fields
+    private static final String NULL_KEY = "\u0000";
+
+    private final UniqueKeyIndex byId = new UniqueKeyIndex();
+    private final UniqueKeyIndex byHash = new UniqueKeyIndex();
+    private final Map<String, MessageBuffer> byRecipient = new ConcurrentHashMap<>();
+
+    public void add(Message m) {
+        byId.add(key(m.getMessageID()), m);
+        byHash.add(key(m.getMessageHash()), m);
+        byRecipient.computeIfAbsent(key(m.getRecipient()), k -> new MessageBuffer()).add(m);
+    }
+
+    /**
+     * Drop the given messages (compared by identity) from every index.
+     */
+    public void removeAll(Set<Message> doomed) {
+        for (Message m : doomed) {
+            byId.remove(key(m.getMessageID()), doomed);
+            byHash.remove(key(m.getMessageHash()), doomed);
+            byRecipient.computeIfPresent(key(m.getRecipient()), (k, posting) -> {
+                MessageBuffer kept = posting.without(doomed::contains);
+                return kept.isEmpty() ? null : kept;
+            });
+        }
+    }
+
+    public void clear() {
+        byId.clear();
+        byHash.clear();
+        byRecipient.clear();
+    }
+
+    public void rebuild(List<Message> messages) {
+        clear();
+        for (Message m : messages) add(m);
+    }
+
+    /** First message indexed under this ID, or null. */
+    public Message firstById(String id) {
+        return byId.first(key(id));
+    }
+
+    public List<Message> byHash(String hash) {
+        return byHash.all(key(hash));
+    }
+
+    public List<Message> byRecipient(String recipient) {
+        MessageBuffer posting = byRecipient.get(key(recipient));
+        return posting == null ? Collections.emptyList() : Collections.unmodifiableList(posting);
+    }
+
+    private static String key(String k) {
+        return k == null ? NULL_KEY : k;
+    }
+
+    /**
+     * A key that normally names one message: the first one added is held directly, later ones with
+     * the same key go to a posting list that only exists for repeated keys.
+     */
+    private static final class UniqueKeyIndex {
+        private final Map<String, Message> first = new ConcurrentHashMap<>();
+        private final Map<String, MessageBuffer> repeats = new ConcurrentHashMap<>();
+
+        void add(String key, Message m) {
+            if (first.putIfAbsent(key, m) != null) repeats.computeIfAbsent(key, k -> new MessageBuffer()).add(m);
+        }
+
+        Message first(String key) {
+            return first.get(key);
+        }
+
+        List<Message> all(String key) {
+            Message m = first.get(key);
+            if (m == null) return Collections.emptyList();
+            MessageBuffer more = repeats.get(key);
+            if (more == null) return List.of(m);
+            List<Message> all = new ArrayList<>(1 + more.size());
+            all.add(m);
+            all.addAll(more);
+            return Collections.unmodifiableList(all);
+        }
+
+        // no adds in flight (see removeAll)
+        void remove(String key, Set<Message> doomed) {
+            Message m = first.get(key);
+            if (m == null) return;
+            MessageBuffer more = repeats.remove(key);
+            if (more == null) {
+                if (doomed.contains(m)) first.remove(key);
+                return;
+            }
+            List<Message> kept = new ArrayList<>(1 + more.size());
+            if (!doomed.contains(m)) kept.add(m);
+            for (Message x : more) if (!doomed.contains(x)) kept.add(x);
+            if (kept.isEmpty()) {
+                first.remove(key);
+                return;
+            }
+            first.put(key, kept.get(0));
+            if (kept.size() > 1) repeats.put(key, new MessageBuffer(kept.subList(1, kept.size())));
+        }
+
+        void clear() {
+            first.clear();
+            repeats.clear();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.mycompany.chatappgui;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+
+/**
+ * Streaming (JsonParser/JsonGenerator) import and export of messages, one message in memory at a
+ * time. Reads either the storedMessages.json array layout or NDJSON (one object per line) and
+ * hands each message to a callback as soon as it is parsed.
+ */
+public final class MessageJsonStreams {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    public enum Layout { ARRAY, NDJSON }
+
+    private MessageJsonStreams() {}
+
+    // ---------- Reading ----------
+
+    /**
+     * Parse messages from the stream, detecting the layout from the first token.
+     * Returns the number of messages handed to the sink.
+     */
+    public static long read(InputStream in, Consumer<Message> sink) throws IOException {
+        try (JsonParser p = FACTORY.createParser(in)) {
+            JsonToken first = p.nextToken();
+            if (first == null) return 0;
+            long count = 0;
+            if (first == JsonToken.START_ARRAY) {
+                while (p.nextToken() == JsonToken.START_OBJECT) {
+                    sink.accept(readMessage(p));
+                    count++;
+                }
+            } else {
+                // NDJSON / concatenated root objects
+                for (JsonToken t = first; t != null; t = p.nextToken()) {
+                    if (t != JsonToken.START_OBJECT) throw new IOException("Expected a message object but found " + t);
+                    sink.accept(readMessage(p));
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    // Parser is positioned on START_OBJECT; unknown fields are skipped
+    static Message readMessage(JsonParser p) throws IOException {
+        Message m = new Message();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken value = p.nextToken();
+            String text = null;
+            if (value.isStructStart()) p.skipChildren();
+            else if (value != JsonToken.VALUE_NULL) text = p.getText();
+            switch (field) {
+                case "recipient" -> m.setRecipient(text);
+                case "payload" -> m.setPayload(text);
+                case "messageID" -> m.setMessageID(text);
+                case "messageHash" -> m.setMessageHash(text);
+                default -> { }
+            }
+        }
+        return m;
+    }
+
+    // ---------- Writing ----------
+
+    public static Writer writer(OutputStream out, Layout layout) throws IOException {
+        return new Writer(out, layout);
+    }
+
+    /** Write all messages and close the writer (not the stream). */
+    public static long write(OutputStream out, Layout layout, Iterable<Message> messages) throws IOException {
+        try (Writer w = writer(out, layout)) {
+            for (Message m : messages) w.write(m);
+            return w.getCount();
+        }
+    }
+
+    /**
+     * Incremental writer: messages are written as they arrive, so an export never needs the
+     * whole list. ARRAY output matches the pretty-printed storedMessages.json layout.
+     */
+    public static final class Writer implements Closeable {
+        private final JsonGenerator g;
+        private final Layout layout;
+        private long count;
+
+        private Writer(OutputStream out, Layout layout) throws IOException {
+            this.layout = layout;
+            this.g = FACTORY.createGenerator(out, JsonEncoding.UTF8);
+            g.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (layout == Layout.ARRAY) {
+                g.useDefaultPrettyPrinter();
+                g.writeStartArray();
+            } else {
+                g.setRootValueSeparator(null);
+            }
+        }
+
+        public void write(Message m) throws IOException {
+            g.writeStartObject();
+            g.writeStringField("recipient", m.getRecipient());
+            g.writeStringField("payload", m.getPayload());
+            g.writeStringField("messageID", m.getMessageID());
+            g.writeStringField("messageHash", m.getMessageHash());
+            g.writeEndObject();
+            if (layout == Layout.NDJSON) g.writeRaw('\n');
+            count++;
+        }
+
+        public long getCount() { return count; }
+
+        public void flush() throws IOException { g.flush(); }
+
+        @Override
+        public void close() throws IOException {
+            if (layout == Layout.ARRAY) g.writeEndArray();
+            g.close();
+        }
+    }
+}
@@ -1,60 +1,335 @@
 package com.mycompany.chatappgui;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Manages sent/stored/disregarded messages, plus Part 3 features and JSON persistence.
+ * Stored messages are persisted through a {@link MessageStore} (an append-only {@link StoredMessageLog},
+ * or one per recipient shard); each list has a {@link MessageIndex} kept in sync on every add/delete
+ * so lookups never scan the lists.
+ * <p>
+ * Thread-safe: adds and queries share a read lock and only contend on per-key index bins, while
+ * deletes, compaction and resets take the write lock so reports never see half a delete.
+ * Reports and "longest" are materialised views that only do work for what changed since the last call.
+ * Once turned on, sent messages are also delivered to their recipient's {@link Mailbox}
+ * (see {@link #enableMailboxes()}).
+ * With {@link StorageConfig#setColumnarStored} the stored messages live in a
+ * {@link ColumnarMessageStore} instead of as Message objects.
  */
-public class MessageManager {
+public class MessageManager implements AutoCloseable {
+
+    // replaced (never mutated) on delete, so views handed out earlier stay consistent
+    private volatile MessageBuffer sentMessages = new MessageBuffer();
+    private volatile MessageBuffer storedMessages = new MessageBuffer();
+    private volatile MessageBuffer disregardedMessages = new MessageBuffer();
+
+    private final MessageIndex sentIndex = new MessageIndex();
+    private final MessageIndex storedIndex = new MessageIndex();
+    private final MessageIndex disregardedIndex = new MessageIndex();
+    // stored messages as columns instead of storedMessages/storedIndex (StorageConfig#isColumnarStored)
+    private final boolean columnar;
+    private volatile ColumnarMessageStore storedColumns = new ColumnarMessageStore();
+    // full-text search over all three lists
+    private final PayloadIndex payloadIndex = new PayloadIndex();
+
+    // materialised views: caught up lazily on query, told about deletes
+    private final ReportView senderRecipientView = new ReportView((sb, m) ->
+            sb.append("Sender: (current user) | Recipient: ").append(m.getRecipient()).append("\n"), "No sent messages.");
+    private final ReportView sentReportView = new ReportView((sb, m) ->
+            sb.append("Hash: ").append(m.getMessageHash())
+              .append(" | Recipient: ").append(m.getRecipient())
+              .append(" | Message: ").append(m.getPayload())
+              .append("\n"), "No sent messages.");
+    private final LongestMessageView longestSent = new LongestMessageView();
+    private final LongestMessageView longestStored = new LongestMessageView();
+    private final LongestMessageView longestDisregarded = new LongestMessageView();
+
+    // messages added per lock hold / log write by the bulk adds
+    private static final int BULK_CHUNK = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final MessageStore storeLog;
+
+    // per-recipient delivery queues, fed by every send once turned on; null = off
+    private volatile Mailboxes mailboxes;
 
-    private final List<Message> sentMessages = new ArrayList<>();
-    private final List<Message> storedMessages = new ArrayList<>();
-    private final List<Message> disregardedMessages = new ArrayList<>();
+    // optional cold store for stored messages that are not held in memory
+    private volatile MessageArchive archive;
+    // archive lookups cached in front of it (see StorageConfig); 0 = no cache
+    private final int cacheSize;
+    private final long cacheTtlMillis;
 
-    private final ObjectMapper mapper = new ObjectMapper();
-    private final File storedFile = new File("storedMessages.json");
+    // done once the stored messages are in memory (at once, or from a background thread when lazy)
+    private final CompletableFuture<Void> storedLoaded;
 
     public MessageManager() {
-        loadStoredMessages();
+        this(new StorageConfig());
+    }
+
+    public MessageManager(File storedFile) {
+        this(new StorageConfig(storedFile, StorageFormat.JSON));
+    }
+
+    public MessageManager(StorageConfig config) {
+        this.storeLog = config.openStore();
+        this.cacheSize = config.getCacheSize();
+        this.cacheTtlMillis = config.getCacheTtlMillis();
+        this.columnar = config.isColumnarStored();
+        if (config.getMailboxCapacity() > 0) mailboxes = new Mailboxes(config.getMailboxCapacity());
+        if (config.isLazyLoad()) {
+            storedLoaded = CompletableFuture.runAsync(this::loadStoredMessages, r -> {
+                Thread t = new Thread(r, "stored-loader");
+                t.setDaemon(true);
+                t.start();
+            });
+        } else {
+            loadStoredMessages();
+            storedLoaded = CompletableFuture.completedFuture(null);
+        }
+        File archiveFile = config.getArchiveFile();
+        if (archiveFile != null && archiveFile.exists()) {
+            try {
+                archive = cached(MappedMessageArchive.open(archiveFile));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Serve archived stored messages alongside the in-memory ones: searches, "longest" and
+     * deletes also consult the archive. The manager closes it on {@link #close()}. With a cache
+     * configured, {@link #getArchive()} returns the {@link CachingMessageArchive} around it.
+     */
+    public void attachArchive(MessageArchive archive) {
+        lock.writeLock().lock();
+        try {
+            this.archive = cached(archive);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public MessageArchive getArchive() { return archive; }
+
+    private MessageArchive cached(MessageArchive a) {
+        if (cacheSize <= 0 || a == null || a instanceof CachingMessageArchive) return a;
+        return new CachingMessageArchive(a, cacheSize, cacheTtlMillis);
+    }
+
+    /**
+     * Per-recipient delivery queues, or null while delivery is off (see {@link #enableMailboxes()}).
+     * A sent message is delivered as it becomes searchable; if the recipient's mailbox is full it is
+     * only counted as rejected and stays in the sent list. Deleting a sent message withdraws it
+     * from its mailbox if it has not been read yet.
+     */
+    public Mailboxes getMailboxes() { return mailboxes; }
+
+    /**
+     * Start delivering sends to mailboxes (with {@link Mailboxes#DEFAULT_CAPACITY} unless
+     * {@link StorageConfig#setMailboxCapacity} chose one) and return them. Messages sent earlier
+     * are not delivered. Costs nothing per send until it is called.
+     */
+    public Mailboxes enableMailboxes() {
+        lock.writeLock().lock();
+        try {
+            if (mailboxes == null) mailboxes = new Mailboxes();
+            return mailboxes;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** False while a lazy load is still reading the stored messages. */
+    public boolean isStoredLoaded() { return storedLoaded.isDone(); }
+
+    /** Completes once the stored messages are in memory. */
+    public CompletableFuture<Void> whenStoredLoaded() { return storedLoaded.copy(); }
+
+    // Anything that reads or changes the stored list, its index or the log waits for the load.
+    // Never call with the lock held: the loader takes the write lock to publish.
+    private void awaitStored() {
+        if (!storedLoaded.isDone()) storedLoaded.join();
     }
 
     // --- Add messages ---
     public void sendMessage(Message m) {
-        sentMessages.add(m);
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            sentMessages.add(m);
+            sentIndex.add(m);
+            payloadIndex.add(m);
+            // under the lock, so a delete always finds a delivered message in its mailbox
+            Mailboxes boxes = mailboxes;
+            if (boxes != null) boxes.deliver(m);
+        } finally {
+            lock.readLock().unlock();
+        }
+        Metric.SEND.recordSince(start);
     }
 
+    /**
+     * Log the message, then add it to the stored list. A failed log write throws
+     * UncheckedIOException and the message is not stored.
+     */
     public void storeMessage(Message m) {
-        storedMessages.add(m);
-        saveStoredMessages();
+        awaitStored();
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            storeLog.appendStore(m);
+            if (columnar) {
+                storedColumns.append(m);
+            } else {
+                storedMessages.add(m);
+                storedIndex.add(m);
+                payloadIndex.add(m);
+            }
+        } catch (IOException e) {
+            Metric.STORE.failedSince(start);
+            throw new UncheckedIOException("Could not persist stored message", e);
+        } finally {
+            lock.readLock().unlock();
+        }
+        maybeCompact();
+        Metric.STORE.recordSince(start);
     }
 
     public void disregardMessage(Message m) {
-        disregardedMessages.add(m);
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            disregardedMessages.add(m);
+            disregardedIndex.add(m);
+            payloadIndex.add(m);
+        } finally {
+            lock.readLock().unlock();
+        }
+        Metric.DISREGARD.recordSince(start);
     }
 
-    // --- Getters (arrays) ---
-    public List<Message> getSentMessages() { return sentMessages; }
-    public List<Message> getStoredMessages() { return storedMessages; }
-    public List<Message> getDisregardedMessages() { return disregardedMessages; }
+    // --- Bulk adds --- one lock hold and (for stores) one log write per chunk rather than per message
+
+    public void sendAll(Iterable<Message> messages) { addAll(messages, Category.SENT); }
+    public void sendAll(Stream<Message> messages) { addAll(messages::iterator, Category.SENT); }
+
+    /** Chunk by chunk as {@link #storeMessage}; a failed log write throws and stops at that chunk. */
+    public void storeAll(Iterable<Message> messages) { addAll(messages, Category.STORED); }
+    public void storeAll(Stream<Message> messages) { addAll(messages::iterator, Category.STORED); }
+
+    public void disregardAll(Iterable<Message> messages) { addAll(messages, Category.DISREGARDED); }
+    public void disregardAll(Stream<Message> messages) { addAll(messages::iterator, Category.DISREGARDED); }
+
+    private enum Category { SENT, STORED, DISREGARDED }
+
+    private void addAll(Iterable<Message> messages, Category category) {
+        if (category == Category.STORED) awaitStored();
+        Iterator<Message> it = messages.iterator();
+        List<Message> chunk = new ArrayList<>(Math.min(BULK_CHUNK, messages instanceof Collection<?> c ? c.size() : BULK_CHUNK));
+        while (it.hasNext()) {
+            chunk.clear();
+            while (it.hasNext() && chunk.size() < BULK_CHUNK) chunk.add(it.next());
+            lock.readLock().lock();
+            try {
+                if (category == Category.STORED) storeLog.appendStores(chunk);
+                if (columnar && category == Category.STORED) {
+                    storedColumns.appendAll(chunk);
+                } else {
+                    MessageBuffer buffer = switch (category) {
+                        case SENT -> sentMessages;
+                        case STORED -> storedMessages;
+                        case DISREGARDED -> disregardedMessages;
+                    };
+                    MessageIndex index = switch (category) {
+                        case SENT -> sentIndex;
+                        case STORED -> storedIndex;
+                        case DISREGARDED -> disregardedIndex;
+                    };
+                    for (Message m : chunk) {
+                        buffer.add(m);
+                        index.add(m);
+                        payloadIndex.add(m);
+                    }
+                }
+                Mailboxes boxes = mailboxes;
+                if (category == Category.SENT && boxes != null) {
+                    for (Message m : chunk) boxes.deliver(m);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not persist stored messages", e);
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (category == Category.STORED) maybeCompact();
+        }
+    }
+
+    // --- Getters (arrays) --- read-only views; they see later adds but not later deletes
+    public List<Message> getSentMessages() { return Collections.unmodifiableList(sentMessages); }
+    public List<Message> getStoredMessages() {
+        return storedLoaded.isDone() ? storedView() : new PendingStoredView();
+    }
+
+    // the stored messages as a read-only list; a fixed snapshot when they are held as columns
+    private List<Message> storedView() {
+        return columnar ? storedColumns.snapshot() : Collections.unmodifiableList(storedMessages);
+    }
+
+    // the stored list itself, for queries and persistence
+    private List<Message> storedList() {
+        return columnar ? storedColumns.snapshot() : storedMessages;
+    }
+    public List<Message> getDisregardedMessages() { return Collections.unmodifiableList(disregardedMessages); }
+
+    /**
+     * Parallel scans over the sent, stored and disregarded messages as they are now (archived
+     * messages are not included). Later adds and deletes do not affect the returned query.
+     */
+    public MessageQuery query() {
+        awaitStored();
+        lock.readLock().lock();
+        try {
+            return new MessageQuery(List.of(sentMessages, storedList(), disregardedMessages));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
 
     // parallel arrays derived
     public List<String> getAllMessageIDs() {
+        awaitStored();
         List<String> ids = new ArrayList<>();
         ids.addAll(sentMessages.stream().map(Message::getMessageID).collect(Collectors.toList()));
-        ids.addAll(storedMessages.stream().map(Message::getMessageID).collect(Collectors.toList()));
+        ids.addAll(storedList().stream().map(Message::getMessageID).collect(Collectors.toList()));
         ids.addAll(disregardedMessages.stream().map(Message::getMessageID).collect(Collectors.toList()));
         return ids;
     }
     public List<String> getAllMessageHashes() {
+        awaitStored();
         List<String> hs = new ArrayList<>();
         hs.addAll(sentMessages.stream().map(Message::getMessageHash).collect(Collectors.toList()));
-        hs.addAll(storedMessages.stream().map(Message::getMessageHash).collect(Collectors.toList()));
+        hs.addAll(storedList().stream().map(Message::getMessageHash).collect(Collectors.toList()));
         hs.addAll(disregardedMessages.stream().map(Message::getMessageHash).collect(Collectors.toList()));
         return hs;
     }
@@ -66,26 +341,35 @@ public class MessageManager {
      * (The app only tracks the current user as sender, so sender shown generically.)
      */
     public String displaySenderRecipientAllSent() {
-        if (sentMessages.isEmpty()) return "No sent messages.";
-        StringBuilder sb = new StringBuilder();
-        for (Message m : sentMessages) {
-            sb.append("Sender: (current user) | Recipient: ").append(m.getRecipient()).append("\n");
+        lock.readLock().lock();
+        try {
+            return senderRecipientView.render(sentMessages);
+        } finally {
+            lock.readLock().unlock();
         }
-        return sb.toString();
     }
 
     /**
      * b) Display the longest message (across all arrays — matches PoE requirement).
      */
     public Message getLongestMessageAcrossAll() {
-        Message longest = null;
-        int max = -1;
-        for (Message m : allMessagesIterable()) {
-            if (m.getPayload() != null && m.getPayload().length() > max) {
-                max = m.getPayload().length();
-                longest = m;
-            }
+        awaitStored();
+        lock.readLock().lock();
+        try {
+            Message longest = longer(null, longestSent.longest(sentMessages));
+            longest = longer(longest, columnar ? storedColumns.getLongestMessage() : longestStored.longest(storedMessages));
+            MessageArchive a = archive;
+            if (a != null) longest = longer(longest, a.getLongestMessage());
+            return longer(longest, longestDisregarded.longest(disregardedMessages));
+        } finally {
+            lock.readLock().unlock();
         }
+    }
+
+    // the earlier candidate wins ties
+    private static Message longer(Message longest, Message candidate) {
+        if (candidate == null) return longest;
+        if (longest == null || candidate.getPayload().length() > longest.getPayload().length()) return candidate;
         return longest;
     }
 
@@ -94,8 +378,20 @@ public class MessageManager {
      */
     public Message searchByMessageID(String id) {
         if (id == null) return null;
-        for (Message m : allMessagesIterable()) if (id.equals(m.getMessageID())) return m;
-        return null;
+        awaitStored();
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            Message m = sentIndex.firstById(id);
+            if (m == null) m = columnar ? storedColumns.searchByMessageID(id) : storedIndex.firstById(id);
+            MessageArchive a = archive;
+            if (m == null && a != null) m = a.searchByMessageID(id);
+            if (m == null) m = disregardedIndex.firstById(id);
+            return m;
+        } finally {
+            lock.readLock().unlock();
+            Metric.SEARCH.recordSince(start);
+        }
     }
 
     /**
@@ -103,74 +399,292 @@ public class MessageManager {
      */
     public List<Message> searchMessagesByRecipient(String recipient) {
         List<Message> results = new ArrayList<>();
-        for (Message m : allMessagesIterable()) {
-            if (recipient != null && recipient.equals(m.getRecipient())) results.add(m);
+        if (recipient == null) return results;
+        awaitStored();
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            results.addAll(sentIndex.byRecipient(recipient));
+            results.addAll(columnar ? storedColumns.searchMessagesByRecipient(recipient) : storedIndex.byRecipient(recipient));
+            MessageArchive a = archive;
+            if (a != null) results.addAll(a.searchMessagesByRecipient(recipient));
+            results.addAll(disregardedIndex.byRecipient(recipient));
+            return results;
+        } finally {
+            lock.readLock().unlock();
+            Metric.SEARCH.recordSince(start);
+        }
+    }
+
+    /**
+     * Keyword search over the payloads of sent, stored and disregarded messages (archived messages,
+     * and stored ones held as columns, are not indexed). Every word must appear; "word*" matches
+     * by prefix. Best matches first.
+     */
+    public List<Message> searchPayload(String query, int limit) {
+        awaitStored();
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            return payloadIndex.search(query, limit);
+        } finally {
+            lock.readLock().unlock();
+            Metric.SEARCH.recordSince(start);
         }
-        return results;
+    }
+
+    public List<Message> searchPayload(String query) {
+        return searchPayload(query, 50);
     }
 
     /**
      * e) Delete a message using the message hash; persist stored changes.
      */
     public boolean deleteMessageByHash(String hash) {
-        boolean removed = sentMessages.removeIf(m -> hash.equals(m.getMessageHash()));
-        removed |= storedMessages.removeIf(m -> hash.equals(m.getMessageHash()));
-        removed |= disregardedMessages.removeIf(m -> hash.equals(m.getMessageHash()));
-        if (removed) saveStoredMessages();
-        return removed;
+        awaitStored();
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            Set<Message> doomed = matching(sentIndex, hash);
+            boolean removed = !doomed.isEmpty();
+            if (removed) {
+                MessageBuffer before = sentMessages;
+                sentMessages = without(before, doomed, longestSent);
+                senderRecipientView.removed(before, doomed, sentMessages);
+                sentReportView.removed(before, doomed, sentMessages);
+                Mailboxes boxes = mailboxes;
+                if (boxes != null) {
+                    for (Message m : doomed) boxes.withdraw(m);
+                }
+            }
+
+            Collection<Message> doomedStored;
+            if (columnar) {
+                doomedStored = storedColumns.removeByHash(hash);
+            } else {
+                Set<Message> matched = matching(storedIndex, hash);
+                if (!matched.isEmpty()) storedMessages = without(storedMessages, matched, longestStored);
+                doomedStored = matched;
+            }
+            if (!doomedStored.isEmpty()) {
+                removed = true;
+                try {
+                    storeLog.appendDelete(hash, doomedStored);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                compactStoredMessages();
+            }
+
+            MessageArchive a = archive;
+            if (a != null && a.deleteByHash(hash)) removed = true;
+
+            Set<Message> doomedDisregarded = matching(disregardedIndex, hash);
+            if (!doomedDisregarded.isEmpty()) {
+                disregardedMessages = without(disregardedMessages, doomedDisregarded, longestDisregarded);
+                removed = true;
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+            Metric.DELETE.recordSince(start);
+        }
     }
 
     /**
      * f) Display a report listing full details of all sent messages.
      */
     public String generateSentMessagesReport() {
-        if (sentMessages.isEmpty()) return "No sent messages.";
-        StringBuilder sb = new StringBuilder();
-        for (Message m : sentMessages) {
-            sb.append("Hash: ").append(m.getMessageHash())
-              .append(" | Recipient: ").append(m.getRecipient())
-              .append(" | Message: ").append(m.getPayload())
-              .append("\n");
+        lock.readLock().lock();
+        try {
+            return sentReportView.render(sentMessages);
+        } finally {
+            lock.readLock().unlock();
         }
-        return sb.toString();
     }
 
-    // Helper to iterate through all messages (sent, stored, disregarded)
-    private List<Message> allMessagesIterable() {
-        List<Message> all = new ArrayList<>();
-        all.addAll(sentMessages);
-        all.addAll(storedMessages);
-        all.addAll(disregardedMessages);
-        return all;
+    // Pulls every message with this hash out of the index (caller holds the write lock)
+    private static Set<Message> matching(MessageIndex index, String hash) {
+        Set<Message> doomed = Collections.newSetFromMap(new IdentityHashMap<>());
+        doomed.addAll(index.byHash(hash));
+        if (!doomed.isEmpty()) index.removeAll(doomed);
+        return doomed;
+    }
+
+    // Copy of the list minus the doomed messages, with the text index and "longest" view updated to match
+    private MessageBuffer without(MessageBuffer list, Set<Message> doomed, LongestMessageView longest) {
+        MessageBuffer remaining = list.without(doomed::contains);
+        longest.removed(list, doomed, remaining);
+        payloadIndex.removeAll(doomed);
+        return remaining;
     }
 
     // ---------- JSON persistence ----------
+
+    /**
+     * Rewrite the snapshot from the in-memory stored messages and truncate the log.
+     * Caller holds the write lock so no store can slip in between the snapshot and the truncate.
+     */
     private void saveStoredMessages() {
+        long start = System.nanoTime();
+        try {
+            storeLog.compact(storedList());
+            Metric.SAVE.recordSince(start);
+        } catch (Exception e) {
+            Metric.SAVE.failedSince(start);
+            e.printStackTrace();
+        }
+    }
+
+    // Fold the log into a new snapshot once it outgrows the live set (amortised O(1) per append)
+    private void maybeCompact() {
+        if (!storeLog.needsCompaction(storedCount())) return;
+        lock.writeLock().lock();
+        try {
+            compactStoredMessages();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Caller holds the write lock
+    private void compactStoredMessages() {
+        if (!storeLog.needsCompaction(storedCount())) return;
+        long start = System.nanoTime();
         try {
-            mapper.writerWithDefaultPrettyPrinter().writeValue(storedFile, storedMessages);
+            storeLog.compactIfNeeded(storedList());
+            Metric.SAVE.recordSince(start);
         } catch (Exception e) {
+            Metric.SAVE.failedSince(start);
             e.printStackTrace();
         }
     }
 
+    private int storedCount() {
+        return columnar ? (int) storedColumns.size() : storedMessages.size();
+    }
+
+    // Parse and index without the lock (nothing touches the stored list or index until
+    // storedLoaded completes), so sends carry on during a lazy load; publish under the write lock
     private void loadStoredMessages() {
+        long start = System.nanoTime();
         try {
-            if (storedFile.exists()) {
-                List<Message> loaded = mapper.readValue(storedFile, new TypeReference<List<Message>>() {});
-                storedMessages.clear();
-                storedMessages.addAll(loaded);
+            if (columnar) {
+                ColumnarMessageStore loaded = new ColumnarMessageStore();
+                storeLog.load(loaded::append);
+                lock.writeLock().lock();
+                try {
+                    storedColumns = loaded;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                Metric.LOAD.recordSince(start);
+                return;
             }
+            MessageBuffer loaded = new MessageBuffer();
+            storeLog.load(loaded::add);
+            storedIndex.rebuild(loaded);
+            payloadIndex.addAll(loaded);
+            lock.writeLock().lock();
+            try {
+                storedMessages = loaded;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            Metric.LOAD.recordSince(start);
         } catch (Exception e) {
+            Metric.LOAD.failedSince(start);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * getStoredMessages() while a lazy load is running: waits for it on first use, then reads the
+     * loaded list like the usual view.
+     */
+    private final class PendingStoredView extends AbstractList<Message> implements RandomAccess {
+        private volatile List<Message> target;
+
+        private List<Message> target() {
+            List<Message> t = target;
+            if (t == null) {
+                awaitStored();
+                target = t = storedView();
+            }
+            return t;
+        }
+
+        @Override
+        public Message get(int index) { return target().get(index); }
+
+        @Override
+        public int size() { return target().size(); }
+    }
+
+    /**
+     * Stream the stored messages out in any storage format without copying the list.
+     */
+    public long exportStoredMessages(OutputStream out, StorageFormat format) throws IOException {
+        awaitStored();
+        return format.codec().write(out, storedList());
+    }
+
+    /**
+     * Stream messages in (format detected) and store each one as soon as it is parsed.
+     */
+    public long importStoredMessages(InputStream in) throws IOException {
+        return importStoredMessages(in, m -> { });
+    }
+
+    public long importStoredMessages(InputStream in, Consumer<Message> onImported) throws IOException {
+        InputStream buffered = in.markSupported() ? in : new BufferedInputStream(in);
+        return StorageFormat.detect(buffered).codec().read(buffered, m -> {
+            storeMessage(m);
+            onImported.accept(m);
+        });
+    }
+
+    /**
+     * Flush pending log records to disk.
+     */
+    public void flush() {
+        try {
+            storeLog.sync();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void close() {
+        awaitStored();
+        try {
+            storeLog.close();
+            MessageArchive a = archive;
+            if (a != null) a.close();
+        } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
     // ---------- Convenience for tests/demo: populate with the required test data ----------
     public void populateTestData() {
+        awaitStored();
         // Clear current arrays (useful in tests)
-        sentMessages.clear();
-        storedMessages.clear();
-        disregardedMessages.clear();
+        lock.writeLock().lock();
+        try {
+            sentMessages = new MessageBuffer();
+            storedMessages = new MessageBuffer();
+            storedColumns = new ColumnarMessageStore();
+            disregardedMessages = new MessageBuffer();
+            sentIndex.clear();
+            storedIndex.clear();
+            disregardedIndex.clear();
+            payloadIndex.clear();
+            saveStoredMessages();
+        } finally {
+            lock.writeLock().unlock();
+        }
 
         // Message 1 - Sent
         Message m1 = new Message("+27834557896", "Did you get the cake?");
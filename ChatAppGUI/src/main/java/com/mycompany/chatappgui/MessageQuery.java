@@ -0,0 +1,206 @@
+package com.mycompany.chatappgui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Predicate;
+
+/**
+ * Parallel scans and aggregations over one or more message lists, read in place as if they were
+ * concatenated (no combined copy is made). The index range is split fork/join style into leaves
+ * of at least {@code threshold} messages; a query over fewer messages than that runs on the
+ * calling thread. Results are in list order: ties and filters come out exactly as a front-to-back
+ * loop would produce them.
+ * <p>
+ * Sizes are taken when the query is created. The lists must be random-access and must not shrink
+ * (MessageBuffer only grows, and deletes replace it), so a query sees a fixed snapshot while
+ * messages keep arriving.
+ */
+public class MessageQuery {
+
+    public static final int DEFAULT_THRESHOLD = 8192;
+
+    private final List<? extends List<Message>> sources;
+    private final int[] starts; // starts[i] = index of sources[i]'s first message; last entry = total
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    public MessageQuery(List<? extends List<Message>> sources) {
+        this(sources, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    public MessageQuery(List<? extends List<Message>> sources, ForkJoinPool pool, int threshold) {
+        this.sources = sources;
+        this.pool = pool;
+        this.threshold = Math.max(1, threshold);
+        this.starts = new int[sources.size() + 1];
+        long total = 0;
+        for (int i = 0; i < sources.size(); i++) {
+            total += sources.get(i).size();
+            if (total > Integer.MAX_VALUE) throw new IllegalArgumentException("Too many messages to query");
+            starts[i + 1] = (int) total;
+        }
+    }
+
+    /** Same lists, run on another pool or with another leaf size. */
+    public MessageQuery with(ForkJoinPool pool, int threshold) {
+        return new MessageQuery(sources, pool, threshold, starts);
+    }
+
+    private MessageQuery(List<? extends List<Message>> sources, ForkJoinPool pool, int threshold, int[] starts) {
+        this.sources = sources;
+        this.pool = pool;
+        this.threshold = Math.max(1, threshold);
+        this.starts = starts;
+    }
+
+    public int size() { return starts[starts.length - 1]; }
+
+    /** Message with the longest payload (the first one on ties), or null. */
+    public Message longest() {
+        return run((from, to) -> {
+            Message best = null;
+            int max = -1;
+            for (Cursor c = cursor(from); c.index < to; c.advance()) {
+                String payload = c.message.getPayload();
+                if (payload != null && payload.length() > max) {
+                    max = payload.length();
+                    best = c.message;
+                }
+            }
+            return best;
+        }, (left, right) -> right != null && (left == null || right.getPayload().length() > left.getPayload().length()) ? right : left);
+    }
+
+    /** Number of messages per recipient (messages without one are not counted). */
+    public Map<String, Long> countByRecipient() {
+        return run((from, to) -> {
+            Map<String, Long> counts = new HashMap<>();
+            for (Cursor c = cursor(from); c.index < to; c.advance()) {
+                String recipient = c.message.getRecipient();
+                if (recipient != null) counts.merge(recipient, 1L, Long::sum);
+            }
+            return counts;
+        }, (left, right) -> {
+            Map<String, Long> big = left.size() >= right.size() ? left : right;
+            Map<String, Long> small = big == left ? right : left;
+            small.forEach((k, v) -> big.merge(k, v, Long::sum));
+            return big;
+        });
+    }
+
+    /** Messages matching the filter, in list order. */
+    public List<Message> filter(Predicate<? super Message> filter) {
+        List<Message> result = run((from, to) -> {
+            List<Message> hits = new ArrayList<>();
+            for (Cursor c = cursor(from); c.index < to; c.advance()) {
+                if (filter.test(c.message)) hits.add(c.message);
+            }
+            return hits;
+        }, (left, right) -> {
+            left.addAll(right);
+            return left;
+        });
+        return Collections.unmodifiableList(result);
+    }
+
+    public long count(Predicate<? super Message> filter) {
+        return run((from, to) -> {
+            long n = 0;
+            for (Cursor c = cursor(from); c.index < to; c.advance()) {
+                if (filter.test(c.message)) n++;
+            }
+            return n;
+        }, Long::sum);
+    }
+
+    // ---------- Execution ----------
+
+    @FunctionalInterface
+    private interface Leaf<R> {
+        R scan(int from, int to);
+    }
+
+    private <R> R run(Leaf<R> leaf, BinaryOperator<R> combine) {
+        int n = size();
+        if (n <= threshold || pool.getParallelism() == 1) return leaf.scan(0, n);
+        // a few leaves per worker keeps everyone busy when some ranges finish early
+        int grain = Math.max(threshold, n / (pool.getParallelism() * 4));
+        return pool.invoke(new Scan<>(leaf, combine, 0, n, grain));
+    }
+
+    private static final class Scan<R> extends RecursiveTask<R> {
+        private static final long serialVersionUID = 1L;
+
+        private final Leaf<R> leaf;
+        private final BinaryOperator<R> combine;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        Scan(Leaf<R> leaf, BinaryOperator<R> combine, int from, int to, int grain) {
+            this.leaf = leaf;
+            this.combine = combine;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected R compute() {
+            if (to - from <= grain) return leaf.scan(from, to);
+            int mid = (from + to) >>> 1;
+            Scan<R> left = new Scan<>(leaf, combine, from, mid, grain);
+            left.fork();
+            R right = new Scan<>(leaf, combine, mid, to, grain).compute();
+            return combine.apply(left.join(), right);
+        }
+    }
+
+    // ---------- Walking the concatenated lists ----------
+
+    private Cursor cursor(int index) {
+        int s = Arrays.binarySearch(starts, index);
+        // on a hit, skip empty lists that share the start
+        if (s >= 0) {
+            while (s + 1 < starts.length && starts[s + 1] == index) s++;
+        } else {
+            s = -s - 2;
+        }
+        return new Cursor(s, index);
+    }
+
+    private final class Cursor {
+        int source;
+        int offset;
+        int index;
+        Message message;
+
+        Cursor(int source, int index) {
+            this.source = source;
+            this.index = index;
+            this.offset = index - (source < sources.size() ? starts[source] : 0);
+            load();
+        }
+
+        void advance() {
+            index++;
+            offset++;
+            while (source < sources.size() && index >= starts[source + 1]) {
+                source++;
+                offset = 0;
+            }
+            load();
+        }
+
+        private void load() {
+            message = index < size() ? sources.get(source).get(offset) : null;
+        }
+    }
+}
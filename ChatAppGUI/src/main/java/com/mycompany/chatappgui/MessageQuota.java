@@ -0,0 +1,84 @@
+package com.mycompany.chatappgui;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-down allowance split over striped counters. Each thread starts at its own stripe and
+ * takes units with a CAS that never goes below zero, moving on to the other stripes only when
+ * its own runs dry, so the total is never overspent and threads of one user rarely touch the
+ * same cache line. Released units go back to the caller's stripe.
+ */
+public class MessageQuota implements Quota {
+
+    // stripes sit a cache line apart so neighbouring CASes do not collide
+    private static final int PAD = 8;
+
+    private final AtomicLongArray stripes;
+    private final int count;
+
+    public MessageQuota(long limit) {
+        this(limit, defaultStripes());
+    }
+
+    /** {@code stripeCount} is rounded up to a power of two. */
+    public MessageQuota(long limit, int stripeCount) {
+        int n = Integer.highestOneBit(Math.max(1, stripeCount));
+        if (n < stripeCount) n <<= 1;
+        this.count = n;
+        this.stripes = new AtomicLongArray(n * PAD);
+        long total = Math.max(0, limit);
+        for (int i = 0; i < n; i++) stripes.set(i * PAD, total / n + (i < total % n ? 1 : 0));
+    }
+
+    private static int defaultStripes() {
+        return Math.min(64, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    private int home() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9; // ids are sequential; spread them
+        return (h >>> 16) & (count - 1);
+    }
+
+    @Override
+    public int acquireUpTo(int requested) {
+        if (requested <= 0) return 0;
+        int home = home();
+        int needed = requested;
+        // a second pass picks up units released onto a stripe already passed
+        for (int pass = 0; pass < 2 && needed > 0; pass++) {
+            for (int i = 0; i < count && needed > 0; i++) {
+                int at = ((home + i) & (count - 1)) * PAD;
+                long have;
+                while ((have = stripes.get(at)) > 0) {
+                    long take = Math.min(have, needed);
+                    if (stripes.compareAndSet(at, have, have - take)) {
+                        needed -= (int) take;
+                        break;
+                    }
+                }
+            }
+        }
+        return requested - needed;
+    }
+
+    @Override
+    public void release(int units) {
+        if (units > 0) stripes.getAndAdd(home() * PAD, units);
+    }
+
+    /** Add to the allowance (a top-up; negative amounts are ignored). */
+    public void grant(long units) {
+        if (units > 0) stripes.getAndAdd(home() * PAD, units);
+    }
+
+    /** Sum of the stripes; exact when nothing is being taken or released. */
+    @Override
+    public long available() {
+        long sum = 0;
+        for (int i = 0; i < count; i++) sum += stripes.get(i * PAD);
+        return sum;
+    }
+
+    int getStripeCount() { return count; }
+}
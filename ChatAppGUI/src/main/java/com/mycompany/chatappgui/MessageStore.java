@@ -0,0 +1,51 @@
+package com.mycompany.chatappgui;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Durable home of the stored messages behind {@link MessageManager}: replayed once at startup,
+ * then kept up to date with appends and periodically compacted to the live set. See
+ * {@link StoredMessageLog} (one file) and {@link ShardedMessageStore} (one file per shard).
+ */
+public interface MessageStore extends AutoCloseable {
+
+    /** Stream every live stored message to the sink; returns the count. */
+    long load(Consumer<Message> sink) throws IOException;
+
+    void appendStore(Message m) throws IOException;
+
+    /** Append a batch with one flush (and at most one fsync) per file touched. */
+    void appendStores(Iterable<Message> batch) throws IOException;
+
+    /** Record the delete of every stored message with this hash. */
+    void appendDelete(String messageHash) throws IOException;
+
+    /**
+     * Same, when the caller knows which stored messages the hash removed; lets a store write the
+     * record only where those messages live.
+     */
+    default void appendDelete(String messageHash, Collection<Message> removed) throws IOException {
+        appendDelete(messageHash);
+    }
+
+    /** True once the appends since the last compaction outweigh the live set. */
+    boolean needsCompaction(int liveCount);
+
+    /** Rewrite the persisted state as exactly the given live messages. */
+    void compact(Collection<Message> live) throws IOException;
+
+    /**
+     * Compact if {@link #needsCompaction} says so; a store may rewrite only the parts that need it.
+     */
+    default void compactIfNeeded(Collection<Message> live) throws IOException {
+        if (needsCompaction(live.size())) compact(live);
+    }
+
+    /** Force buffered appends to disk. */
+    void sync() throws IOException;
+
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,107 @@
+package com.mycompany.chatappgui;
+
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Table model over a message list that never materialises the whole list: rows are rendered a
+ * page at a time on a background thread when the table first asks for them, and only the most
+ * recently viewed pages are kept. The list is read by index (MessageManager hands out
+ * random-access views), so opening a view of a million messages costs nothing up front.
+ * <p>
+ * Like Swing models generally, every method here is called on the EDT.
+ */
+class MessageTableModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    static final String LOADING = "...";
+    private static final String[] COLUMNS = {"Message ID", "Message Hash", "Recipient", "Message"};
+
+    // one loader for all views; rendering is cheap, this only keeps it off the EDT
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "message-page-loader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final List<Message> source;
+    private final int rows;
+    private final int pageSize;
+    private final int maxPages;
+    private final Map<Integer, String[][]> pages;
+    private final Set<Integer> pending = new HashSet<>();
+
+    MessageTableModel(List<Message> source) {
+        this(source, 200, 16);
+    }
+
+    MessageTableModel(List<Message> source, int pageSize, int maxPages) {
+        this.source = source;
+        this.rows = source.size(); // later adds are picked up by opening the view again
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+        this.pages = new LinkedHashMap<>(maxPages * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String[][]> eldest) {
+                return size() > MessageTableModel.this.maxPages;
+            }
+        };
+    }
+
+    @Override
+    public int getRowCount() { return rows; }
+
+    @Override
+    public int getColumnCount() { return COLUMNS.length; }
+
+    @Override
+    public String getColumnName(int column) { return COLUMNS[column]; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int page = row / pageSize;
+        String[][] cells = pages.get(page);
+        if (cells == null) {
+            load(page);
+            return LOADING;
+        }
+        return cells[row - page * pageSize][column];
+    }
+
+    /** The message behind a row (read straight from the list, for detail views). */
+    Message getMessage(int row) { return source.get(row); }
+
+    private void load(int page) {
+        if (!pending.add(page)) return;
+        int from = page * pageSize;
+        int to = Math.min(rows, from + pageSize);
+        CompletableFuture.supplyAsync(() -> render(from, to), LOADER)
+                .whenComplete((cells, error) -> SwingUtilities.invokeLater(() -> {
+                    pending.remove(page);
+                    if (error != null) {
+                        error.printStackTrace();
+                        return;
+                    }
+                    pages.put(page, cells);
+                    fireTableRowsUpdated(from, to - 1);
+                }));
+    }
+
+    private String[][] render(int from, int to) {
+        String[][] cells = new String[to - from][];
+        for (int i = from; i < to; i++) {
+            Message m = source.get(i);
+            cells[i - from] = new String[]{m.getMessageID(), m.getMessageHash(), m.getRecipient(), m.getPayload()};
+        }
+        return cells;
+    }
+}
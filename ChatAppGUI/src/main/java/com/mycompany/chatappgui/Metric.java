@@ -0,0 +1,50 @@
+package com.mycompany.chatappgui;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The instrumented operations. Each keeps a latency histogram (which also counts calls) and a
+ * failure count; see {@link Metrics} for JMX and dumps.
+ * <pre>
+ *   long start = System.nanoTime();
+ *   ...
+ *   Metric.SEND.recordSince(start);
+ * </pre>
+ */
+public enum Metric {
+    SEND("send"),
+    STORE("store"),
+    DISREGARD("disregard"),
+    SEARCH("search"),
+    DELETE("delete"),
+    SAVE("save"),
+    LOAD("load"),
+    LOGIN("login");
+
+    private final String label;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder failures = new LongAdder();
+
+    Metric(String label) {
+        this.label = label;
+    }
+
+    public void recordSince(long startNanos) {
+        latency.record(System.nanoTime() - startNanos);
+    }
+
+    /** Record the call's latency and count it as failed (I/O error, rejected login...). */
+    public void failedSince(long startNanos) {
+        recordSince(startNanos);
+        failures.increment();
+    }
+
+    public String getLabel() { return label; }
+    public LatencyHistogram getLatency() { return latency; }
+    public long getFailures() { return failures.sum(); }
+
+    public void reset() {
+        latency.reset();
+        failures.reset();
+    }
+}
@@ -0,0 +1,139 @@
+package com.mycompany.chatappgui;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishing side of the {@link Metric}s: JMX MBeans, text/JSON snapshots and a periodic dump to
+ * a file, so slow paths can be spotted in a running app with jconsole or by tailing the dump.
+ */
+public final class Metrics {
+
+    public static final String DOMAIN = "com.mycompany.chatappgui";
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private Metrics() {}
+
+    /**
+     * Register one MBean per operation with the platform MBean server (idempotent).
+     */
+    public static synchronized void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (Metric metric : Metric.values()) {
+            try {
+                ObjectName name = new ObjectName(DOMAIN + ":type=Operation,name=" + metric.getLabel());
+                if (!server.isRegistered(name)) server.registerMBean(new OperationMetrics(metric), name);
+            } catch (JMException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /** One line per operation: count, failures, mean and percentiles in microseconds. */
+    public static String toText() {
+        StringBuilder sb = new StringBuilder();
+        for (Metric m : Metric.values()) {
+            LatencyHistogram h = m.getLatency();
+            sb.append(String.format("%-10s count=%d failures=%d mean=%.1fus p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus%n",
+                    m.getLabel(), h.getCount(), m.getFailures(), h.getMean() / 1000.0,
+                    micros(h.getPercentile(50)), micros(h.getPercentile(99)), micros(h.getPercentile(99.9)),
+                    micros(h.getMax())));
+        }
+        return sb.toString();
+    }
+
+    /** {"timestamp":..., "operations":{"send":{"count":..,"p99Micros":..},...}} */
+    public static String toJson() {
+        StringWriter out = new StringWriter();
+        try (JsonGenerator g = FACTORY.createGenerator(out)) {
+            g.writeStartObject();
+            g.writeNumberField("timestamp", System.currentTimeMillis());
+            g.writeObjectFieldStart("operations");
+            for (Metric m : Metric.values()) {
+                LatencyHistogram h = m.getLatency();
+                g.writeObjectFieldStart(m.getLabel());
+                g.writeNumberField("count", h.getCount());
+                g.writeNumberField("failures", m.getFailures());
+                g.writeNumberField("meanMicros", h.getMean() / 1000.0);
+                g.writeNumberField("p50Micros", micros(h.getPercentile(50)));
+                g.writeNumberField("p99Micros", micros(h.getPercentile(99)));
+                g.writeNumberField("p999Micros", micros(h.getPercentile(99.9)));
+                g.writeNumberField("maxMicros", micros(h.getMax()));
+                g.writeEndObject();
+            }
+            g.writeEndObject();
+            g.writeEndObject();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringWriter does not fail
+        }
+        return out.toString();
+    }
+
+    public static void resetAll() {
+        for (Metric m : Metric.values()) m.reset();
+    }
+
+    /**
+     * Rewrite {@code file} with a snapshot every period (JSON if the name ends in ".json", text
+     * otherwise). The file is replaced atomically, so readers never see half a dump. Cancel the
+     * returned future to stop.
+     */
+    public static ScheduledFuture<?> startReporter(File file, long period, TimeUnit unit) {
+        boolean json = file.getName().endsWith(".json");
+        return Reporter.TIMER.scheduleAtFixedRate(() -> {
+            try {
+                File tmp = new File(file.getPath() + ".tmp");
+                Files.writeString(tmp.toPath(), json ? toJson() : toText(), StandardCharsets.UTF_8);
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, period, period, unit);
+    }
+
+    // created on first use only
+    private static final class Reporter {
+        static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+
+    private static final class OperationMetrics implements OperationMetricsMXBean {
+        private final Metric metric;
+
+        OperationMetrics(Metric metric) {
+            this.metric = metric;
+        }
+
+        @Override public long getCount() { return metric.getLatency().getCount(); }
+        @Override public long getFailures() { return metric.getFailures(); }
+        @Override public double getMeanMicros() { return metric.getLatency().getMean() / 1000.0; }
+        @Override public double getP50Micros() { return micros(metric.getLatency().getPercentile(50)); }
+        @Override public double getP99Micros() { return micros(metric.getLatency().getPercentile(99)); }
+        @Override public double getP999Micros() { return micros(metric.getLatency().getPercentile(99.9)); }
+        @Override public double getMaxMicros() { return micros(metric.getLatency().getMax()); }
+        @Override public void reset() { metric.reset(); }
+    }
+}
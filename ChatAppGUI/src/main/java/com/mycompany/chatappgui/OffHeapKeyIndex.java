@@ -0,0 +1,45 @@
+package com.mycompany.chatappgui;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Chained hash index held in direct (off-heap) memory: a slot table of chain heads plus one
+ * "next" link per record ordinal. Keys are only represented by their hash, so callers compare
+ * the real key for every ordinal a chain yields. Links are stored as ordinal + 1, 0 ending a chain.
+ */
+final class OffHeapKeyIndex {
+
+    private final IntBuffer slots;
+    private final IntBuffer next;
+    private final int mask;
+
+    OffHeapKeyIndex(int records) {
+        int capacity = Integer.highestOneBit(Math.max(2, Math.min(records, 1 << 27)) * 2 - 1) << 1;
+        this.mask = capacity - 1;
+        this.slots = ByteBuffer.allocateDirect(capacity * Integer.BYTES).asIntBuffer();
+        this.next = ByteBuffer.allocateDirect(Math.max(1, records) * Integer.BYTES).asIntBuffer();
+    }
+
+    /** Prepend the ordinal to its chain (add in reverse order to keep chains in record order). */
+    void add(int keyHash, int ordinal) {
+        int slot = spread(keyHash) & mask;
+        next.put(ordinal, slots.get(slot));
+        slots.put(slot, ordinal + 1);
+    }
+
+    /** First ordinal in the chain for this hash, or -1. */
+    int first(int keyHash) {
+        return slots.get(spread(keyHash) & mask) - 1;
+    }
+
+    /** Ordinal after this one in its chain, or -1. */
+    int next(int ordinal) {
+        return next.get(ordinal) - 1;
+    }
+
+    private static int spread(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
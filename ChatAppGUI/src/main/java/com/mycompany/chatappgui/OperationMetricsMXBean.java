@@ -0,0 +1,16 @@
+package com.mycompany.chatappgui;
+
+/**
+ * JMX view of one {@link Metric}; registered by {@link Metrics#registerMBeans()} as
+ * {@code com.mycompany.chatappgui:type=Operation,name=<operation>}.
+ */
+public interface OperationMetricsMXBean {
+    long getCount();
+    long getFailures();
+    double getMeanMicros();
+    double getP50Micros();
+    double getP99Micros();
+    double getP999Micros();
+    double getMaxMicros();
+    void reset();
+}
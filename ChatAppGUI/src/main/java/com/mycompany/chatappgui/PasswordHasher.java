@@ -0,0 +1,85 @@
+package com.mycompany.chatappgui;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * PBKDF2 (HmacSHA256, JDK only) password hashing. Hashes are self-describing
+ * ("pbkdf2-sha256$iterations$salt$hash"), so the cost can be retuned without breaking old users.
+ */
+public class PasswordHasher {
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2-sha256";
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BITS = 256;
+
+    public static final int MIN_ITERATIONS = 1_000;
+    public static final int MAX_ITERATIONS = 600_000;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final int iterations;
+
+    public PasswordHasher(int iterations) {
+        this.iterations = Math.max(1, iterations);
+    }
+
+    /**
+     * A hasher whose cost stays within the given time budget per hash on this machine
+     * (measured once, clamped to [MIN_ITERATIONS, MAX_ITERATIONS]).
+     */
+    public static PasswordHasher withBudget(long budgetMillis) {
+        int probe = 10_000;
+        char[] pw = "calibration".toCharArray();
+        byte[] salt = new byte[SALT_BYTES];
+        derive(pw, salt, probe); // warm up the JCE provider
+        long start = System.nanoTime();
+        derive(pw, salt, probe);
+        double nanosPerIteration = Math.max(1, System.nanoTime() - start) / (double) probe;
+        long fit = (long) (budgetMillis * 1_000_000L / nanosPerIteration);
+        return new PasswordHasher((int) Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, fit)));
+    }
+
+    public int getIterations() { return iterations; }
+
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        byte[] dk = derive(password.toCharArray(), salt, iterations);
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + "$" + iterations + "$" + b64.encodeToString(salt) + "$" + b64.encodeToString(dk);
+    }
+
+    /**
+     * Constant-time check of a password against a stored hash; false for malformed hashes.
+     */
+    public boolean verify(String password, String stored) {
+        if (password == null || stored == null) return false;
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4 || !PREFIX.equals(parts[0])) return false;
+        try {
+            int iter = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return MessageDigest.isEqual(expected, derive(password.toCharArray(), salt, iter));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static byte[] derive(char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, KEY_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " unavailable", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
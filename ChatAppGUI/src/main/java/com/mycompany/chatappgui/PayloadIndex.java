@@ -0,0 +1,445 @@
+package com.mycompany.chatappgui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Inverted index over message payloads for keyword and prefix search. Payloads are split into
+ * lower-cased runs of letters and digits. Each message gets an increasing document number and
+ * each term maps to a posting list of (document, term frequency, message length) in document
+ * order, held in int arrays. Terms are kept sorted, so a prefix query ("din*") is a range scan of
+ * the dictionary.
+ * <p>
+ * A query matches messages containing every term (a term ending in '*' matches any word with that
+ * prefix). Posting lists are intersected by walking the rarest one and seeking in the others, and
+ * hits are ranked by BM25 computed from the postings alone, so a search never re-reads payloads.
+ * <p>
+ * Adds only queue the message on a lock-free queue, so senders never wait for each other or for
+ * the index. The queue is indexed by whichever thread holds the indexing lock next: a search or
+ * delete catches up before it runs, and an add that finds more than {@link #MAX_PENDING} queued
+ * messages indexes them if the lock is free. One thread at a time writes the postings (document
+ * numbers must reach every posting list in order) and searches may overlap it.
+ * <p>
+ * Deletes only clear the document's slot; the postings are rewritten once deleted documents
+ * outnumber live ones. Removals must be made while no searches are in flight (MessageManager
+ * holds its write lock).
+ */
+public class PayloadIndex {
+
+    // BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final int MIN_PURGE = 1024;
+    // queued adds beyond this are indexed by the adder (if nobody else is indexing)
+    static final int MAX_PENDING = 4096;
+
+    private final ConcurrentSkipListMap<String, PostingList> postings = new ConcurrentSkipListMap<>();
+
+    // document number -> message, null once deleted; published by docCount
+    private volatile Message[] docs = new Message[1024];
+    private volatile int docCount;
+    private volatile long live;
+    private volatile long liveTokens;
+    private int deleted;
+
+    private final ConcurrentLinkedQueue<Message> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    // held by the one thread writing the postings
+    private final ReentrantLock indexing = new ReentrantLock();
+
+    public void add(Message m) {
+        pending.add(m);
+        if (pendingCount.incrementAndGet() > MAX_PENDING && indexing.tryLock()) {
+            try {
+                catchUp();
+            } finally {
+                indexing.unlock();
+            }
+        }
+    }
+
+    /** Index a batch in one lock hold (e.g. a bulk load); adds from other threads only queue meanwhile. */
+    public void addAll(Iterable<Message> messages) {
+        indexing.lock();
+        try {
+            catchUp();
+            for (Message m : messages) index(m);
+        } finally {
+            indexing.unlock();
+        }
+    }
+
+    /** Index everything queued so far. */
+    void flush() {
+        indexing.lock();
+        try {
+            catchUp();
+        } finally {
+            indexing.unlock();
+        }
+    }
+
+    // caller holds the indexing lock
+    private void catchUp() {
+        Message m;
+        while ((m = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            index(m);
+        }
+    }
+
+    // caller holds the indexing lock
+    private void index(Message m) {
+        List<String> words = tokenize(m.getPayload());
+        if (words.isEmpty()) return;
+        int doc = docCount;
+        if (doc == docs.length) docs = Arrays.copyOf(docs, doc * 2);
+        docs[doc] = m;
+
+        Map<String, int[]> tf = new HashMap<>();
+        for (String w : words) tf.computeIfAbsent(w, k -> new int[1])[0]++;
+        int length = Math.min(words.size(), 0xFFFF);
+        for (Map.Entry<String, int[]> e : tf.entrySet()) {
+            postings.computeIfAbsent(e.getKey(), k -> new PostingList()).add(doc, pack(e.getValue()[0], length));
+        }
+        live++;
+        liveTokens += words.size();
+        docCount = doc + 1;
+    }
+
+    /**
+     * Drop the given messages (compared by identity).
+     */
+    public void removeAll(Set<Message> doomed) {
+        indexing.lock();
+        try {
+            catchUp(); // a doomed message may still be queued
+            remove(doomed);
+        } finally {
+            indexing.unlock();
+        }
+    }
+
+    private void remove(Set<Message> doomed) {
+        Message[] registry = docs;
+        for (Message m : doomed) {
+            List<String> words = tokenize(m.getPayload());
+            // find the document through its rarest term
+            PostingList rarest = null;
+            for (String w : words) {
+                PostingList list = postings.get(w);
+                if (list != null && (rarest == null || list.size < rarest.size)) rarest = list;
+            }
+            if (rarest == null) continue;
+            for (int i = 0; i < rarest.size; i++) {
+                int doc = rarest.docs[i];
+                if (registry[doc] == m) {
+                    registry[doc] = null;
+                    deleted++;
+                    live--;
+                    liveTokens -= words.size();
+                    break;
+                }
+            }
+        }
+        if (deleted >= MIN_PURGE && deleted > live) purge();
+    }
+
+    // Renumber the live documents and rewrite every posting list without the deleted ones
+    private void purge() {
+        Message[] registry = docs;
+        int n = docCount;
+        int[] remap = new int[n];
+        Message[] fresh = new Message[Math.max(1024, Integer.highestOneBit((int) Math.max(1, live)) * 2)];
+        int next = 0;
+        for (int d = 0; d < n; d++) {
+            if (registry[d] == null) {
+                remap[d] = -1;
+            } else {
+                remap[d] = next;
+                fresh[next++] = registry[d];
+            }
+        }
+        for (Iterator<PostingList> it = postings.values().iterator(); it.hasNext(); ) {
+            PostingList list = it.next();
+            list.remap(remap);
+            if (list.size == 0) it.remove();
+        }
+        docs = fresh;
+        docCount = next;
+        deleted = 0;
+    }
+
+    public void clear() {
+        indexing.lock();
+        try {
+            pending.clear();
+            pendingCount.set(0);
+            reset();
+        } finally {
+            indexing.unlock();
+        }
+    }
+
+    private void reset() {
+        postings.clear();
+        docs = new Message[1024];
+        docCount = 0;
+        live = 0;
+        liveTokens = 0;
+        deleted = 0;
+    }
+
+    /** Number of distinct terms in the dictionary. */
+    public int termCount() {
+        flush();
+        return postings.size();
+    }
+
+    // ---------- Searching ----------
+
+    /**
+     * Messages matching every query term, best first, at most {@code limit}.
+     */
+    public List<Message> search(String query, int limit) {
+        List<Term> terms = parse(query);
+        if (terms.isEmpty() || limit <= 0) return Collections.emptyList();
+        flush();
+
+        for (Term t : terms) {
+            t.resolve(postings);
+            if (t.size == 0) return Collections.emptyList();
+        }
+        Message[] registry = docs; // read after the postings, so it covers every document in them
+        long n = Math.max(1, live);
+        double avgLength = Math.max(1.0, (double) liveTokens / n);
+        for (Term t : terms) t.idf = Math.log(1 + (double) n / t.size);
+        terms.sort(Comparator.comparingInt(t -> t.size));
+
+        Term driver = terms.get(0);
+        int[] cursor = new int[terms.size()];
+        PriorityQueue<Hit> best = new PriorityQueue<>(); // worst hit on top
+        next:
+        for (int i = 0; i < driver.size; i++) {
+            int doc = driver.docs[i];
+            Message m = registry[doc];
+            if (m == null) continue;
+            double score = driver.weight(i, avgLength);
+            for (int k = 1; k < terms.size(); k++) {
+                Term t = terms.get(k);
+                int pos = t.seek(doc, cursor[k]);
+                cursor[k] = pos;
+                if (pos >= t.size) break next; // this term has no later documents
+                if (t.docs[pos] != doc) continue next;
+                score += t.weight(pos, avgLength);
+            }
+            if (best.size() < limit) {
+                best.add(new Hit(m, doc, score));
+            } else if (best.peek().isWorseThan(score, doc)) {
+                best.poll();
+                best.add(new Hit(m, doc, score));
+            }
+        }
+        List<Message> results = new ArrayList<>(best.size());
+        while (!best.isEmpty()) results.add(best.poll().message);
+        Collections.reverse(results);
+        return results;
+    }
+
+    private static int pack(int tf, int length) {
+        return Math.min(tf, 0xFFFF) << 16 | length;
+    }
+
+    // ---------- Tokenizing ----------
+
+    /**
+     * Lower-cased runs of letters and digits, in order (duplicates kept).
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) return Collections.emptyList();
+        List<String> out = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        int n = text.length();
+        for (int i = 0; i < n; ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (Character.isLetterOrDigit(cp)) {
+                word.appendCodePoint(Character.toLowerCase(cp));
+            } else if (word.length() > 0) {
+                out.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (word.length() > 0) out.add(word.toString());
+        return out;
+    }
+
+    private static List<Term> parse(String query) {
+        List<Term> terms = new ArrayList<>();
+        if (query == null) return terms;
+        for (String piece : query.trim().split("\\s+")) {
+            boolean prefix = piece.endsWith("*");
+            List<String> words = tokenize(piece);
+            for (int i = 0; i < words.size(); i++) {
+                terms.add(new Term(words.get(i), prefix && i == words.size() - 1));
+            }
+        }
+        return terms;
+    }
+
+    // ---------- Structures ----------
+
+    /**
+     * Append-only (doc, packed tf/length) pairs in document order. One writer at a time; readers
+     * take size first and then see at least that many entries in the arrays.
+     */
+    private static final class PostingList {
+        volatile int[] docs = new int[2];
+        volatile int[] stats = new int[2];
+        volatile int size;
+
+        void add(int doc, int stat) {
+            int n = size;
+            if (n == docs.length) {
+                docs = Arrays.copyOf(docs, n * 2);
+                stats = Arrays.copyOf(stats, n * 2);
+            }
+            docs[n] = doc;
+            stats[n] = stat;
+            size = n + 1;
+        }
+
+        // no readers or writers while this runs
+        void remap(int[] remap) {
+            int w = 0;
+            for (int i = 0; i < size; i++) {
+                int doc = remap[docs[i]];
+                if (doc < 0) continue;
+                docs[w] = doc;
+                stats[w] = stats[i];
+                w++;
+            }
+            size = w;
+        }
+    }
+
+    /** One query term resolved to a document-ordered view of its postings. */
+    private static final class Term {
+        final String text;
+        final boolean prefix;
+        int[] docs;
+        int[] stats;
+        int size;
+        double idf;
+
+        Term(String text, boolean prefix) {
+            this.text = text;
+            this.prefix = prefix;
+        }
+
+        void resolve(ConcurrentSkipListMap<String, PostingList> postings) {
+            if (!prefix) {
+                PostingList list = postings.get(text);
+                if (list != null) {
+                    size = list.size;
+                    docs = list.docs;
+                    stats = list.stats;
+                }
+                return;
+            }
+            // union of every expansion, merged into one document-ordered list (tf summed per doc)
+            List<PostingList> lists = new ArrayList<>();
+            List<Integer> sizes = new ArrayList<>();
+            long total = 0;
+            for (PostingList list : postings.subMap(text, true, text + Character.MAX_VALUE, false).values()) {
+                int n = list.size;
+                lists.add(list);
+                sizes.add(n);
+                total += n;
+            }
+            long[] merged = new long[(int) Math.min(total, Integer.MAX_VALUE - 8)];
+            int m = 0;
+            for (int l = 0; l < lists.size(); l++) {
+                PostingList list = lists.get(l);
+                int n = sizes.get(l);
+                int[] d = list.docs, s = list.stats;
+                for (int i = 0; i < n && m < merged.length; i++) merged[m++] = (long) d[i] << 32 | (s[i] & 0xFFFFFFFFL);
+            }
+            Arrays.sort(merged, 0, m);
+            docs = new int[m];
+            stats = new int[m];
+            int w = -1;
+            for (int i = 0; i < m; i++) {
+                int doc = (int) (merged[i] >>> 32);
+                int stat = (int) merged[i];
+                if (w >= 0 && docs[w] == doc) {
+                    stats[w] = pack((stats[w] >>> 16) + (stat >>> 16), stat & 0xFFFF);
+                } else {
+                    docs[++w] = doc;
+                    stats[w] = stat;
+                }
+            }
+            size = w + 1;
+        }
+
+        // first position at or after `from` whose document is >= doc (galloping, then binary search)
+        int seek(int doc, int from) {
+            if (from >= size || docs[from] >= doc) return from;
+            int step = 1, lo = from, hi = from + 1;
+            while (hi < size && docs[hi] < doc) {
+                lo = hi;
+                step <<= 1;
+                hi = from + step;
+            }
+            hi = Math.min(hi, size);
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (docs[mid] < doc) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        double weight(int pos, double avgLength) {
+            int tf = stats[pos] >>> 16;
+            int length = stats[pos] & 0xFFFF;
+            return idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / avgLength));
+        }
+    }
+
+    private static final class Hit implements Comparable<Hit> {
+        final Message message;
+        final int doc;
+        final double score;
+
+        Hit(Message message, int doc, double score) {
+            this.message = message;
+            this.doc = doc;
+            this.score = score;
+        }
+
+        // lower score is worse; on equal scores the later document is worse
+        boolean isWorseThan(double otherScore, int otherDoc) {
+            return score < otherScore || (score == otherScore && doc > otherDoc);
+        }
+
+        @Override
+        public int compareTo(Hit o) {
+            if (score != o.score) return Double.compare(score, o.score);
+            return Integer.compare(o.doc, doc);
+        }
+    }
+}
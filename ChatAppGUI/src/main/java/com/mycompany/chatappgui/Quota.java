@@ -0,0 +1,102 @@
+package com.mycompany.chatappgui;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An allowance that can be drawn down atomically from any number of threads without locks
+ * (see {@link MessageQuota} for counts and {@link TokenBucket} for rates).
+ * <pre>
+ *   try (Quota.Reservation r = quota.reserve(1)) {
+ *       if (r.getGranted() == 0) return;   // nothing left
+ *       ... do the work ...
+ *       r.commit();                        // otherwise closing hands the units back
+ *   }
+ * </pre>
+ */
+public interface Quota {
+
+    /** Take up to {@code requested} units; returns how many were taken (0 when none are left). */
+    int acquireUpTo(int requested);
+
+    /** Hand back units taken earlier and not used. */
+    void release(int units);
+
+    /** Units that could be taken right now. */
+    long available();
+
+    /** Take exactly {@code units} or nothing. */
+    default boolean tryAcquire(int units) {
+        int granted = acquireUpTo(units);
+        if (granted == units) return true;
+        if (granted > 0) release(granted);
+        return false;
+    }
+
+    /** Take up to {@code requested} units on hold until the reservation is committed or closed. */
+    default Reservation reserve(int requested) {
+        return new Reservation(this, acquireUpTo(requested));
+    }
+
+    /**
+     * Both quotas at once: units are granted only where both have them, and the surplus one of
+     * them granted is handed straight back.
+     */
+    static Quota allOf(Quota first, Quota second) {
+        return new Quota() {
+            @Override
+            public int acquireUpTo(int requested) {
+                int a = first.acquireUpTo(requested);
+                if (a == 0) return 0;
+                int b = second.acquireUpTo(a);
+                if (b < a) first.release(a - b);
+                return b;
+            }
+
+            @Override
+            public void release(int units) {
+                first.release(units);
+                second.release(units);
+            }
+
+            @Override
+            public long available() {
+                return Math.min(first.available(), second.available());
+            }
+        };
+    }
+
+    /**
+     * Units held for one operation. {@link #commit(int)} keeps the ones used and returns the rest;
+     * closing without committing returns them all. Only the first commit or close counts.
+     */
+    final class Reservation implements AutoCloseable {
+        private final Quota quota;
+        private final int granted;
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        Reservation(Quota quota, int granted) {
+            this.quota = quota;
+            this.granted = granted;
+        }
+
+        public int getGranted() { return granted; }
+
+        public void commit() {
+            commit(granted);
+        }
+
+        public void commit(int used) {
+            if (used < 0 || used > granted) throw new IllegalArgumentException("Used " + used + " of " + granted);
+            if (settled.compareAndSet(false, true) && used < granted) quota.release(granted - used);
+        }
+
+        public void cancel() {
+            if (settled.compareAndSet(false, true) && granted > 0) quota.release(granted);
+        }
+
+        @Override
+        public void close() {
+            cancel();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.mycompany.chatappgui;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One entry of a bulk user import: the fields {@link Login#registerUser} takes, password in
+ * plaintext until it is registered. Has no-arg constructor for JSON (Jackson).
+ */
+public class Registration {
+    private static final ObjectReader READER = new ObjectMapper().readerFor(Registration.class);
+
+    private String firstName;
+    private String lastName;
+    private String username;
+    private String password;
+    private String cellPhone;
+    private int messageQuota;
+
+    public Registration() {}
+
+    public Registration(String firstName, String lastName, String username, String password, String cellPhone, int messageQuota) {
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.username = username;
+        this.password = password;
+        this.cellPhone = cellPhone;
+        this.messageQuota = messageQuota;
+    }
+
+    /**
+     * Read a user file: either a JSON array of registrations or one object per line (NDJSON).
+     */
+    public static List<Registration> readAll(InputStream in) throws IOException {
+        List<Registration> out = new ArrayList<>();
+        try (MappingIterator<Registration> it = READER.readValues(in)) {
+            while (it.hasNextValue()) out.add(it.nextValue());
+        }
+        return out;
+    }
+
+    public String getFirstName() { return firstName; }
+    public void setFirstName(String firstName) { this.firstName = firstName; }
+
+    public String getLastName() { return lastName; }
+    public void setLastName(String lastName) { this.lastName = lastName; }
+
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public String getPassword() { return password; }
+    public void setPassword(String password) { this.password = password; }
+
+    public String getCellPhone() { return cellPhone; }
+    public void setCellPhone(String cellPhone) { this.cellPhone = cellPhone; }
+
+    public int getMessageQuota() { return messageQuota; }
+    public void setMessageQuota(int messageQuota) { this.messageQuota = messageQuota; }
+}
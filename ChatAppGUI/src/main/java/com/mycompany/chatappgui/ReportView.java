@@ -0,0 +1,110 @@
+package com.mycompany.chatappgui;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * A text report over one message list, kept as rendered chunks of up to {@link #CHUNK} lines.
+ * Each call only renders the messages added since the previous one (into the last chunk), and an
+ * unchanged list returns the same String. A delete re-renders just the chunks that held the
+ * deleted messages, so no call ever re-renders the whole list; only joining the chunks into the
+ * returned String touches every line.
+ */
+final class ReportView {
+
+    static final int CHUNK = 256;
+
+    private static final class Chunk {
+        final Message[] messages = new Message[CHUNK];
+        int count;
+        String text = ""; // the lines of messages[0, count)
+    }
+
+    private final BiConsumer<StringBuilder, Message> line;
+    private final String emptyText;
+
+    private final List<Chunk> chunks = new ArrayList<>();
+    private final StringBuilder scratch = new StringBuilder();
+    private MessageBuffer source;
+    private int rendered;
+    private String cached;
+
+    ReportView(BiConsumer<StringBuilder, Message> line, String emptyText) {
+        this.line = line;
+        this.emptyText = emptyText;
+    }
+
+    synchronized String render(MessageBuffer current) {
+        catchUp(current);
+        if (rendered == 0) return emptyText;
+        if (cached == null) {
+            int length = 0;
+            for (Chunk c : chunks) length += c.text.length();
+            StringBuilder joined = new StringBuilder(length);
+            for (Chunk c : chunks) joined.append(c.text);
+            cached = joined.toString();
+        }
+        return cached;
+    }
+
+    /**
+     * A delete replaced {@code before} with {@code after} (= before minus doomed). Called while
+     * no adds are in flight (the manager's write lock).
+     */
+    synchronized void removed(MessageBuffer before, Set<Message> doomed, MessageBuffer after) {
+        if (before != source) {
+            source = null; // never tracked this one: rebuild lazily from the new list
+            return;
+        }
+        catchUp(before);
+        for (Iterator<Chunk> it = chunks.iterator(); it.hasNext(); ) {
+            Chunk c = it.next();
+            int kept = 0;
+            for (int i = 0; i < c.count; i++) {
+                if (!doomed.contains(c.messages[i])) c.messages[kept++] = c.messages[i];
+            }
+            if (kept == c.count) continue;
+            rendered -= c.count - kept;
+            for (int i = kept; i < c.count; i++) c.messages[i] = null;
+            c.count = kept;
+            if (kept == 0) {
+                it.remove();
+            } else {
+                scratch.setLength(0);
+                for (int i = 0; i < kept; i++) line.accept(scratch, c.messages[i]);
+                c.text = scratch.toString();
+            }
+            cached = null;
+        }
+        source = after;
+    }
+
+    private void catchUp(MessageBuffer current) {
+        if (current != source) {
+            source = current;
+            chunks.clear();
+            rendered = 0;
+            cached = null;
+        }
+        int n = current.size();
+        while (rendered < n) {
+            Chunk last = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+            if (last == null || last.count == CHUNK) {
+                last = new Chunk();
+                chunks.add(last);
+            }
+            scratch.setLength(0);
+            scratch.append(last.text);
+            for (; rendered < n && last.count < CHUNK; rendered++) {
+                Message m = current.get(rendered);
+                last.messages[last.count++] = m;
+                line.accept(scratch, m);
+            }
+            last.text = scratch.toString();
+            cached = null;
+        }
+    }
+}
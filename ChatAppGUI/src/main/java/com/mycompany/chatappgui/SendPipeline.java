@@ -0,0 +1,301 @@
+package com.mycompany.chatappgui;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, batching ingestion stage in front of {@link MessageManager}. Producers submit single
+ * messages; one worker drains them in batches (up to {@code maxBatch}, waiting at most
+ * {@code lingerMillis} for a batch to fill), applies the send rules once per batch and hands the
+ * survivors to {@link MessageManager#sendAll} or {@link MessageManager#storeAll}, so a burst of
+ * stores becomes a few log writes instead of one per message.
+ * <p>
+ * The queue is bounded: {@link #submit} blocks and {@link #offer} times out while it is full, so
+ * producers are slowed to the rate the manager can absorb. Quota is reserved per sender per
+ * batch and only committed once the batch is in the manager, so a failed batch costs nothing.
+ * If the worker dies, everything queued fails and later submissions are rejected.
+ */
+public class SendPipeline implements AutoCloseable {
+
+    public enum Mode {
+        /** Sent messages: 250-char limit and the sender's quota apply. */
+        SEND,
+        /** Stored messages: no limit, persisted in coalesced log writes. */
+        STORE
+    }
+
+    public enum Outcome { SENT, STORED, TOO_LONG, NO_QUOTA, RATE_LIMITED }
+
+    // how often a producer blocked on a full queue checks whether the pipeline closed
+    private static final long SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long FOREVER = Long.MAX_VALUE;
+
+    private static final class Submission {
+        final Message message;
+        final User sender;
+        final CompletableFuture<Outcome> result = new CompletableFuture<>();
+
+        Submission(Message message, User sender) {
+            this.message = message;
+            this.sender = sender;
+        }
+    }
+
+    private final MessageManager manager;
+    private final Mode mode;
+    private final BlockingQueue<Submission> queue;
+    private final int maxBatch;
+    private final long lingerNanos;
+    private final Thread worker;
+    private volatile boolean closed;
+
+    private final long startNanos = System.nanoTime();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder tooLong = new LongAdder();
+    private final LongAdder noQuota = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    public SendPipeline(MessageManager manager, Mode mode) {
+        this(manager, mode, 4096, 256, 2);
+    }
+
+    public SendPipeline(MessageManager manager, Mode mode, int capacity, int maxBatch, long lingerMillis) {
+        this.manager = manager;
+        this.mode = mode;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = Math.max(1, maxBatch);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.worker = new Thread(this::drain, "send-pipeline-" + mode.name().toLowerCase());
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Queue a message, blocking while the pipeline is full. {@code sender} may be null (no quota).
+     */
+    public CompletableFuture<Outcome> submit(Message m, User sender) throws InterruptedException {
+        Submission s = accept(m, sender);
+        enqueue(s, FOREVER);
+        return s.result;
+    }
+
+    /**
+     * Queue a message, waiting at most the given time for space; null if the pipeline stayed full.
+     */
+    public CompletableFuture<Outcome> offer(Message m, User sender, long timeout, TimeUnit unit) throws InterruptedException {
+        Submission s = accept(m, sender);
+        if (!enqueue(s, unit.toNanos(timeout))) return null;
+        return s.result;
+    }
+
+    private Submission accept(Message m, User sender) {
+        if (closed) throw new IllegalStateException("Pipeline is closed");
+        return new Submission(m, sender);
+    }
+
+    // waits in short slices so a producer stuck behind a full queue notices the pipeline closing
+    private boolean enqueue(Submission s, long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        long left = timeoutNanos;
+        while (!queue.offer(s, Math.min(left, SLICE_NANOS), TimeUnit.NANOSECONDS)) {
+            if (closed) throw new IllegalStateException("Pipeline is closed");
+            if (timeoutNanos != FOREVER && (left = deadline - System.nanoTime()) <= 0) return false;
+        }
+        // close() (or a dying worker) may already have taken its last look at the queue; whoever
+        // removes the submission first owns it, so it is either processed or rejected here
+        if (closed && queue.remove(s)) throw new IllegalStateException("Pipeline is closed");
+        submitted.increment();
+        return true;
+    }
+
+    private void drain() {
+        List<Submission> batch = new ArrayList<>(maxBatch);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Submission first = queue.poll(50, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatch) {
+                    queue.drainTo(batch, maxBatch - batch.size());
+                    long left = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatch || left <= 0) break;
+                    Submission next = queue.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                process(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(batch, new IllegalStateException("Pipeline worker was interrupted", e));
+        } catch (RuntimeException | Error e) {
+            abandon(batch, e);
+            throw e;
+        }
+    }
+
+    // the worker is gone: fail what it held and everything queued, and stop taking more
+    private void abandon(List<Submission> batch, Throwable cause) {
+        closed = true;
+        List<Submission> rest = new ArrayList<>(batch);
+        queue.drainTo(rest);
+        for (Submission s : rest) s.result.completeExceptionally(cause);
+    }
+
+    private void process(List<Submission> batch) {
+        List<Submission> valid = new ArrayList<>(batch.size());
+        for (Submission s : batch) {
+            String payload = s.message.getPayload();
+            if (mode == Mode.SEND && payload != null && payload.length() > Message.MAX_SEND_LENGTH) {
+                tooLong.increment();
+                s.result.complete(Outcome.TOO_LONG);
+            } else {
+                valid.add(s);
+            }
+        }
+
+        // one reservation per sender per batch; messages are granted in submission order
+        Map<User, Quota.Reservation> reservations = new IdentityHashMap<>();
+        try {
+            Map<User, Integer> granted = new IdentityHashMap<>();
+            if (mode == Mode.SEND) {
+                Map<User, Integer> wanted = new IdentityHashMap<>();
+                for (Submission s : valid) if (s.sender != null) wanted.merge(s.sender, 1, Integer::sum);
+                wanted.forEach((user, count) -> {
+                    Quota.Reservation r = user.reserveSends(count);
+                    reservations.put(user, r);
+                    granted.put(user, r.getGranted());
+                });
+            }
+
+            List<Message> messages = new ArrayList<>(valid.size());
+            List<Submission> kept = new ArrayList<>(valid.size());
+            for (Submission s : valid) {
+                if (s.sender != null && mode == Mode.SEND) {
+                    int left = granted.get(s.sender);
+                    if (left == 0) {
+                        refuse(s);
+                        continue;
+                    }
+                    granted.put(s.sender, left - 1);
+                }
+                messages.add(s.message);
+                kept.add(s);
+            }
+
+            try {
+                if (mode == Mode.SEND) manager.sendAll(messages);
+                else manager.storeAll(messages);
+            } catch (RuntimeException e) {
+                // hand the sends back before anyone waiting on the futures can look at the quota
+                for (Quota.Reservation r : reservations.values()) r.close();
+                for (Submission s : kept) s.result.completeExceptionally(e);
+                return;
+            }
+            for (Quota.Reservation r : reservations.values()) r.commit();
+            complete(kept);
+        } finally {
+            for (Quota.Reservation r : reservations.values()) r.close();
+        }
+    }
+
+    private void refuse(Submission s) {
+        if (s.sender.isRateLimited()) {
+            rateLimited.increment();
+            s.result.complete(Outcome.RATE_LIMITED);
+        } else {
+            noQuota.increment();
+            s.result.complete(Outcome.NO_QUOTA);
+        }
+    }
+
+    private void complete(List<Submission> kept) {
+        batches.increment();
+        accepted.add(kept.size());
+        Outcome done = mode == Mode.SEND ? Outcome.SENT : Outcome.STORED;
+        for (Submission s : kept) s.result.complete(done);
+    }
+
+    /**
+     * Stop accepting messages, finish everything already queued, then return. An interrupt does
+     * not cut this short; it is kept and re-asserted once the queue is finished.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        boolean interrupted = false;
+        while (true) {
+            try {
+                worker.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        // anything that slipped in while the worker was stopping
+        List<Submission> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) process(rest);
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    public Stats getStats() {
+        return new Stats(submitted.sum(), accepted.sum(), tooLong.sum(), noQuota.sum(), rateLimited.sum(), batches.sum(),
+                queue.size(), System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Point-in-time counters for the pipeline.
+     */
+    public static final class Stats {
+        private final long submitted;
+        private final long accepted;
+        private final long tooLong;
+        private final long noQuota;
+        private final long rateLimited;
+        private final long batches;
+        private final int queued;
+        private final long elapsedNanos;
+
+        Stats(long submitted, long accepted, long tooLong, long noQuota, long rateLimited, long batches, int queued, long elapsedNanos) {
+            this.submitted = submitted;
+            this.accepted = accepted;
+            this.tooLong = tooLong;
+            this.noQuota = noQuota;
+            this.rateLimited = rateLimited;
+            this.batches = batches;
+            this.queued = queued;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getSubmitted() { return submitted; }
+        public long getAccepted() { return accepted; }
+        public long getTooLong() { return tooLong; }
+        public long getNoQuota() { return noQuota; }
+        public long getRateLimited() { return rateLimited; }
+        public long getBatches() { return batches; }
+        public int getQueued() { return queued; }
+
+        public double getAverageBatchSize() { return batches == 0 ? 0 : (double) accepted / batches; }
+
+        /** Accepted messages per second since the pipeline started. */
+        public double getThroughput() { return elapsedNanos == 0 ? 0 : accepted * 1e9 / elapsedNanos; }
+
+        @Override
+        public String toString() {
+            return String.format("submitted=%d accepted=%d tooLong=%d noQuota=%d rateLimited=%d batches=%d avgBatch=%.1f queued=%d throughput=%.0f msg/s",
+                    submitted, accepted, tooLong, noQuota, rateLimited, batches, getAverageBatchSize(), queued, getThroughput());
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.mycompany.chatappgui;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Stored messages partitioned by recipient hash across several files in one directory, each
+ * shard its own {@link StoredMessageLog} (snapshot + write-ahead log). A store or delete writes
+ * to the one shard its recipient maps to, compaction only rewrites shards whose log has grown,
+ * and startup replays all shards in parallel. A recipient's messages are all in one shard, so
+ * {@link #loadRecipient} reads a single file pair.
+ * <p>
+ * {@value #MANIFEST} records the shard count and file names. Opening a directory laid out with a
+ * different shard count re-partitions it: the new shard files are written first, then the
+ * manifest is switched atomically, then the old files are removed. Messages load shard by shard,
+ * so their order differs from the single-file store.
+ */
+public class ShardedMessageStore implements MessageStore {
+
+    static final String MANIFEST = "manifest.json";
+    private static final int VERSION = 1;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final File directory;
+    private final int shardCount;
+    private final StorageFormat format;
+    private StoredMessageLog[] shards;
+    private final AtomicIntegerArray live;
+
+    public ShardedMessageStore(File directory, int shardCount, StorageFormat format) {
+        if (shardCount < 1) throw new IllegalArgumentException("shardCount must be at least 1");
+        this.directory = directory;
+        this.shardCount = shardCount;
+        this.format = format;
+        this.live = new AtomicIntegerArray(shardCount);
+    }
+
+    public File getDirectory() { return directory; }
+    public int getShardCount() { return shardCount; }
+
+    /** Shard holding this recipient's messages (null recipients go to shard 0). */
+    public static int shardOf(String recipient, int shardCount) {
+        if (recipient == null) return 0;
+        int h = recipient.hashCode() * 0x9E3779B9; // String.hashCode is fixed by the spec, so files stay valid across JVMs
+        return Math.floorMod(h ^ (h >>> 16), shardCount);
+    }
+
+    private int shardOf(Message m) {
+        return shardOf(m.getRecipient(), shardCount);
+    }
+
+    // ---------- Manifest ----------
+
+    private File manifestFile() {
+        return new File(directory, MANIFEST);
+    }
+
+    private static String fileName(int shard, int count, StorageFormat format) {
+        return "shard-" + shard + "-of-" + count + (format == StorageFormat.BINARY || format == StorageFormat.COMPRESSED ? ".bin" : ".json");
+    }
+
+    private StoredMessageLog[] openShards(List<String> names) {
+        StoredMessageLog[] logs = new StoredMessageLog[names.size()];
+        for (int i = 0; i < logs.length; i++) logs[i] = new StoredMessageLog(new File(directory, names.get(i)), format);
+        return logs;
+    }
+
+    // file names listed in the manifest, or null when there is none yet
+    private List<String> readManifest() throws IOException {
+        File file = manifestFile();
+        if (!file.exists()) return null;
+        JsonNode root = MAPPER.readTree(file);
+        if (root.path("version").asInt() != VERSION) throw new IOException("Unsupported shard manifest: " + file);
+        List<String> names = new ArrayList<>();
+        for (JsonNode name : root.path("files")) names.add(name.asText());
+        if (names.size() != root.path("shards").asInt()) throw new IOException("Corrupt shard manifest: " + file);
+        return names;
+    }
+
+    private void writeManifest(List<String> names) throws IOException {
+        ObjectNode root = MAPPER.createObjectNode();
+        root.put("version", VERSION);
+        root.put("partitioning", "recipient-hash");
+        root.put("shards", names.size());
+        ArrayNode files = root.putArray("files");
+        names.forEach(files::add);
+        File tmp = new File(directory, MANIFEST + ".tmp");
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(tmp, root);
+        try {
+            Files.move(tmp.toPath(), manifestFile().toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException atomicUnsupported) {
+            Files.move(tmp.toPath(), manifestFile().toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // ---------- Replay ----------
+
+    /**
+     * Replay every shard in parallel (creating or re-partitioning the layout first if needed),
+     * then hand the messages to the sink shard by shard.
+     */
+    @Override
+    public synchronized long load(Consumer<Message> sink) throws IOException {
+        Files.createDirectories(directory.toPath());
+        List<String> current = readManifest();
+        List<String> wanted = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) wanted.add(fileName(i, shardCount, format));
+
+        if (current == null) {
+            shards = openShards(wanted);
+            writeManifest(wanted);
+        } else if (current.size() == shardCount) {
+            shards = openShards(current);
+        } else {
+            repartition(current, wanted);
+        }
+
+        List<List<Message>> loaded = loadAll(shards);
+        long count = 0;
+        for (int s = 0; s < shardCount; s++) {
+            live.set(s, loaded.get(s).size());
+            for (Message m : loaded.get(s)) sink.accept(m);
+            count += loaded.get(s).size();
+        }
+        return count;
+    }
+
+    private static List<List<Message>> loadAll(StoredMessageLog[] logs) throws IOException {
+        int threads = Math.min(logs.length, Runtime.getRuntime().availableProcessors());
+        AtomicInteger n = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "shard-loader-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<List<Message>>> futures = new ArrayList<>();
+            for (StoredMessageLog log : logs) futures.add(pool.submit(() -> log.load()));
+            List<List<Message>> result = new ArrayList<>();
+            for (Future<List<Message>> f : futures) result.add(f.get());
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException("Failed to load shards", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void repartition(List<String> oldNames, List<String> newNames) throws IOException {
+        StoredMessageLog[] old = openShards(oldNames);
+        List<List<Message>> byNewShard = new ArrayList<>();
+        for (int s = 0; s < shardCount; s++) byNewShard.add(new ArrayList<>());
+        for (List<Message> shard : loadAll(old)) {
+            for (Message m : shard) byNewShard.get(shardOf(m)).add(m);
+        }
+        shards = openShards(newNames);
+        for (int s = 0; s < shardCount; s++) shards[s].compact(byNewShard.get(s));
+        writeManifest(newNames);
+
+        Set<String> keep = new HashSet<>(newNames);
+        for (StoredMessageLog log : old) {
+            log.close();
+            if (!keep.contains(log.getSnapshotFile().getName())) log.deleteFiles();
+        }
+    }
+
+    /**
+     * Stored messages for one recipient, read from its shard's files only (for tools working on
+     * the directory without loading everything; a running MessageManager answers from memory).
+     */
+    public List<Message> loadRecipient(String recipient) throws IOException {
+        List<String> names = readManifest();
+        if (names == null) return new ArrayList<>();
+        StoredMessageLog log = new StoredMessageLog(new File(directory, names.get(shardOf(recipient, names.size()))));
+        List<Message> result = new ArrayList<>();
+        log.load(m -> {
+            if (recipient == null ? m.getRecipient() == null : recipient.equals(m.getRecipient())) result.add(m);
+        });
+        return result;
+    }
+
+    // ---------- Appends ----------
+
+    @Override
+    public void appendStore(Message m) throws IOException {
+        int s = shardOf(m);
+        shards[s].appendStore(m);
+        live.incrementAndGet(s);
+    }
+
+    @Override
+    public void appendStores(Iterable<Message> batch) throws IOException {
+        List<List<Message>> byShard = new ArrayList<>(shardCount);
+        for (int s = 0; s < shardCount; s++) byShard.add(null);
+        for (Message m : batch) {
+            int s = shardOf(m);
+            if (byShard.get(s) == null) byShard.set(s, new ArrayList<>());
+            byShard.get(s).add(m);
+        }
+        for (int s = 0; s < shardCount; s++) {
+            List<Message> group = byShard.get(s);
+            if (group == null) continue;
+            shards[s].appendStores(group);
+            live.addAndGet(s, group.size());
+        }
+    }
+
+    /** Without the removed messages the shard is unknown, so every shard gets the record. */
+    @Override
+    public void appendDelete(String messageHash) throws IOException {
+        for (StoredMessageLog shard : shards) shard.appendDelete(messageHash);
+    }
+
+    @Override
+    public void appendDelete(String messageHash, Collection<Message> removed) throws IOException {
+        boolean[] touched = new boolean[shardCount];
+        for (Message m : removed) {
+            int s = shardOf(m);
+            live.decrementAndGet(s);
+            touched[s] = true;
+        }
+        for (int s = 0; s < shardCount; s++) if (touched[s]) shards[s].appendDelete(messageHash);
+    }
+
+    // ---------- Compaction ----------
+
+    @Override
+    public boolean needsCompaction(int liveCount) {
+        for (int s = 0; s < shardCount; s++) if (shards[s].needsCompaction(live.get(s))) return true;
+        return false;
+    }
+
+    @Override
+    public synchronized void compact(Collection<Message> liveMessages) throws IOException {
+        rewrite(liveMessages, false);
+    }
+
+    /**
+     * Rewrite only the shards whose log needs it, from their share of the live messages.
+     */
+    @Override
+    public synchronized void compactIfNeeded(Collection<Message> liveMessages) throws IOException {
+        rewrite(liveMessages, true);
+    }
+
+    private void rewrite(Collection<Message> liveMessages, boolean onlyDirty) throws IOException {
+        List<List<Message>> groups = new ArrayList<>(shardCount);
+        boolean any = false;
+        for (int s = 0; s < shardCount; s++) {
+            boolean needed = !onlyDirty || shards[s].needsCompaction(live.get(s));
+            groups.add(needed ? new ArrayList<>() : null);
+            any |= needed;
+        }
+        if (!any) return;
+        for (Message m : liveMessages) {
+            List<Message> group = groups.get(shardOf(m));
+            if (group != null) group.add(m);
+        }
+        for (int s = 0; s < shardCount; s++) {
+            List<Message> group = groups.get(s);
+            if (group == null) continue;
+            shards[s].compact(group);
+            live.set(s, group.size());
+        }
+    }
+
+    @Override
+    public void sync() throws IOException {
+        for (StoredMessageLog shard : shards) shard.sync();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (shards == null) return;
+        for (StoredMessageLog shard : shards) shard.close();
+    }
+}
@@ -0,0 +1,96 @@
+package com.mycompany.chatappgui;
+
+import java.io.File;
+
+/**
+ * Where and how MessageManager persists stored messages. Defaults match the original app:
+ * a pretty-printed storedMessages.json in the working directory. Setting a storage directory
+ * switches to a {@link ShardedMessageStore} with {@code shardCount} recipient shards there.
+ */
+public class StorageConfig {
+    private File storedFile = new File("storedMessages.json");
+    private StorageFormat format = StorageFormat.JSON;
+    private File archiveFile; // optional MappedMessageArchive opened at startup
+    private File storageDirectory; // null = the single storedFile
+    private int shardCount = 8;
+    private boolean lazyLoad; // load stored messages in the background instead of in the constructor
+    private int cacheSize; // archive lookups remembered per kind; 0 = no cache
+    private long cacheTtlMillis; // 0 = cached lookups only leave by eviction or invalidation
+    private boolean columnarStored; // keep stored messages as a ColumnarMessageStore, not Message objects
+    private int mailboxCapacity; // per recipient; 0 = sends are not delivered to mailboxes
+
+    public StorageConfig() {}
+
+    public StorageConfig(File storedFile, StorageFormat format) {
+        this.storedFile = storedFile;
+        this.format = format;
+    }
+
+    public File getStoredFile() { return storedFile; }
+    public void setStoredFile(File storedFile) { this.storedFile = storedFile; }
+
+    public StorageFormat getFormat() { return format; }
+    public void setFormat(StorageFormat format) { this.format = format; }
+
+    public File getArchiveFile() { return archiveFile; }
+    public void setArchiveFile(File archiveFile) { this.archiveFile = archiveFile; }
+
+    public File getStorageDirectory() { return storageDirectory; }
+    public void setStorageDirectory(File storageDirectory) { this.storageDirectory = storageDirectory; }
+
+    public int getShardCount() { return shardCount; }
+    public void setShardCount(int shardCount) { this.shardCount = shardCount; }
+
+    public boolean isLazyLoad() { return lazyLoad; }
+    public void setLazyLoad(boolean lazyLoad) { this.lazyLoad = lazyLoad; }
+
+    public int getCacheSize() { return cacheSize; }
+    public void setCacheSize(int cacheSize) { this.cacheSize = cacheSize; }
+
+    public long getCacheTtlMillis() { return cacheTtlMillis; }
+    public void setCacheTtlMillis(long cacheTtlMillis) { this.cacheTtlMillis = cacheTtlMillis; }
+
+    /**
+     * Hold the stored messages in a {@link ColumnarMessageStore} instead of as Message objects:
+     * a fraction of the heap, at the cost of stores serialising on the store and stored messages
+     * being left out of keyword search (like archived ones).
+     */
+    public boolean isColumnarStored() { return columnarStored; }
+    public void setColumnarStored(boolean columnarStored) { this.columnarStored = columnarStored; }
+
+    /**
+     * Deliver sent messages to per-recipient {@link Mailboxes} holding up to this many each; 0 (the
+     * default) leaves delivery off until something that reads mailboxes, such as a
+     * {@link ChatServer}, turns it on.
+     */
+    public int getMailboxCapacity() { return mailboxCapacity; }
+    public void setMailboxCapacity(int mailboxCapacity) { this.mailboxCapacity = mailboxCapacity; }
+
+    /**
+     * Defaults overridden by -Dchatapp.storage.dir, -Dchatapp.storage.shards and
+     * -Dchatapp.storage.format (JSON, NDJSON, BINARY or COMPRESSED); stored messages load lazily unless
+     * -Dchatapp.storage.lazy=false, and are held as columns with -Dchatapp.storage.columnar=true.
+     * Archive lookups are cached (-Dchatapp.cache.size, default 10000, 0 to turn off;
+     * -Dchatapp.cache.ttl.seconds, default 0 = no expiry). -Dchatapp.mailbox.capacity turns on
+     * mailbox delivery.
+     */
+    public static StorageConfig fromSystemProperties() {
+        StorageConfig config = new StorageConfig();
+        String dir = System.getProperty("chatapp.storage.dir");
+        if (dir != null) config.setStorageDirectory(new File(dir));
+        config.setShardCount(Integer.getInteger("chatapp.storage.shards", config.getShardCount()));
+        String format = System.getProperty("chatapp.storage.format");
+        if (format != null) config.setFormat(StorageFormat.valueOf(format.trim().toUpperCase()));
+        config.setLazyLoad(Boolean.parseBoolean(System.getProperty("chatapp.storage.lazy", "true")));
+        config.setColumnarStored(Boolean.getBoolean("chatapp.storage.columnar"));
+        config.setCacheSize(Integer.getInteger("chatapp.cache.size", 10_000));
+        config.setCacheTtlMillis(Long.getLong("chatapp.cache.ttl.seconds", 0L) * 1000);
+        config.setMailboxCapacity(Integer.getInteger("chatapp.mailbox.capacity", 0));
+        return config;
+    }
+
+    MessageStore openStore() {
+        if (storageDirectory != null) return new ShardedMessageStore(storageDirectory, shardCount, format);
+        return new StoredMessageLog(storedFile, format);
+    }
+}
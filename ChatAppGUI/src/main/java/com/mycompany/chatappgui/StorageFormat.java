@@ -0,0 +1,75 @@
+package com.mycompany.chatappgui;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Snapshot formats for stored messages. Reading always detects the format from the file's first
+ * bytes, so switching format in {@link StorageConfig} just changes what the next save writes.
+ * COMPRESSED is BINARY with recipients written once per file and payloads deflated in blocks.
+ */
+public enum StorageFormat {
+    JSON, NDJSON, BINARY, COMPRESSED;
+
+    public MessageCodec codec() {
+        return switch (this) {
+            case JSON -> new JsonMessageCodec(MessageJsonStreams.Layout.ARRAY);
+            case NDJSON -> new JsonMessageCodec(MessageJsonStreams.Layout.NDJSON);
+            case BINARY -> new BinaryMessageCodec();
+            case COMPRESSED -> new CompressedMessageCodec();
+        };
+    }
+
+    /**
+     * Format of an existing file by its magic bytes; JSON (array or NDJSON) otherwise.
+     */
+    public static StorageFormat detect(File file) throws IOException {
+        if (!file.exists() || file.length() < BinaryMessageCodec.MAGIC.length) return JSON;
+        try (InputStream in = new FileInputStream(file)) {
+            return byMagic(in.readNBytes(BinaryMessageCodec.MAGIC.length));
+        }
+    }
+
+    /**
+     * Format of a stream by peeking at its first bytes; the stream must support mark/reset.
+     */
+    public static StorageFormat detect(InputStream in) throws IOException {
+        in.mark(BinaryMessageCodec.MAGIC.length);
+        byte[] head = in.readNBytes(BinaryMessageCodec.MAGIC.length);
+        in.reset();
+        return byMagic(head);
+    }
+
+    private static StorageFormat byMagic(byte[] head) {
+        if (java.util.Arrays.equals(head, BinaryMessageCodec.MAGIC)) return BINARY;
+        if (java.util.Arrays.equals(head, CompressedMessageCodec.MAGIC)) return COMPRESSED;
+        return JSON;
+    }
+
+    /**
+     * Re-encode a stored-messages file into another format, streaming one message at a time.
+     */
+    public static long convert(File from, File to, StorageFormat target) throws IOException {
+        MessageCodec source = detect(from).codec();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(from));
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(to));
+             MessageCodec.Writer w = target.codec().writer(out)) {
+            source.read(in, m -> {
+                try {
+                    w.write(m);
+                } catch (IOException e) {
+                    throw new java.io.UncheckedIOException(e);
+                }
+            });
+            return w.getCount();
+        } catch (java.io.UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,489 @@
+package com.mycompany.chatappgui;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.CharConversionException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Append-only persistence for stored messages: a snapshot (the original storedMessages.json, or any
+ * {@link StorageFormat}) plus a write-ahead log with one compact JSON line per store/delete. The log is replayed on load
+ * and folded back into the snapshot once it outgrows the live data.
+ * <p>
+ * Compaction first rotates the log to {@code <log>.<generation>}, then writes the new snapshot and,
+ * before moving it into place, seals the rotated log with a record of the new snapshot's length and
+ * CRC. On load a rotated log whose seal matches the snapshot on disk is already folded in and is
+ * skipped, so a crash at any point of a compaction neither loses nor repeats a record.
+ */
+public class StoredMessageLog implements MessageStore {
+
+    static final String OP_STORE = "store";
+    static final String OP_DELETE = "delete";
+    // last record of a rotated log: the snapshot that compaction folded it into
+    static final String OP_COVERED = "covered";
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private final File snapshotFile;
+    private final StorageFormat format;
+    private final File logFile;
+
+    // fsync batching: force the log to disk every syncEvery records or syncIntervalMillis, whichever first
+    private final int syncEvery;
+    private final long syncIntervalMillis;
+    private final int minCompactRecords;
+
+    private FileChannel channel;
+    private OutputStream out;
+    private JsonGenerator generator;
+    private ScheduledFuture<?> flusher; // syncs the open log every syncIntervalMillis
+    private long logRecords;
+    private int unsynced;
+
+    public StoredMessageLog(File snapshotFile) {
+        this(snapshotFile, StorageFormat.JSON);
+    }
+
+    public StoredMessageLog(File snapshotFile, StorageFormat format) {
+        this(snapshotFile, format, 64, 200, 1024);
+    }
+
+    public StoredMessageLog(File snapshotFile, int syncEvery, long syncIntervalMillis, int minCompactRecords) {
+        this(snapshotFile, StorageFormat.JSON, syncEvery, syncIntervalMillis, minCompactRecords);
+    }
+
+    public StoredMessageLog(File snapshotFile, StorageFormat format, int syncEvery, long syncIntervalMillis, int minCompactRecords) {
+        this.snapshotFile = snapshotFile;
+        this.format = format;
+        this.logFile = new File(snapshotFile.getPath() + ".log");
+        this.syncEvery = Math.max(1, syncEvery);
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.minCompactRecords = minCompactRecords;
+    }
+
+    public File getSnapshotFile() { return snapshotFile; }
+    public StorageFormat getFormat() { return format; }
+    public File getLogFile() { return logFile; }
+    public long getLogRecordCount() { return logRecords; }
+    synchronized int getUnsyncedCount() { return unsynced; }
+
+    // ---------- Replay ----------
+
+    /**
+     * Read the snapshot and replay the logs over it. A torn last line (crash mid-write) is ignored;
+     * a damaged record anywhere before it is an error.
+     */
+    public List<Message> load() throws IOException {
+        List<Message> messages = new ArrayList<>();
+        load(messages::add);
+        return messages;
+    }
+
+    /**
+     * Streaming replay: the (compaction-bounded) logs are read first so deletes are known, then the
+     * snapshot is streamed straight to the sink, followed by the surviving logged stores.
+     */
+    @Override
+    public synchronized long load(Consumer<Message> sink) throws IOException {
+        Replay replay = new Replay();
+        logRecords = 0;
+        // rotated logs up to the newest one sealed for this snapshot are already in it
+        List<File> rotated = rotatedLogs();
+        int first = 0;
+        for (int i = rotated.size() - 1; i >= 0; i--) {
+            if (coversSnapshot(rotated.get(i))) {
+                first = i + 1;
+                break;
+            }
+        }
+        for (int i = 0; i < first; i++) Files.deleteIfExists(rotated.get(i).toPath());
+        for (int i = first; i < rotated.size(); i++) logRecords += replay(rotated.get(i), replay, false);
+        if (logFile.exists()) logRecords += replay(logFile, replay, true);
+
+        long count = 0;
+        if (snapshotFile.exists() && snapshotFile.length() > 0) {
+            long[] kept = {0};
+            try (InputStream in = new BufferedInputStream(new FileInputStream(snapshotFile))) {
+                StorageFormat.detect(snapshotFile).codec().read(in, m -> {
+                    if (!replay.deletedFromSnapshot.contains(m.getMessageHash())) {
+                        sink.accept(m);
+                        kept[0]++;
+                    }
+                });
+            }
+            count = kept[0];
+        }
+        for (Message m : replay.logged) {
+            if (!replay.deletedLogged.contains(m)) {
+                sink.accept(m);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // what the logs say so far, in the order their records were written
+    private static final class Replay {
+        final List<Message> logged = new ArrayList<>();
+        final Map<String, List<Message>> loggedByHash = new HashMap<>();
+        final Set<String> deletedFromSnapshot = new HashSet<>();
+        final Set<Message> deletedLogged = Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * Apply one log's records and return how many there were. An unterminated last line is a write
+     * cut short by a crash: it is skipped, and cut off the live log so appends do not land behind it.
+     */
+    private static long replay(File log, Replay replay, boolean truncateTornTail) throws IOException {
+        long records = 0;
+        long goodBytes = 0;
+        boolean torn = false;
+        try (JsonParser p = FACTORY.createParser(log)) {
+            while (true) {
+                String op = null;
+                Message m = new Message();
+                try {
+                    JsonToken t = p.nextToken();
+                    if (t == null) break;
+                    if (t != JsonToken.START_OBJECT) throw new IOException("Corrupt log record in " + log + " at " + p.getCurrentLocation());
+                    while (p.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = p.getCurrentName();
+                        String text = p.nextToken() == JsonToken.VALUE_NULL ? null : p.getText();
+                        switch (field) {
+                            case "op" -> op = text;
+                            case "recipient" -> m.setRecipient(text);
+                            case "payload" -> m.setPayload(text);
+                            case "messageID" -> m.setMessageID(text);
+                            case "messageHash" -> m.setMessageHash(text);
+                            default -> { }
+                        }
+                    }
+                } catch (JsonProcessingException | CharConversionException e) {
+                    if (!isLastLine(log, goodBytes)) {
+                        throw new IOException("Corrupt log record in " + log + " after byte " + goodBytes, e);
+                    }
+                    torn = true;
+                    break;
+                }
+                goodBytes = p.getCurrentLocation().getByteOffset();
+                if (OP_STORE.equals(op)) {
+                    records++;
+                    replay.logged.add(m);
+                    replay.loggedByHash.computeIfAbsent(m.getMessageHash(), k -> new ArrayList<>()).add(m);
+                } else if (OP_DELETE.equals(op)) {
+                    records++;
+                    replay.deletedFromSnapshot.add(m.getMessageHash());
+                    List<Message> gone = replay.loggedByHash.remove(m.getMessageHash());
+                    if (gone != null) replay.deletedLogged.addAll(gone);
+                }
+            }
+        }
+        if (torn && truncateTornTail) {
+            try (FileChannel ch = FileChannel.open(log.toPath(), StandardOpenOption.WRITE)) {
+                ch.truncate(goodBytes);
+            }
+        }
+        return records;
+    }
+
+    // true if nothing but the rest of one line follows the last complete record
+    private static boolean isLastLine(File log, long goodBytes) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(log))) {
+            in.skipNBytes(goodBytes);
+            boolean started = false;
+            for (int b; (b = in.read()) >= 0; ) {
+                if (b == '\n') {
+                    if (started) return false;
+                } else if (b != '\r' && b != ' ') {
+                    started = true;
+                }
+            }
+            return true;
+        }
+    }
+
+    // the rotated logs still on disk, oldest generation first
+    private List<File> rotatedLogs() {
+        String prefix = logFile.getName() + ".";
+        File[] found = logFile.getAbsoluteFile().getParentFile().listFiles((d, name) ->
+                name.startsWith(prefix) && name.length() > prefix.length() && name.substring(prefix.length()).chars().allMatch(Character::isDigit));
+        List<File> logs = new ArrayList<>(found == null ? List.of() : List.of(found));
+        logs.sort(Comparator.comparingLong(StoredMessageLog::generationOf));
+        return logs;
+    }
+
+    private static long generationOf(File rotated) {
+        String name = rotated.getName();
+        return Long.parseLong(name.substring(name.lastIndexOf('.') + 1));
+    }
+
+    private File rotatedLog(long generation) {
+        return new File(logFile.getPath() + "." + generation);
+    }
+
+    // true if the rotated log was sealed for exactly the snapshot now on disk
+    private boolean coversSnapshot(File rotated) throws IOException {
+        String seal = lastLine(rotated);
+        if (seal == null || !seal.contains(OP_COVERED) || !snapshotFile.exists()) return false;
+        long length = -1, crc = -1;
+        try (JsonParser p = FACTORY.createParser(seal)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) return false;
+            String op = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                p.nextToken();
+                switch (field) {
+                    case "op" -> op = p.getText();
+                    case "snapshotLength" -> length = p.getLongValue();
+                    case "snapshotCrc" -> crc = p.getLongValue();
+                    default -> { }
+                }
+            }
+            if (!OP_COVERED.equals(op)) return false;
+        } catch (JsonProcessingException torn) {
+            return false; // the seal itself was cut short, so the snapshot was never replaced
+        }
+        return snapshotFile.length() == length && crcOf(snapshotFile) == crc;
+    }
+
+    private static String lastLine(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            int n = (int) Math.min(raf.length(), 512);
+            byte[] tail = new byte[n];
+            raf.seek(raf.length() - n);
+            raf.readFully(tail);
+            String text = new String(tail, StandardCharsets.UTF_8).strip();
+            return text.isEmpty() ? null : text.substring(text.lastIndexOf('\n') + 1);
+        }
+    }
+
+    private static long crcOf(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buf = new byte[64 * 1024];
+            for (int n; (n = in.read(buf)) > 0; ) crc.update(buf, 0, n);
+        }
+        return crc.getValue();
+    }
+
+    // ---------- Appends ----------
+
+    @Override
+    public synchronized void appendStore(Message m) throws IOException {
+        writeStore(generator(), m);
+        endRecord();
+    }
+
+    /**
+     * Append a batch of store records with one flush (and at most one fsync) for the lot.
+     */
+    @Override
+    public synchronized void appendStores(Iterable<Message> batch) throws IOException {
+        JsonGenerator g = generator();
+        int n = 0;
+        for (Message m : batch) {
+            writeStore(g, m);
+            g.writeRaw('\n');
+            n++;
+        }
+        if (n > 0) endRecords(n);
+    }
+
+    private static void writeStore(JsonGenerator g, Message m) throws IOException {
+        g.writeStartObject();
+        g.writeStringField("op", OP_STORE);
+        g.writeStringField("recipient", m.getRecipient());
+        g.writeStringField("payload", m.getPayload());
+        g.writeStringField("messageID", m.getMessageID());
+        g.writeStringField("messageHash", m.getMessageHash());
+        g.writeEndObject();
+    }
+
+    @Override
+    public synchronized void appendDelete(String messageHash) throws IOException {
+        JsonGenerator g = generator();
+        g.writeStartObject();
+        g.writeStringField("op", OP_DELETE);
+        g.writeStringField("messageHash", messageHash);
+        g.writeEndObject();
+        endRecord();
+    }
+
+    private JsonGenerator generator() throws IOException {
+        if (generator == null) {
+            channel = FileChannel.open(logFile.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            out = Channels.newOutputStream(channel);
+            generator = FACTORY.createGenerator(out);
+            generator.setRootValueSeparator(null);
+            if (syncIntervalMillis > 0) {
+                flusher = Flusher.TIMER.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        return generator;
+    }
+
+    private void endRecord() throws IOException {
+        generator.writeRaw('\n');
+        endRecords(1);
+    }
+
+    private void endRecords(int n) throws IOException {
+        generator.flush(); // hand the records to the OS; fsync is batched below
+        logRecords += n;
+        unsynced += n;
+        // the flusher covers the syncIntervalMillis bound for records that arrive in a trickle
+        if (unsynced >= syncEvery) {
+            channel.force(false);
+            unsynced = 0;
+        }
+    }
+
+    /**
+     * Force any buffered records to disk.
+     */
+    @Override
+    public synchronized void sync() throws IOException {
+        if (channel != null && unsynced > 0) {
+            generator.flush();
+            channel.force(false);
+            unsynced = 0;
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // one daemon thread syncs every open log; created on first use only
+    private static final class Flusher {
+        static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stored-log-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // ---------- Compaction ----------
+
+    /**
+     * True once the log holds more records than the live set (and at least minCompactRecords),
+     * so compaction work stays proportional to the appends that triggered it.
+     */
+    @Override
+    public synchronized boolean needsCompaction(int liveCount) {
+        return logRecords >= Math.max(minCompactRecords, liveCount);
+    }
+
+    /**
+     * Write the live messages as a fresh snapshot and retire the log: rotate the log aside, write
+     * the snapshot to a temp file, seal the rotated log with the snapshot's length and CRC, rename
+     * the snapshot into place, then delete the rotated logs it now covers.
+     */
+    @Override
+    public synchronized void compact(Collection<Message> live) throws IOException {
+        closeLog();
+        List<File> older = rotatedLogs();
+        File rotated = rotatedLog(older.isEmpty() ? 1 : generationOf(older.get(older.size() - 1)) + 1);
+        if (logFile.exists()) move(logFile, rotated);
+
+        File tmp = new File(snapshotFile.getPath() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            OutputStream buffered = new BufferedOutputStream(new CheckedOutputStream(fos, crc));
+            format.codec().write(buffered, live);
+            buffered.flush();
+            fos.getFD().sync();
+        }
+        try (FileChannel seal = FileChannel.open(rotated.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            String record = "{\"op\":\"" + OP_COVERED + "\",\"snapshotLength\":" + tmp.length()
+                    + ",\"snapshotCrc\":" + crc.getValue() + "}\n";
+            seal.write(ByteBuffer.wrap(record.getBytes(StandardCharsets.UTF_8)));
+            seal.force(false);
+        }
+        move(tmp, snapshotFile);
+        for (File covered : older) Files.deleteIfExists(covered.toPath());
+        Files.deleteIfExists(rotated.toPath());
+        logRecords = 0;
+    }
+
+    private static void move(File from, File to) throws IOException {
+        try {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException atomicUnsupported) {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /** Close and delete every file of this log (snapshot, live log and rotated logs). */
+    synchronized void deleteFiles() throws IOException {
+        closeLog();
+        Files.deleteIfExists(snapshotFile.toPath());
+        Files.deleteIfExists(logFile.toPath());
+        for (File rotated : rotatedLogs()) Files.deleteIfExists(rotated.toPath());
+    }
+
+    private void closeLog() throws IOException {
+        if (flusher != null) {
+            flusher.cancel(false);
+            flusher = null;
+        }
+        if (generator != null) {
+            generator.flush();
+            channel.force(false);
+            generator.close();
+            out.close();
+            channel.close();
+            generator = null;
+            out = null;
+            channel = null;
+            unsynced = 0;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closeLog();
+    }
+}
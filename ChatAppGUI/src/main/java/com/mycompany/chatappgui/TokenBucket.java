@@ -0,0 +1,69 @@
+package com.mycompany.chatappgui;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limit of {@code perSecond} units with bursts of up to {@code capacity}, refilled
+ * continuously. Kept as a single "theoretical arrival time" (the generic cell rate algorithm):
+ * the bucket is full when that time is now or earlier and each unit pushes it one interval into
+ * the future, so taking units is one CAS and there is no refill thread.
+ */
+public class TokenBucket implements Quota {
+
+    private final long capacity;
+    private final long intervalNanos; // time to refill one unit
+    private final long burstNanos;    // time to refill a full bucket
+    private final LongSupplier clock;
+    private final AtomicLong arrival;
+
+    public TokenBucket(long capacity, double perSecond) {
+        this(capacity, perSecond, System::nanoTime);
+    }
+
+    TokenBucket(long capacity, double perSecond, LongSupplier clock) {
+        if (capacity < 1) throw new IllegalArgumentException("Bucket capacity must be positive: " + capacity);
+        if (!(perSecond > 0)) throw new IllegalArgumentException("Refill rate must be positive: " + perSecond);
+        this.capacity = capacity;
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / perSecond));
+        this.burstNanos = Math.multiplyExact(capacity, intervalNanos);
+        this.clock = clock;
+        this.arrival = new AtomicLong(clock.getAsLong()); // starts full
+    }
+
+    public long getCapacity() { return capacity; }
+
+    @Override
+    public int acquireUpTo(int requested) {
+        if (requested <= 0) return 0;
+        while (true) {
+            long now = clock.getAsLong();
+            long current = arrival.get();
+            long base = current - now > 0 ? current : now;
+            long free = (now + burstNanos - base) / intervalNanos;
+            int granted = (int) Math.min(requested, free);
+            if (granted <= 0) return 0;
+            if (arrival.compareAndSet(current, base + granted * intervalNanos)) return granted;
+        }
+    }
+
+    @Override
+    public void release(int units) {
+        if (units <= 0) return;
+        while (true) {
+            long now = clock.getAsLong();
+            long current = arrival.get();
+            long back = current - units * intervalNanos;
+            long next = back - now > 0 ? back : now; // never fuller than full
+            if (current - now <= 0 || arrival.compareAndSet(current, next)) return;
+        }
+    }
+
+    @Override
+    public long available() {
+        long now = clock.getAsLong();
+        long current = arrival.get();
+        long base = current - now > 0 ? current : now;
+        return Math.min(capacity, (now + burstNanos - base) / intervalNanos);
+    }
+}
@@ -2,32 +2,78 @@ package com.mycompany.chatappgui;
 
 /**
  * Simple user record for login/registration and quota tracking.
+ * Only a {@link PasswordHasher} hash of the password is kept. Sends draw on a lock-free
+ * {@link MessageQuota} and, when one is set, a per-user {@link TokenBucket} rate limit.
  */
 public class User {
     private String firstName;
     private String lastName;
     private String username;
-    private String password;
+    private String passwordHash;
     private String cellPhone;
-    private int messageQuota; // how many messages this user may send
+    private final MessageQuota messageQuota; // how many messages this user may send
+    private volatile TokenBucket rateLimit; // null = no limit on how fast
+    private volatile Quota sendQuota;
 
-    public User() {}
+    public User() {
+        this.messageQuota = new MessageQuota(0);
+        this.sendQuota = messageQuota;
+    }
+
+    /** A user whose password has already been hashed with {@link PasswordHasher#hash}. */
+    public static User withPasswordHash(String firstName, String lastName, String username, String passwordHash, String cellPhone, int messageQuota) {
+        return new User(firstName, lastName, username, passwordHash, cellPhone, messageQuota);
+    }
 
-    public User(String firstName, String lastName, String username, String password, String cellPhone, int messageQuota) {
+    private User(String firstName, String lastName, String username, String passwordHash, String cellPhone, int messageQuota) {
         this.firstName = firstName;
         this.lastName = lastName;
         this.username = username;
-        this.password = password;
+        this.passwordHash = passwordHash;
         this.cellPhone = cellPhone;
-        this.messageQuota = Math.max(0, messageQuota);
+        this.messageQuota = new MessageQuota(messageQuota);
+        this.sendQuota = this.messageQuota;
     }
 
     public String getFirstName() { return firstName; }
     public String getLastName() { return lastName; }
     public String getUsername() { return username; }
-    public String getPassword() { return password; }
+    public String getPasswordHash() { return passwordHash; }
     public String getCellPhone() { return cellPhone; }
-    public int getMessageQuota() { return messageQuota; }
+    /** Messages left to send (ignoring the rate limit). */
+    public int getMessageQuota() { return (int) Math.min(Integer.MAX_VALUE, messageQuota.available()); }
+
+    public void decrementQuota() { messageQuota.acquireUpTo(1); }
 
-    public void decrementQuota() { if (messageQuota > 0) messageQuota--; }
+    /**
+     * Take up to {@code requested} sends off the quota (and rate limit) in one step; returns how many were granted.
+     */
+    public int debitQuota(int requested) {
+        return sendQuota.acquireUpTo(requested);
+    }
+
+    /**
+     * Hold up to {@code requested} sends; commit the ones actually sent, or close to give them back.
+     */
+    public Quota.Reservation reserveSends(int requested) {
+        return sendQuota.reserve(requested);
+    }
+
+    /** The message count plus the rate limit, if any. */
+    public Quota getSendQuota() { return sendQuota; }
+
+    public TokenBucket getRateLimit() { return rateLimit; }
+
+    /** Allow at most {@code perMinute} sends a minute, in bursts of up to {@code burst}; 0 removes the limit. */
+    public void limitRate(int burst, double perMinute) {
+        TokenBucket bucket = perMinute > 0 ? new TokenBucket(Math.max(1, burst), perMinute / 60) : null;
+        rateLimit = bucket;
+        sendQuota = bucket == null ? messageQuota : Quota.allOf(messageQuota, bucket);
+    }
+
+    /** True if sends are held back by the rate limit rather than the message count. */
+    public boolean isRateLimited() {
+        TokenBucket bucket = rateLimit;
+        return bucket != null && bucket.available() == 0 && messageQuota.available() > 0;
+    }
 }
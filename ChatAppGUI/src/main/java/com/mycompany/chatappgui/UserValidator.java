@@ -0,0 +1,109 @@
+package com.mycompany.chatappgui;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Hand-written, single-pass versions of the registration rules. Each check accepts exactly what
+ * the original regular expressions accepted:
+ * <ul>
+ *   <li>password: {@code ^(?=.*[A-Z])(?=.*[a-z])(?=.*\d)(?=.*[^A-Za-z0-9]).{8,}$}</li>
+ *   <li>cell phone: {@code ^\+\d{1,3}\d{4,12}$}</li>
+ * </ul>
+ * and batches of registrations can be validated in parallel with structured error codes.
+ */
+public final class UserValidator {
+
+    // below this a parallel stream costs more than it saves
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    private UserValidator() {}
+
+    public static boolean isValidUsername(String username) {
+        return username != null && username.length() <= 5 && username.indexOf('_') >= 0;
+    }
+
+    public static boolean isValidPassword(String password) {
+        if (password == null) return false;
+        boolean upper = false, lower = false, digit = false, special = false;
+        int codePoints = 0;
+        int n = password.length();
+        for (int i = 0; i < n; i++) {
+            char c = password.charAt(i);
+            if (c >= 'A' && c <= 'Z') upper = true;
+            else if (c >= 'a' && c <= 'z') lower = true;
+            else if (c >= '0' && c <= '9') digit = true;
+            else if (isLineTerminator(c)) return false; // '.' never matches these
+            else {
+                special = true;
+                // '.' consumes a surrogate pair as one character
+                if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(password.charAt(i + 1))) i++;
+            }
+            codePoints++;
+        }
+        return codePoints >= 8 && upper && lower && digit && special;
+    }
+
+    public static boolean isValidCellPhone(String cell) {
+        if (cell == null) return false;
+        int n = cell.length();
+        // '+', then 1-3 country digits and 4-12 subscriber digits: 5 to 15 digits in total
+        if (n < 6 || n > 16 || cell.charAt(0) != '+') return false;
+        for (int i = 1; i < n; i++) {
+            char c = cell.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /** Every rule the fields break, in the order registration reports them; empty if valid. */
+    public static EnumSet<ValidationError> validate(String username, String password, String cellPhone) {
+        EnumSet<ValidationError> errors = EnumSet.noneOf(ValidationError.class);
+        if (!isValidUsername(username)) errors.add(ValidationError.USERNAME_FORMAT);
+        if (!isValidPassword(password)) errors.add(ValidationError.PASSWORD_FORMAT);
+        if (!isValidCellPhone(cellPhone)) errors.add(ValidationError.CELL_PHONE_FORMAT);
+        return errors;
+    }
+
+    /**
+     * Validate a batch, one error set per entry (same order). A username already taken, or used by
+     * an earlier entry in the batch, is reported as {@link ValidationError#DUPLICATE_USERNAME}.
+     * Large batches are checked in parallel.
+     */
+    public static List<EnumSet<ValidationError>> validateAll(List<Registration> batch, Predicate<String> taken) {
+        int n = batch.size();
+        IntStream range = IntStream.range(0, n);
+        if (n >= PARALLEL_THRESHOLD) range = range.parallel();
+        List<EnumSet<ValidationError>> results = range.mapToObj(i -> {
+            Registration r = batch.get(i);
+            return validate(r.getUsername(), r.getPassword(), r.getCellPhone());
+        }).toList();
+
+        // duplicates in one ordered pass over an open-addressed table of entry index + 1, so the
+        // first entry for a username wins and nothing is allocated per entry
+        int[] slots = new int[Integer.highestOneBit(Math.max(2, n) * 2 - 1) * 2];
+        int mask = slots.length - 1;
+        for (int i = 0; i < n; i++) {
+            String username = batch.get(i).getUsername();
+            if (username == null) continue;
+            int h = username.hashCode() * 0x9E3779B9;
+            int slot = (h ^ (h >>> 16)) & mask;
+            boolean repeated = false;
+            for (int e; (e = slots[slot]) != 0; slot = (slot + 1) & mask) {
+                if (username.equals(batch.get(e - 1).getUsername())) {
+                    repeated = true;
+                    break;
+                }
+            }
+            if (!repeated) slots[slot] = i + 1;
+            if (repeated || taken.test(username)) results.get(i).add(ValidationError.DUPLICATE_USERNAME);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,18 @@
+package com.mycompany.chatappgui;
+
+/**
+ * Registration validation failures. Callers get the code; {@link #getMessage()} is the text the
+ * UI has always shown for it.
+ */
+public enum ValidationError {
+    USERNAME_FORMAT("Username is not correctly formatted, please ensure that your username contains an underscore and is no more than five characters in length."),
+    PASSWORD_FORMAT("Password is not correctly formatted; please ensure that the password contains at least eight characters, an uppercase letter, a lowercase letter, a number, and a special character."),
+    CELL_PHONE_FORMAT("Cell phone number incorrectly formatted or does not contain international code."),
+    DUPLICATE_USERNAME("Username already exists.");
+
+    private final String message;
+
+    ValidationError(String message) { this.message = message; }
+
+    public String getMessage() { return message; }
+}
@@ -0,0 +1,217 @@
+package com.mycompany.chatappgui;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatServerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void sessionsLogInSendWithinQuotaAndSearch() throws Exception {
+        Login login = new Login(new PasswordHasher(PasswordHasher.MIN_ITERATIONS));
+        try (MessageManager manager = new MessageManager(dir.resolve("storedMessages.json").toFile());
+             ChatServer server = new ChatServer(login, manager, new InetSocketAddress("127.0.0.1", 0));
+             ChatClient alice = new ChatClient(new InetSocketAddress("127.0.0.1", server.getPort()));
+             ChatClient bob = new ChatClient(new InetSocketAddress("127.0.0.1", server.getPort()))) {
+
+            ChatProtocol.Frame r = alice.call(ChatProtocol.REGISTER, "Alice", "A", "al_1", "Abcdef1!", "+27830000001", "2");
+            assertTrue(r.isOk());
+            assertEquals("User successfully registered.", r.field(0));
+            assertEquals("Username is not correctly formatted, please ensure that your username contains an underscore and is no more than five characters in length.",
+                    alice.call(ChatProtocol.REGISTER, "Bob", "B", "bob", "Abcdef1!", "+27830000002", "2").field(0));
+            assertTrue(bob.call(ChatProtocol.REGISTER, "Bob", "B", "bo_1", "Abcdef1!", "+27830000002", "5").isOk());
+
+            assertEquals("Not logged in.", alice.call(ChatProtocol.SEND, "+27831111111", "hi").field(0));
+            assertFalse(alice.call(ChatProtocol.LOGIN, "al_1", "wrong").isOk());
+            assertEquals("Welcome Alice ,A it is great to see you.", alice.call(ChatProtocol.LOGIN, "al_1", "Abcdef1!").field(0));
+            assertTrue(bob.call(ChatProtocol.LOGIN, "bo_1", "Abcdef1!").isOk());
+
+            // each session is charged to its own user
+            ChatProtocol.Frame sent = alice.call(ChatProtocol.SEND, "+27831111111", "dinner at eight");
+            assertTrue(sent.isOk());
+            assertTrue(alice.call(ChatProtocol.SEND, "+27831111111", "x".repeat(251)).field(0).contains("250"));
+            assertTrue(alice.call(ChatProtocol.SEND, "+27831111111", "second").isOk());
+            assertEquals("You have no messages left to send.", alice.call(ChatProtocol.SEND, "+27831111111", "third").field(0));
+            assertTrue(bob.call(ChatProtocol.SEND, "+27831111111", "from bob").isOk());
+            assertEquals(0, login.findUser("al_1").getMessageQuota());
+            assertEquals(4, login.findUser("bo_1").getMessageQuota());
+            assertTrue(alice.call(ChatProtocol.STORE, "+27832222222", "y".repeat(300)).isOk());
+
+            // alice reads what was sent to her number
+            assertEquals(0, alice.call(ChatProtocol.RECEIVE).getFieldCount());
+            assertTrue(bob.call(ChatProtocol.SEND, "+27830000001", "one").isOk());
+            assertTrue(bob.call(ChatProtocol.SEND, "+27830000001", "two").isOk());
+            assertEquals("one", alice.call(ChatProtocol.RECEIVE, "1").messages().get(0).getPayload());
+            assertEquals("two", alice.call(ChatProtocol.RECEIVE).messages().get(0).getPayload());
+            assertEquals(0, alice.call(ChatProtocol.RECEIVE).getFieldCount());
+
+            // searches only reach the caller's own messages
+            List<Message> found = alice.call(ChatProtocol.SEARCH_ID, sent.field(0)).messages();
+            assertEquals(1, found.size());
+            assertEquals("dinner at eight", found.get(0).getPayload());
+            assertEquals(sent.field(1), found.get(0).getMessageHash());
+            assertEquals(0, bob.call(ChatProtocol.SEARCH_ID, sent.field(0)).getFieldCount());
+            assertEquals(2, alice.call(ChatProtocol.SEARCH_RECIPIENT, "+27831111111").messages().size());
+            assertEquals(1, bob.call(ChatProtocol.SEARCH_RECIPIENT, "+27831111111").messages().size());
+            assertEquals("dinner at eight", alice.call(ChatProtocol.SEARCH_TEXT, "dinner").messages().get(0).getPayload());
+            assertEquals(0, bob.call(ChatProtocol.SEARCH_TEXT, "dinner").getFieldCount());
+            assertEquals(2, alice.call(ChatProtocol.SEARCH_RECIPIENT, "+27830000001").messages().size()); // sent to her
+            assertEquals(0, bob.call(ChatProtocol.SEARCH_ID, "MSG99999999").getFieldCount());
+
+            // only the sender deletes
+            assertEquals("false", bob.call(ChatProtocol.DELETE, sent.field(1)).field(0));
+            assertNotNull(manager.searchByMessageID(sent.field(0)));
+            assertEquals("true", alice.call(ChatProtocol.DELETE, sent.field(1)).field(0));
+            assertEquals("false", alice.call(ChatProtocol.DELETE, sent.field(1)).field(0));
+            assertFalse(bob.call((byte) 99).isOk());
+            assertEquals(2, server.getSessionCount());
+        }
+    }
+
+    @Test
+    void messageOperationsNeedALoginAndStayWithinTheUsersMessages() throws Exception {
+        Login login = new Login(new PasswordHasher(1));
+        login.register("Alice", "A", "al_1", "Abcdef1!", "+27830000001", 10);
+        login.register("Bob", "B", "bo_1", "Abcdef1!", "+27830000002", 10);
+        try (MessageManager manager = new MessageManager(dir.resolve("storedMessages.json").toFile());
+             ChatServer server = new ChatServer(login, manager, new InetSocketAddress("127.0.0.1", 0));
+             ChatClient alice = new ChatClient(new InetSocketAddress("127.0.0.1", server.getPort()));
+             ChatClient bob = new ChatClient(new InetSocketAddress("127.0.0.1", server.getPort()));
+             ChatClient stranger = new ChatClient(new InetSocketAddress("127.0.0.1", server.getPort()))) {
+            Message local = new Message("+27839999999", "stored before anyone connected");
+            manager.storeMessage(local);
+            assertTrue(alice.call(ChatProtocol.LOGIN, "al_1", "Abcdef1!").isOk());
+            assertTrue(bob.call(ChatProtocol.LOGIN, "bo_1", "Abcdef1!").isOk());
+            ChatProtocol.Frame secret = alice.call(ChatProtocol.STORE, "+27839999999", "alice's secret");
+
+            for (ChatProtocol.Frame r : List.of(
+                    stranger.call(ChatProtocol.SEARCH_ID, secret.field(0)),
+                    stranger.call(ChatProtocol.SEARCH_RECIPIENT, "+27839999999"),
+                    stranger.call(ChatProtocol.SEARCH_TEXT, "secret"),
+                    stranger.call(ChatProtocol.DELETE, secret.field(1)))) {
+                assertFalse(r.isOk());
+                assertEquals("Not logged in.", r.field(0));
+            }
+
+            assertEquals(List.of("alice's secret"), alice.call(ChatProtocol.SEARCH_RECIPIENT, "+27839999999")
+                    .messages().stream().map(Message::getPayload).toList());
+            assertEquals(0, bob.call(ChatProtocol.SEARCH_RECIPIENT, "+27839999999").getFieldCount());
+            assertEquals("false", bob.call(ChatProtocol.DELETE, secret.field(1)).field(0));
+            assertEquals("false", bob.call(ChatProtocol.DELETE, local.getMessageHash()).field(0));
+            assertEquals(2, manager.searchMessagesByRecipient("+27839999999").size());
+        }
+    }
+
+    @Test
+    void manyConcurrentSessions() throws Exception {
+        Login login = new Login(new PasswordHasher(1));
+        login.register("Load", "Test", "lo_1", "Abcdef1!", "+27830000001", 1_000_000);
+        int clients = 50;
+        int perClient = 40;
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try (MessageManager manager = new MessageManager(dir.resolve("storedMessages.json").toFile());
+             ChatServer server = new ChatServer(login, manager, new InetSocketAddress("127.0.0.1", 0), 4)) {
+            List<Future<Integer>> done = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                final int client = c;
+                done.add(pool.submit(() -> {
+                    try (ChatClient cl = new ChatClient(new InetSocketAddress("127.0.0.1", server.getPort()))) {
+                        assertTrue(cl.call(ChatProtocol.LOGIN, "lo_1", "Abcdef1!").isOk());
+                        int ok = 0;
+                        for (int i = 0; i < perClient; i++) {
+                            if (cl.call(ChatProtocol.SEND, "+2783" + client, "message " + i).isOk()) ok++;
+                        }
+                        return ok;
+                    }
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> f : done) total += f.get();
+            assertEquals(clients * perClient, total);
+            assertEquals(clients * perClient, manager.getSentMessages().size());
+            assertEquals(1_000_000 - clients * perClient, login.findUser("lo_1").getMessageQuota());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void pipelinedRequestsPauseReadingAndCloseAnswersWhatWasReceived() throws Exception {
+        Login login = new Login(new PasswordHasher(1));
+        int requests = 20 * ChatServer.MAX_IN_FLIGHT;
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try (MessageManager manager = new MessageManager(dir.resolve("storedMessages.json").toFile());
+             ChatServer server = new ChatServer(login, manager, new InetSocketAddress("127.0.0.1", 0), 1);
+             SocketChannel client = SocketChannel.open(new InetSocketAddress("127.0.0.1", server.getPort()))) {
+            login.register("Pipe", "Line", "pi_1", "Abcdef1!", "+27830000001", 10);
+            ByteBuffer logIn = ChatProtocol.encode(ChatProtocol.LOGIN, 0, "pi_1", "Abcdef1!");
+            while (logIn.hasRemaining()) client.write(logIn);
+            assertTrue(readFrame(client).isOk());
+            manager.sendMessage(new Message("+27830000001", "x".repeat(200)));
+            // writes everything up front and only then reads, like a client that pipelines blindly
+            Future<?> writer = pool.submit(() -> {
+                for (int i = 1; i <= requests; i++) {
+                    ByteBuffer b = ChatProtocol.encode(ChatProtocol.SEARCH_RECIPIENT, i, "+27830000001");
+                    while (b.hasRemaining()) client.write(b);
+                }
+                return null;
+            });
+            while (server.getReadPauses() == 0) Thread.sleep(1);
+            for (int i = 1; i <= requests; i++) {
+                ChatProtocol.Frame r = readFrame(client);
+                assertEquals(i, r.getId());
+                assertEquals(1, r.messages().size());
+            }
+            writer.get();
+
+            for (int i = 1; i <= 10; i++) {
+                ByteBuffer b = ChatProtocol.encode(ChatProtocol.SEARCH_RECIPIENT, requests + i, "+27830000001");
+                while (b.hasRemaining()) client.write(b);
+            }
+            assertEquals(requests + 1, readFrame(client).getId()); // the server has started on them
+            server.close();
+            // every response that was started comes out whole, in order, and then the connection ends
+            int next = requests + 2;
+            while (true) {
+                ChatProtocol.Frame r;
+                try {
+                    r = readFrame(client);
+                } catch (IOException closed) {
+                    break;
+                }
+                assertEquals(next++, r.getId());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static ChatProtocol.Frame readFrame(SocketChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        readFully(channel, header);
+        ByteBuffer body = ByteBuffer.allocate(header.getInt(0));
+        readFully(channel, body);
+        return ChatProtocol.decode(body.flip());
+    }
+
+    private static void readFully(SocketChannel channel, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf) < 0) throw new IOException("closed");
+        }
+    }
+}
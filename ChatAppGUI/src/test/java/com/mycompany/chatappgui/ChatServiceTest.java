@@ -0,0 +1,38 @@
+package com.mycompany.chatappgui;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void operationsCompleteInTheBackgroundAndCloseFlushes() throws Exception {
+        File file = dir.resolve("storedMessages.json").toFile();
+        Login login = new Login(new PasswordHasher(PasswordHasher.MIN_ITERATIONS));
+        ChatService service = new ChatService(login, new MessageManager(file));
+
+        assertEquals("User successfully registered.",
+                service.registerUser("A", "B", "u_1", "Abcdef1!", "+27830000001", 3).get());
+        assertTrue(service.loginUser("u_1", "Abcdef1!").get());
+
+        Message stored = new Message("+27830000002", "kept on disk");
+        service.storeMessage(stored).get();
+        service.sendMessage(new Message("+27830000002", "sent")).get();
+        assertEquals(2, service.searchMessagesByRecipient("+27830000002").get().size());
+        assertSame(stored, service.searchByMessageID(stored.getMessageID()).get());
+        assertTrue(service.generateSentMessagesReport().get().contains("Message: sent"));
+
+        service.closeAsync().get();
+        try (MessageManager reloaded = new MessageManager(file)) {
+            assertEquals(1, reloaded.getStoredMessages().size());
+        }
+    }
+}
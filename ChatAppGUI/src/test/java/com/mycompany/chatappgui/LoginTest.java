@@ -3,6 +3,12 @@ package com.mycompany.chatappgui;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class LoginTest {
@@ -49,4 +55,99 @@ class LoginTest {
         String res = login.registerUser("C","D","u_1","Abcdef1!","+27830000002",3);
         assertEquals("Username already exists.", res);
     }
+
+    @Test
+    void passwordsAreStoredHashed() {
+        login.registerUser("A","B","u_2","Abcdef1!","+27830000001",3);
+        User u = login.findUser("u_2");
+        assertNotNull(u);
+        assertNotEquals("Abcdef1!", u.getPasswordHash());
+        assertTrue(u.getPasswordHash().startsWith("pbkdf2-sha256$"));
+        assertFalse(login.loginUser("u_2", "Abcdef1?"));
+        assertNull(login.getLoggedInUser());
+        assertFalse(login.loginUser("nobody", "Abcdef1!"));
+    }
+
+    @Test
+    void asyncLogin() throws Exception {
+        Login fast = new Login(new PasswordHasher(PasswordHasher.MIN_ITERATIONS));
+        fast.registerUser("A","B","u_3","Abcdef1!","+27830000001",3);
+        assertTrue(fast.loginUserAsync("u_3", "Abcdef1!").get());
+        assertEquals("u_3", fast.getLoggedInUser().getUsername());
+    }
+
+    @Test
+    void hasherBudgetIsClamped() {
+        PasswordHasher h = PasswordHasher.withBudget(1);
+        assertTrue(h.getIterations() >= PasswordHasher.MIN_ITERATIONS);
+        assertTrue(h.verify("Abcdef1!", h.hash("Abcdef1!")));
+        assertFalse(h.verify("Abcdef1!", "garbage"));
+    }
+
+    @Test
+    void validatorsMatchOriginalRegexes() {
+        Pattern password = Pattern.compile("^(?=.*[A-Z])(?=.*[a-z])(?=.*\\d)(?=.*[^A-Za-z0-9]).{8,}$");
+        Pattern cell = Pattern.compile("^\\+\\d{1,3}\\d{4,12}$");
+        String[] inputs = {
+                "", "Abcdef1!", "Abcdef1", "abcdef1!", "ABCDEF1!", "Abcdefg!", "Abcdefg1", "Abc def1",
+                "Abcdef1!\n", "Abc\ndef1!", "Abcdef1\u2028x", "Abcdef\u0661!", "Ab1\uD83D\uDE00cde",
+                "Ab1\uD83D\uDE00cdef", "Ab1\uD83Dcdef", "+2783", "+27830", "+278300000000000",
+                "+2783000000000000", "27830000000", "+2783a000000", "++27830000000", "+\u0661\u0662\u0663\u0664\u0665",
+        };
+        for (String in : inputs) {
+            assertEquals(password.matcher(in).matches(), UserValidator.isValidPassword(in), in);
+            assertEquals(cell.matcher(in).matches(), UserValidator.isValidCellPhone(in), in);
+        }
+    }
+
+    @Test
+    void batchRegistrationReportsErrorCodes() throws Exception {
+        Login fast = new Login(new PasswordHasher(PasswordHasher.MIN_ITERATIONS));
+        fast.registerUser("A", "B", "u_1", "Abcdef1!", "+27830000001", 3);
+        String json = "[{\"firstName\":\"C\",\"lastName\":\"D\",\"username\":\"u_2\",\"password\":\"Abcdef1!\",\"cellPhone\":\"+27830000002\",\"messageQuota\":4},"
+                + "{\"username\":\"u_2\",\"password\":\"Abcdef1!\",\"cellPhone\":\"+27830000003\"},"
+                + "{\"username\":\"u_1\",\"password\":\"short\",\"cellPhone\":\"0830000001\"},"
+                + "{\"username\":\"toolong\",\"password\":\"Abcdef1!\",\"cellPhone\":\"+27830000004\"}]";
+        List<Registration> batch = Registration.readAll(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(4, batch.size());
+
+        List<EnumSet<ValidationError>> results = fast.registerAll(batch);
+        assertEquals(EnumSet.noneOf(ValidationError.class), results.get(0));
+        assertEquals(EnumSet.of(ValidationError.DUPLICATE_USERNAME), results.get(1));
+        assertEquals(EnumSet.of(ValidationError.PASSWORD_FORMAT, ValidationError.CELL_PHONE_FORMAT,
+                ValidationError.DUPLICATE_USERNAME), results.get(2));
+        assertEquals(EnumSet.of(ValidationError.USERNAME_FORMAT), results.get(3));
+        assertEquals(4, fast.findUser("u_2").getMessageQuota());
+        assertTrue(fast.loginUser("u_2", "Abcdef1!"));
+        assertEquals(2, fast.getUsers().size());
+    }
+
+    @Test
+    void sendRateLimitAppliesPerUser() {
+        Login fast = new Login(new PasswordHasher(PasswordHasher.MIN_ITERATIONS));
+        assertNull(fast.register("A", "B", "u_1", "Abcdef1!", "+27830000001", 10));
+        fast.setSendRateLimit(3, 1); // 3 at once, then one a minute
+        assertNull(fast.register("C", "D", "u_2", "Abcdef1!", "+27830000002", 2));
+
+        User limited = fast.findUser("u_1");
+        assertEquals(3, limited.debitQuota(5));
+        assertEquals(0, limited.debitQuota(1));
+        assertTrue(limited.isRateLimited());
+        assertEquals(7, limited.getMessageQuota(), "refused sends are not charged");
+
+        User small = fast.findUser("u_2");
+        try (Quota.Reservation r = small.reserveSends(5)) {
+            assertEquals(2, r.getGranted());
+            r.commit(1);
+        }
+        assertEquals(1, small.getMessageQuota());
+        try (Quota.Reservation r = small.reserveSends(1)) {
+            assertEquals(1, r.getGranted());
+        } // closed without commit: handed back
+        assertEquals(1, small.getMessageQuota());
+        assertFalse(small.isRateLimited());
+
+        fast.setSendRateLimit(0, 0);
+        assertEquals(7, limited.debitQuota(10));
+    }
 }
@@ -0,0 +1,483 @@
+package com.mycompany.chatappgui;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageManagerConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 2_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void concurrentSendStoreDisregardAndDelete() throws Exception {
+        File file = dir.resolve("storedMessages.json").toFile();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Message>>> deletedPerThread = new ArrayList<>();
+
+        try (MessageManager manager = new MessageManager(file)) {
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                deletedPerThread.add(pool.submit(() -> {
+                    start.await();
+                    List<Message> deleted = new ArrayList<>();
+                    for (int i = 0; i < PER_THREAD; i++) {
+                        String recipient = "+2783" + thread + "00000" + (i % 10);
+                        Message m = new Message(recipient, "t" + thread + " msg " + i);
+                        switch (i % 3) {
+                            case 0 -> manager.sendMessage(m);
+                            case 1 -> manager.storeMessage(m);
+                            default -> manager.disregardMessage(m);
+                        }
+                        if (i % 50 == 0) {
+                            assertTrue(manager.deleteMessageByHash(m.getMessageHash()));
+                            deleted.add(m);
+                        }
+                        // reports must be computable while others write
+                        if (i % 200 == 0) assertNotNull(manager.generateSentMessagesReport());
+                    }
+                    return deleted;
+                }));
+            }
+            start.countDown();
+
+            int deleted = 0;
+            for (Future<List<Message>> f : deletedPerThread) {
+                for (Message m : f.get()) {
+                    assertNull(manager.searchByMessageID(m.getMessageID()));
+                    deleted++;
+                }
+            }
+            pool.shutdown();
+
+            int total = manager.getSentMessages().size() + manager.getStoredMessages().size()
+                    + manager.getDisregardedMessages().size();
+            assertEquals(THREADS * PER_THREAD - deleted, total);
+
+            // every surviving message is reachable through the recipient index
+            int viaIndex = 0;
+            for (int t = 0; t < THREADS; t++) {
+                for (int r = 0; r < 10; r++) viaIndex += manager.searchMessagesByRecipient("+2783" + t + "00000" + r).size();
+            }
+            assertEquals(total, viaIndex);
+
+            int stored = manager.getStoredMessages().size();
+            manager.close();
+            try (MessageManager reloaded = new MessageManager(file)) {
+                assertEquals(stored, reloaded.getStoredMessages().size());
+            }
+        }
+    }
+
+    @Test
+    void bufferPublishesGapFreePrefix() throws Exception {
+        MessageBuffer buffer = new MessageBuffer();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < PER_THREAD; i++) {
+                    buffer.add(new Message("+27830000000", "x"));
+                    // an earlier append still in flight may hide this one, never leave a gap
+                    int size = buffer.size();
+                    if (size > 0) assertNotNull(buffer.get(size - 1));
+                }
+            }));
+        }
+        for (Future<?> f : futures) f.get();
+        pool.shutdown();
+        assertEquals(THREADS * PER_THREAD, buffer.size());
+        for (Message m : buffer) assertNotNull(m);
+    }
+
+    @Test
+    void bufferHidesAppendsBehindAnUnfinishedOne() {
+        MessageBuffer buffer = new MessageBuffer();
+        int stalled = buffer.claim();
+        Message later = new Message("+27830000000", "later");
+        buffer.add(later);
+        // even the appending thread does not see its own message past the open slot
+        assertEquals(0, buffer.size());
+        buffer.fill(stalled, new Message("+27830000000", "earlier"));
+        assertEquals(2, buffer.size());
+        assertSame(later, buffer.get(1));
+    }
+
+    @Test
+    void indexShowsAnAddByIdAndHashAsSoonAsItReturns() throws Exception {
+        MessageIndex index = new MessageIndex();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < PER_THREAD; i++) {
+                    Message m = new Message("+27830000000", "x");
+                    index.add(m);
+                    assertSame(m, index.firstById(m.getMessageID()));
+                    assertTrue(index.byHash(m.getMessageHash()).contains(m));
+                }
+            }));
+        }
+        for (Future<?> f : futures) f.get();
+        pool.shutdown();
+        assertEquals(THREADS * PER_THREAD, index.byRecipient("+27830000000").size());
+    }
+
+    @Test
+    void payloadIndexTakesConcurrentAddsWhileSearching() throws Exception {
+        PayloadIndex index = new PayloadIndex();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS + 1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < PER_THREAD; i++) index.add(new Message("+27830000000", "shared t" + thread + " n" + i));
+            }));
+        }
+        Future<?> searcher = pool.submit(() -> {
+            for (int i = 0; i < 50; i++) {
+                for (Message m : index.search("shared", 100)) assertTrue(m.getPayload().startsWith("shared"));
+            }
+        });
+        for (Future<?> f : futures) f.get();
+        searcher.get();
+        pool.shutdown();
+        assertEquals(THREADS * PER_THREAD, index.search("shared", Integer.MAX_VALUE).size());
+        assertEquals(1, index.search("t3 n1999", 10).size());
+    }
+
+    @Test
+    void pipelineBatchesValidatesAndDebitsQuota() throws Exception {
+        File file = dir.resolve("storedMessages.json").toFile();
+        User sender = User.withPasswordHash("A", "B", "u_1", null, "+27830000001", 150);
+        List<CompletableFuture<SendPipeline.Outcome>> results = new ArrayList<>();
+        try (MessageManager manager = new MessageManager(file)) {
+            SendPipeline sends = new SendPipeline(manager, SendPipeline.Mode.SEND, 16, 32, 1);
+            for (int i = 0; i < 200; i++) {
+                String payload = i % 10 == 9 ? "x".repeat(Message.MAX_SEND_LENGTH + 1) : "msg " + i;
+                results.add(sends.submit(new Message("+27830000002", payload), sender)); // blocks when 16 are queued
+            }
+            sends.close();
+
+            int sent = 0, tooLong = 0, noQuota = 0;
+            for (var r : results) {
+                switch (r.get()) {
+                    case SENT -> sent++;
+                    case TOO_LONG -> tooLong++;
+                    case NO_QUOTA -> noQuota++;
+                    default -> fail();
+                }
+            }
+            assertEquals(20, tooLong);
+            assertEquals(150, sent);
+            assertEquals(30, noQuota);
+            assertEquals(0, sender.getMessageQuota());
+            assertEquals(150, manager.getSentMessages().size());
+            SendPipeline.Stats stats = sends.getStats();
+            assertEquals(200, stats.getSubmitted());
+            assertEquals(150, stats.getAccepted());
+            assertTrue(stats.getBatches() >= 150 / 32);
+
+            SendPipeline stores = new SendPipeline(manager, SendPipeline.Mode.STORE);
+            for (int i = 0; i < 500; i++) stores.submit(new Message("+27830000003", "stored " + i), null);
+            stores.close();
+            assertEquals(500, manager.getStoredMessages().size());
+        }
+        try (MessageManager reloaded = new MessageManager(file)) {
+            assertEquals(500, reloaded.getStoredMessages().size());
+        }
+    }
+
+    @Test
+    void pipelineRefundsFailedBatchesAndRejectsAfterItsWorkerDies() throws Exception {
+        File file = dir.resolve("storedMessages.json").toFile();
+        User sender = User.withPasswordHash("A", "B", "u_1", null, "+27830000001", 10);
+        User hasty = User.withPasswordHash("C", "D", "u_2", null, "+27830000002", 10);
+        hasty.limitRate(2, 1);
+        try (MessageManager manager = new MessageManager(file)) {
+            SendPipeline sends = new SendPipeline(manager, SendPipeline.Mode.SEND, 16, 32, 1);
+            Message broken = new Message("+27830000003", "cannot be indexed") {
+                @Override
+                public String getMessageID() { throw new IllegalStateException("broken"); }
+            };
+            CompletableFuture<SendPipeline.Outcome> failed = sends.submit(broken, sender);
+            ExecutionException e = assertThrows(ExecutionException.class, failed::get);
+            assertEquals("broken", e.getCause().getMessage());
+            assertEquals(10, sender.getMessageQuota()); // the failed batch was refunded
+
+            List<CompletableFuture<SendPipeline.Outcome>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) results.add(sends.submit(new Message("+27830000004", "hasty " + i), hasty));
+            sends.close();
+            long sent = results.stream().filter(r -> r.join() == SendPipeline.Outcome.SENT).count();
+            long limited = results.stream().filter(r -> r.join() == SendPipeline.Outcome.RATE_LIMITED).count();
+            assertEquals(2, sent);
+            assertEquals(2, limited);
+            assertEquals(8, hasty.getMessageQuota());
+            assertEquals(2, sends.getStats().getRateLimited());
+            assertThrows(IllegalStateException.class, () -> sends.submit(new Message("+27830000004", "late"), null));
+
+            // a worker killed by an unchecked exception fails what was queued and rejects the rest
+            SendPipeline doomed = new SendPipeline(manager, SendPipeline.Mode.SEND, 1, 1, 0);
+            CompletableFuture<SendPipeline.Outcome> lost = doomed.submit(null, null);
+            assertThrows(ExecutionException.class, lost::get);
+            assertThrows(IllegalStateException.class, () -> {
+                for (int i = 0; i < 3; i++) doomed.submit(new Message("+27830000004", "after"), null);
+            });
+            doomed.close();
+        }
+    }
+
+    @Test
+    void parallelQueryMatchesSequentialScan() throws Exception {
+        File file = dir.resolve("storedMessages.json").toFile();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try (MessageManager manager = new MessageManager(file)) {
+            List<Message> sent = new ArrayList<>();
+            List<Message> disregarded = new ArrayList<>();
+            for (int i = 0; i < 20_000; i++) {
+                Message m = new Message("+278300" + (i % 37), "payload " + "x".repeat(i % 97));
+                (i % 3 == 0 ? disregarded : sent).add(m);
+            }
+            manager.sendAll(sent);
+            manager.disregardAll(disregarded);
+            manager.storeMessage(new Message("+27839999999", "x".repeat(104))); // ties the longest sent
+
+            MessageQuery query = manager.query();
+            manager.sendMessage(new Message("+27830000", "x".repeat(500))); // after the snapshot
+            assertEquals(20_001, query.size());
+
+            List<Message> all = new ArrayList<>(sent);
+            all.addAll(manager.getStoredMessages());
+            all.addAll(disregarded);
+            Map<String, Long> expectedCounts = new HashMap<>();
+            for (Message m : all) expectedCounts.merge(m.getRecipient(), 1L, Long::sum);
+            List<Message> expectedHits = new ArrayList<>();
+            for (Message m : all) if (m.getPayload().length() % 10 == 3) expectedHits.add(m);
+            Message expectedLongest = all.get(0);
+            for (Message m : all) if (m.getPayload().length() > expectedLongest.getPayload().length()) expectedLongest = m;
+
+            for (MessageQuery q : List.of(query, query.with(pool, 100), query.with(pool, 1))) {
+                assertSame(expectedLongest, q.longest(), "first of the longest, in list order");
+                assertEquals(expectedCounts, q.countByRecipient());
+                assertEquals(expectedHits, q.filter(m -> m.getPayload().length() % 10 == 3));
+                assertEquals(expectedHits.size(), q.count(m -> m.getPayload().length() % 10 == 3));
+            }
+            assertNull(new MessageQuery(List.of(new MessageBuffer(), new MessageBuffer())).longest());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void pipelineFailsStoresThatCouldNotBePersisted() throws Exception {
+        File file = dir.resolve("storedMessages.json").toFile();
+        StorageConfig failing = new StorageConfig(file, StorageFormat.JSON) {
+            @Override
+            MessageStore openStore() {
+                return new StoredMessageLog(file) {
+                    @Override
+                    public synchronized void appendStore(Message m) throws IOException {
+                        throw new IOException("disk full");
+                    }
+
+                    @Override
+                    public synchronized void appendStores(Iterable<Message> batch) throws IOException {
+                        throw new IOException("disk full");
+                    }
+                };
+            }
+        };
+        failing.setLazyLoad(false);
+        try (MessageManager manager = new MessageManager(failing)) {
+            SendPipeline stores = new SendPipeline(manager, SendPipeline.Mode.STORE);
+            List<CompletableFuture<SendPipeline.Outcome>> results = new ArrayList<>();
+            for (int i = 0; i < 5; i++) results.add(stores.submit(new Message("+27830000001", "lost " + i), null));
+            stores.close();
+            for (CompletableFuture<SendPipeline.Outcome> r : results) {
+                ExecutionException e = assertThrows(ExecutionException.class, r::get);
+                assertInstanceOf(UncheckedIOException.class, e.getCause());
+            }
+            assertEquals(0, stores.getStats().getAccepted());
+            assertTrue(manager.getStoredMessages().isEmpty(), "nothing half-stored");
+            assertThrows(UncheckedIOException.class, () -> manager.storeMessage(new Message("+27830000001", "direct")));
+            assertTrue(manager.getStoredMessages().isEmpty());
+        }
+    }
+
+    @Test
+    void mailboxesDeliverInSendOrderWhileDraining() throws Exception {
+        File file = dir.resolve("storedMessages.json").toFile();
+        String[] recipients = {"+27830000001", "+27830000002", "+27830000003"};
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS + recipients.length);
+        CountDownLatch sendersDone = new CountDownLatch(THREADS);
+        try (MessageManager manager = new MessageManager(file)) {
+            manager.enableMailboxes();
+            List<Future<List<Message>>> readers = new ArrayList<>();
+            for (String r : recipients) {
+                readers.add(pool.submit(() -> {
+                    List<Message> got = new ArrayList<>();
+                    while (true) {
+                        boolean done = sendersDone.getCount() == 0;
+                        if (manager.getMailboxes().drain(r, got::add, 64) == 0 && done) return got;
+                    }
+                }));
+            }
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                pool.submit(() -> {
+                    for (int i = 0; i < PER_THREAD; i++) {
+                        manager.sendMessage(new Message(recipients[i % recipients.length], thread + ":" + i));
+                    }
+                    sendersDone.countDown();
+                });
+            }
+
+            long delivered = 0;
+            for (int r = 0; r < recipients.length; r++) {
+                List<Message> got = readers.get(r).get();
+                delivered += got.size();
+                int[] last = new int[THREADS];
+                Arrays.fill(last, -1);
+                for (Message m : got) {
+                    assertEquals(recipients[r], m.getRecipient());
+                    String[] parts = m.getPayload().split(":");
+                    int thread = Integer.parseInt(parts[0]), i = Integer.parseInt(parts[1]);
+                    assertTrue(i > last[thread], "each sender's messages arrive in order");
+                    last[thread] = i;
+                }
+                Mailbox box = manager.getMailboxes().get(recipients[r]);
+                assertEquals(0, box.size());
+                delivered += box.getRejected();
+            }
+            assertEquals(THREADS * PER_THREAD, delivered, "every send is delivered or counted as rejected");
+            assertEquals(recipients.length, manager.getMailboxes().recipientCount());
+            assertEquals(THREADS * PER_THREAD, manager.getSentMessages().size());
+        } finally {
+            pool.shutdown();
+        }
+
+        Mailbox small = new Mailbox("+27830000009", 3);
+        assertEquals(4, small.capacity());
+        for (int i = 0; i < 5; i++) small.offer(new Message("+27830000009", "m" + i));
+        assertEquals(1, small.getRejected());
+        assertEquals(List.of("m0", "m1"), small.drain(2).stream().map(Message::getPayload).toList());
+        assertTrue(small.offer(new Message("+27830000009", "m5")));
+        assertEquals(List.of("m2", "m3", "m5"), small.drain(10).stream().map(Message::getPayload).toList());
+        assertTrue(small.drain(10).isEmpty());
+    }
+
+    @Test
+    void mailboxesAreOptInGrowOnDemandAndDropDeletedMessages() throws Exception {
+        File file = dir.resolve("storedMessages.json").toFile();
+        try (MessageManager manager = new MessageManager(file)) {
+            manager.sendMessage(new Message("+27830000001", "before"));
+            assertNull(manager.getMailboxes());
+            Mailboxes boxes = manager.enableMailboxes();
+            assertSame(boxes, manager.enableMailboxes());
+
+            Message doomed = new Message("+27830000001", "deleted before it was read");
+            manager.sendMessage(new Message("+27830000001", "first"));
+            manager.sendMessage(doomed);
+            manager.sendMessage(new Message("+27830000001", "last"));
+            Mailbox box = boxes.get("+27830000001");
+            assertEquals(Mailbox.CHUNK, box.allocated());
+            assertTrue(manager.deleteMessageByHash(doomed.getMessageHash()));
+            assertEquals(List.of("first", "last"), boxes.drain("+27830000001", 10).stream().map(Message::getPayload).toList());
+            assertFalse(boxes.withdraw(doomed));
+        }
+
+        StorageConfig config = new StorageConfig(dir.resolve("other.json").toFile(), StorageFormat.JSON);
+        config.setMailboxCapacity(100);
+        try (MessageManager manager = new MessageManager(config)) {
+            for (int i = 0; i < 200; i++) manager.sendMessage(new Message("+27830000002", "m" + i));
+            Mailbox box = manager.getMailboxes().get("+27830000002");
+            assertEquals(128, box.capacity());
+            assertEquals(128, box.allocated()); // grew to the bound and no further
+            assertEquals(72, box.getRejected());
+            assertEquals(128, box.drain(1000).size());
+        }
+
+        Mailbox ring = new Mailbox("+27830000003", 1 << 20);
+        assertEquals(0, ring.allocated());
+        for (int lap = 0; lap < 3; lap++) {
+            for (int i = 0; i < 40; i++) assertTrue(ring.offer(new Message("+27830000003", "m" + i)));
+            assertEquals(40, ring.drain(100).size());
+        }
+        assertEquals(4 * Mailbox.CHUNK, ring.allocated()); // 120 messages moved through four chunks
+    }
+
+    @Test
+    void quotasNeverOverspendUnderContention() throws Exception {
+        MessageQuota quota = new MessageQuota(10_000, 8);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> taken = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            taken.add(pool.submit(() -> {
+                start.await();
+                int mine = 0;
+                for (int i = 0; i < 5_000; i++) {
+                    if (thread % 2 == 0) {
+                        mine += quota.acquireUpTo(1 + i % 3);
+                    } else {
+                        try (Quota.Reservation r = quota.reserve(2)) {
+                            // use one, hand the other back (or both, every third time)
+                            if (i % 3 != 0) {
+                                r.commit(Math.min(1, r.getGranted()));
+                                mine += Math.min(1, r.getGranted());
+                            }
+                        }
+                    }
+                }
+                return mine;
+            }));
+        }
+        start.countDown();
+        int total = 0;
+        for (Future<Integer> f : taken) total += f.get();
+        pool.shutdown();
+        assertEquals(10_000, total);
+        assertEquals(0, quota.available());
+        assertFalse(quota.tryAcquire(1));
+        quota.grant(3);
+        assertTrue(quota.tryAcquire(3));
+
+        long[] now = {0};
+        TokenBucket bucket = new TokenBucket(5, 2, () -> now[0]); // 5 at once, 2 a second after that
+        assertEquals(5, bucket.acquireUpTo(10));
+        assertEquals(0, bucket.acquireUpTo(1));
+        now[0] += 1_000_000_000L;
+        assertEquals(2, bucket.available());
+        bucket.release(1);
+        assertEquals(3, bucket.acquireUpTo(10));
+        now[0] += 60_000_000_000L;
+        assertEquals(5, bucket.available(), "never fuller than its capacity");
+
+        Quota both = Quota.allOf(new MessageQuota(4), new TokenBucket(10, 1, () -> now[0]));
+        assertEquals(4, both.acquireUpTo(6));
+        assertEquals(0, both.available());
+    }
+}
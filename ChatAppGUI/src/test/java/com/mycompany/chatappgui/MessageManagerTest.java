@@ -2,8 +2,15 @@ package com.mycompany.chatappgui;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -11,11 +18,13 @@ class MessageManagerTest {
 
     private MessageManager manager;
     private final File storedFile = new File("storedMessages.json");
+    private final File storedLogFile = new File("storedMessages.json.log");
 
     @BeforeEach
     void setUp() {
         // Ensure a clean storedMessages.json for each test
         if (storedFile.exists()) storedFile.delete();
+        if (storedLogFile.exists()) storedLogFile.delete();
         manager = new MessageManager();
         manager.populateTestData(); // populate arrays with the 5 required test messages
     }
@@ -69,6 +78,31 @@ class MessageManagerTest {
         assertFalse(stillThere);
     }
 
+    @Test
+    void testIndexesFollowDeletes() {
+        Message m2 = manager.getStoredMessages().stream().filter(m -> m.getPayload().startsWith("Where are you?")).findFirst().orElse(null);
+        assertNotNull(m2);
+        assertSame(m2, manager.searchByMessageID(m2.getMessageID()));
+        assertTrue(manager.deleteMessageByHash(m2.getMessageHash()));
+        assertNull(manager.searchByMessageID(m2.getMessageID()));
+        assertEquals(1, manager.searchMessagesByRecipient("+27838884567").size());
+        assertFalse(manager.deleteMessageByHash(m2.getMessageHash()));
+    }
+
+    @Test
+    void testMessageIdAndHashFormat() {
+        Message m = new Message("+27830000001", "hello");
+        assertTrue(m.getMessageID().matches("MSG\\d{5,}"));
+        assertTrue(m.getMessageHash().matches("HASH[0-9a-f]{16}"));
+        assertSame(m.getMessageHash(), m.getMessageHash());
+        assertEquals("MSG00042", MessageIds.formatId(42));
+        assertEquals("MSG1234567", MessageIds.formatId(1234567));
+
+        java.util.Set<String> hashes = new java.util.HashSet<>();
+        for (int i = 0; i < 200_000; i++) hashes.add(new Message("+27830000001", "same payload").getMessageHash());
+        assertEquals(200_000, hashes.size());
+    }
+
     @Test
     void testDisplayReportIncludesHashRecipientMessage() {
         String report = manager.generateSentMessagesReport();
@@ -77,4 +111,583 @@ class MessageManagerTest {
         assertTrue(report.contains("Did you get the cake?"));
         assertTrue(report.contains("It is dinner time !"));
     }
+
+    @Test
+    void testReportAndLongestViewsFollowAddsAndDeletes() {
+        String report = manager.generateSentMessagesReport();
+        assertSame(report, manager.generateSentMessagesReport()); // unchanged list: cached
+
+        Message extra = new Message("+27830000009", "A sent message that is longer than every other test message so far.");
+        manager.sendMessage(extra);
+        String grown = manager.generateSentMessagesReport();
+        assertTrue(grown.startsWith(report));
+        assertTrue(grown.endsWith("Message: " + extra.getPayload() + "\n"));
+        assertTrue(manager.displaySenderRecipientAllSent().endsWith("Recipient: +27830000009\n"));
+        assertSame(extra, manager.getLongestMessageAcrossAll());
+
+        assertTrue(manager.deleteMessageByHash(extra.getMessageHash()));
+        assertEquals(report, manager.generateSentMessagesReport());
+        assertEquals("Where are you? You are late! I have asked you to be on time.",
+                manager.getLongestMessageAcrossAll().getPayload());
+
+        // equal lengths: the earlier message stays the answer until it is deleted
+        Message first = new Message("+27830000010", "x".repeat(100));
+        Message second = new Message("+27830000011", "y".repeat(100));
+        manager.disregardMessage(first);
+        manager.disregardMessage(second);
+        assertSame(first, manager.getLongestMessageAcrossAll());
+        manager.deleteMessageByHash(first.getMessageHash());
+        assertSame(second, manager.getLongestMessageAcrossAll());
+    }
+
+    @Test
+    void testReportDropsDeletedLinesAcrossChunks() {
+        List<Message> sent = new ArrayList<>();
+        for (int i = 0; i < ReportView.CHUNK * 2 + 10; i++) {
+            Message m = new Message("+2783000" + (1000 + i), "bulk " + i);
+            manager.sendMessage(m);
+            sent.add(m);
+        }
+        String before = manager.generateSentMessagesReport();
+        Message doomed = sent.get(ReportView.CHUNK + 3);
+        String doomedLine = "Hash: " + doomed.getMessageHash() + " | Recipient: " + doomed.getRecipient()
+                + " | Message: " + doomed.getPayload() + "\n";
+        assertTrue(before.contains(doomedLine));
+
+        assertTrue(manager.deleteMessageByHash(doomed.getMessageHash()));
+        assertEquals(before.replace(doomedLine, ""), manager.generateSentMessagesReport());
+        Message after = new Message("+27830009998", "after the delete");
+        manager.sendMessage(after);
+        assertTrue(manager.generateSentMessagesReport().endsWith("Message: after the delete\n"));
+    }
+
+    @Test
+    void testPayloadSearchRanksMatchesAndFollowsDeletes() {
+        // test data: "It is dinner time !" (sent), "Did you get the cake?" (sent), "Where are you? ..." (stored)
+        assertEquals("It is dinner time !", manager.searchPayload("DINNER").get(0).getPayload());
+        assertEquals(1, manager.searchPayload("din*").size());
+        assertTrue(manager.searchPayload("dinner cake").isEmpty()); // every word must match
+        assertEquals(3, manager.searchPayload("you").size());
+        assertEquals(4, manager.searchPayload("you*").size()); // + "your"
+        assertEquals(1, manager.searchPayload("you late").size());
+
+        Message once = new Message("+27830000001", "cake for later, and a long tail of other words to dilute it");
+        Message twice = new Message("+27830000002", "cake cake");
+        manager.disregardMessage(once);
+        manager.storeMessage(twice);
+        List<Message> cake = manager.searchPayload("cake");
+        assertEquals(3, cake.size());
+        assertSame(twice, cake.get(0)); // higher term frequency in a shorter message ranks first
+        assertEquals(2, manager.searchPayload("cake", 2).size());
+
+        assertTrue(manager.deleteMessageByHash(twice.getMessageHash()));
+        assertFalse(manager.searchPayload("cake").contains(twice));
+        assertEquals(2, manager.searchPayload("ca*").size());
+    }
+
+    @Test
+    void testPayloadIndexPurgesDeletedDocuments() {
+        PayloadIndex index = new PayloadIndex();
+        List<Message> all = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            Message m = new Message("+27830000001", "common word" + (i % 3) + " n" + i);
+            all.add(m);
+            index.add(m);
+        }
+        Set<Message> doomed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < 3000; i += 3) { doomed.add(all.get(i)); doomed.add(all.get(i + 1)); }
+        index.removeAll(doomed); // 2000 deleted > 1000 live: postings are rewritten
+
+        assertEquals(1000, index.search("common", 5000).size());
+        assertTrue(index.search("word0", 10).isEmpty());
+        assertEquals(List.of(all.get(2999)), index.search("n2999", 10));
+        assertTrue(index.search("n2998", 10).isEmpty());
+        assertEquals(1000, index.search("common word2", 5000).size());
+
+        Message late = new Message("+27830000001", "common late");
+        index.add(late);
+        assertEquals(List.of(late), index.search("common lat*", 10));
+    }
+
+    @Test
+    void testStoredMessagesReplayedFromLog(@TempDir Path dir) {
+        File file = dir.resolve("storedMessages.json").toFile();
+        Message keep = new Message("+27830000001", "keep me");
+        Message drop = new Message("+27830000002", "drop me");
+        try (MessageManager m = new MessageManager(file)) {
+            m.storeMessage(keep);
+            m.storeMessage(drop);
+            assertTrue(m.deleteMessageByHash(drop.getMessageHash()));
+        }
+        // nothing compacted yet: state must come back from the log alone
+        assertFalse(file.exists());
+
+        try (MessageManager reloaded = new MessageManager(file)) {
+            assertEquals(1, reloaded.getStoredMessages().size());
+            assertEquals(keep.getMessageHash(), reloaded.getStoredMessages().get(0).getMessageHash());
+            assertEquals("keep me", reloaded.getStoredMessages().get(0).getPayload());
+        }
+    }
+
+    @Test
+    void testLogCompactsIntoSnapshot(@TempDir Path dir) throws Exception {
+        File file = dir.resolve("storedMessages.json").toFile();
+        StoredMessageLog log = new StoredMessageLog(file, 8, 1000, 4);
+        java.util.List<Message> live = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Message m = new Message("+2783000000" + i, "payload " + i);
+            live.add(m);
+            log.appendStore(m);
+            if (log.needsCompaction(live.size())) log.compact(live);
+        }
+        log.close();
+        assertTrue(file.exists());
+        assertTrue(log.getLogRecordCount() < 10);
+        assertEquals(10, new StoredMessageLog(file).load().size());
+    }
+
+    @Test
+    void testInterruptedCompactionNeitherLosesNorRepeatsStores(@TempDir Path dir) throws Exception {
+        File file = dir.resolve("storedMessages.json").toFile();
+        File logFile = new File(file.getPath() + ".log");
+        List<Message> live = new ArrayList<>();
+        StoredMessageLog log = new StoredMessageLog(file, 8, 1000, 4);
+        for (int i = 0; i < 3; i++) {
+            Message m = new Message("+2783000000" + i, "payload " + i);
+            live.add(m);
+            log.appendStore(m);
+        }
+        log.sync();
+        byte[] logged = java.nio.file.Files.readAllBytes(logFile.toPath());
+        log.compact(live);
+        log.close();
+        assertFalse(logFile.exists());
+
+        // crash after the snapshot moved into place but before the rotated log was deleted
+        java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+        crc.update(java.nio.file.Files.readAllBytes(file.toPath()));
+        String seal = "{\"op\":\"covered\",\"snapshotLength\":" + file.length() + ",\"snapshotCrc\":" + crc.getValue() + "}\n";
+        File rotated = new File(logFile.getPath() + ".1");
+        java.nio.file.Files.write(rotated.toPath(), logged);
+        java.nio.file.Files.writeString(rotated.toPath(), seal, java.nio.file.StandardOpenOption.APPEND);
+        assertEquals(3, new StoredMessageLog(file).load().size());
+        assertFalse(rotated.exists(), "a rotated log the snapshot covers is cleaned up");
+
+        // crash after the seal was written but before the snapshot moved: the old snapshot is still there
+        java.nio.file.Files.write(rotated.toPath(), logged);
+        java.nio.file.Files.writeString(rotated.toPath(), seal, java.nio.file.StandardOpenOption.APPEND);
+        java.nio.file.Files.delete(file.toPath());
+        StoredMessageLog reopened = new StoredMessageLog(file);
+        assertEquals(3, reopened.load().size());
+        assertTrue(rotated.exists());
+        reopened.compact(live);
+        reopened.close();
+        assertFalse(rotated.exists());
+        assertEquals(3, new StoredMessageLog(file).load().size());
+    }
+
+    @Test
+    void testCorruptLogRecordBeforeTheTailIsAnError(@TempDir Path dir) throws Exception {
+        File file = dir.resolve("storedMessages.json").toFile();
+        try (StoredMessageLog log = new StoredMessageLog(file)) {
+            log.appendStore(new Message("+27830000001", "first"));
+        }
+        java.nio.file.Path logPath = new File(file.getPath() + ".log").toPath();
+        java.nio.file.Files.writeString(logPath, "{\"op\":\"store\",\"recip\n", java.nio.file.StandardOpenOption.APPEND);
+        try (StoredMessageLog log = new StoredMessageLog(file)) {
+            log.appendStore(new Message("+27830000002", "after the damage"));
+        }
+        long length = java.nio.file.Files.size(logPath);
+        assertThrows(java.io.IOException.class, () -> new StoredMessageLog(file).load());
+        assertEquals(length, java.nio.file.Files.size(logPath), "nothing after the damage is thrown away");
+    }
+
+    @Test
+    void testLogIsSyncedWithinTheIntervalWithoutFurtherAppends(@TempDir Path dir) throws Exception {
+        File file = dir.resolve("storedMessages.json").toFile();
+        try (StoredMessageLog log = new StoredMessageLog(file, 64, 20, 1024)) {
+            log.appendStore(new Message("+27830000001", "lonely"));
+            assertEquals(1, log.getUnsyncedCount());
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (log.getUnsyncedCount() > 0 && System.nanoTime() < deadline) Thread.sleep(5);
+            assertEquals(0, log.getUnsyncedCount());
+        }
+    }
+
+    @Test
+    void testStreamingExportImportNdjson(@TempDir Path dir) throws Exception {
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        assertEquals(2, manager.exportStoredMessages(out, StorageFormat.NDJSON));
+        String ndjson = out.toString(java.nio.charset.StandardCharsets.UTF_8);
+        assertEquals(2, ndjson.lines().count());
+
+        try (MessageManager target = new MessageManager(dir.resolve("storedMessages.json").toFile())) {
+            java.util.List<Message> seen = new ArrayList<>();
+            long n = target.importStoredMessages(new java.io.ByteArrayInputStream(out.toByteArray()), seen::add);
+            assertEquals(2, n);
+            assertEquals(2, seen.size());
+            assertEquals(2, target.searchMessagesByRecipient("+27838884567").size());
+        }
+    }
+
+    @Test
+    void testTornLogTailIsDiscarded(@TempDir Path dir) throws Exception {
+        File file = dir.resolve("storedMessages.json").toFile();
+        Message first = new Message("+27830000001", "first");
+        try (MessageManager m = new MessageManager(file)) {
+            m.storeMessage(first);
+        }
+        java.nio.file.Files.writeString(new File(file.getPath() + ".log").toPath(),
+                "{\"op\":\"store\",\"recipient\":\"+2783", java.nio.file.StandardOpenOption.APPEND);
+
+        Message second = new Message("+27830000002", "second");
+        try (MessageManager m = new MessageManager(file)) {
+            assertEquals(1, m.getStoredMessages().size());
+            m.storeMessage(second);
+        }
+        try (MessageManager m = new MessageManager(file)) {
+            assertEquals(2, m.getStoredMessages().size());
+            assertNotNull(m.searchByMessageID(second.getMessageID()));
+        }
+    }
+
+    @Test
+    void testBinaryStorageRoundTripAndConversion(@TempDir Path dir) throws Exception {
+        File bin = dir.resolve("storedMessages.bin").toFile();
+        try (MessageManager m = new MessageManager(new StorageConfig(bin, StorageFormat.BINARY))) {
+            for (Message msg : manager.getStoredMessages()) m.storeMessage(msg);
+            m.storeMessage(new Message(null, "no recipient"));
+            m.populateTestData(); // compacts: binary snapshot written
+            m.storeMessage(new Message("+27838884567", "after snapshot"));
+        }
+        assertEquals(StorageFormat.BINARY, StorageFormat.detect(bin));
+
+        try (MessageManager m = new MessageManager(new StorageConfig(bin, StorageFormat.BINARY))) {
+            assertEquals(3, m.getStoredMessages().size());
+            assertEquals(3, m.searchMessagesByRecipient("+27838884567").size());
+        }
+
+        File snapshot = dir.resolve("snapshot.bin").toFile();
+        try (java.io.OutputStream out = new java.io.FileOutputStream(snapshot)) {
+            StorageFormat.BINARY.codec().write(out, manager.getStoredMessages());
+        }
+        File json = dir.resolve("converted.json").toFile();
+        assertEquals(2, StorageFormat.convert(snapshot, json, StorageFormat.JSON));
+        File back = dir.resolve("back.bin").toFile();
+        assertEquals(2, StorageFormat.convert(json, back, StorageFormat.BINARY));
+        assertArrayEquals(java.nio.file.Files.readAllBytes(snapshot.toPath()), java.nio.file.Files.readAllBytes(back.toPath()));
+        assertTrue(snapshot.length() < json.length());
+    }
+
+    @Test
+    void testCompressedStorageSharesRecipientsAndShrinks(@TempDir Path dir) throws Exception {
+        List<Message> corpus = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            corpus.add(new Message("+278300" + (i % 20), "are you coming to dinner tonight, it is at " + (i % 9) + " o'clock"));
+        }
+        Message odd = new Message(null, "caf\u00e9 \u00e0 huit heures");
+        corpus.add(odd);
+        corpus.add(new Message("+27830001", null));
+
+        java.io.ByteArrayOutputStream binary = new java.io.ByteArrayOutputStream();
+        StorageFormat.BINARY.codec().write(binary, corpus);
+        java.io.ByteArrayOutputStream compressed = new java.io.ByteArrayOutputStream();
+        assertEquals(corpus.size(), StorageFormat.COMPRESSED.codec().write(compressed, corpus));
+        assertTrue(compressed.size() * 2 < binary.size(), compressed.size() + " vs " + binary.size());
+
+        List<Message> back = new ArrayList<>();
+        StorageFormat.COMPRESSED.codec().read(new java.io.ByteArrayInputStream(compressed.toByteArray()), back::add);
+        assertEquals(corpus.size(), back.size());
+        for (int i = 0; i < corpus.size(); i++) {
+            assertEquals(corpus.get(i).getRecipient(), back.get(i).getRecipient());
+            assertEquals(corpus.get(i).getPayload(), back.get(i).getPayload());
+            assertEquals(corpus.get(i).getMessageID(), back.get(i).getMessageID());
+            assertEquals(corpus.get(i).getMessageHash(), back.get(i).getMessageHash());
+        }
+        assertSame(back.get(3).getRecipient(), back.get(4983).getRecipient(), "one String per recipient");
+
+        byte[] corrupt = compressed.toByteArray();
+        corrupt[corrupt.length - 20] ^= 0x01;
+        assertThrows(java.io.IOException.class,
+                () -> new CompressedMessageCodec().read(new java.io.ByteArrayInputStream(corrupt), m -> { }));
+
+        File file = dir.resolve("storedMessages.bin").toFile();
+        try (StoredMessageLog log = new StoredMessageLog(file, StorageFormat.COMPRESSED)) {
+            log.compact(corpus);
+        }
+        assertEquals(StorageFormat.COMPRESSED, StorageFormat.detect(file));
+        try (MessageManager m = new MessageManager(new StorageConfig(file, StorageFormat.COMPRESSED))) {
+            assertEquals(corpus.size(), m.getStoredMessages().size());
+            assertEquals(250, m.searchMessagesByRecipient("+2783007").size());
+            assertEquals(odd.getPayload(), m.searchByMessageID(odd.getMessageID()).getPayload());
+        }
+    }
+
+    @Test
+    void testBinaryChecksumDetectsCorruption() throws Exception {
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        new BinaryMessageCodec().write(out, manager.getStoredMessages());
+        byte[] bytes = out.toByteArray();
+        bytes[bytes.length - 10] ^= 0x01;
+        assertThrows(java.io.IOException.class,
+                () -> new BinaryMessageCodec().read(new java.io.ByteArrayInputStream(bytes), m -> { }));
+    }
+
+    @Test
+    void testMappedArchiveAnswersManagerQueries(@TempDir Path dir) throws Exception {
+        File archiveFile = dir.resolve("archive.dat").toFile();
+        java.util.List<Message> cold = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) cold.add(new Message("+2783000" + (i % 7), "archived payload " + i));
+        Message longest = new Message("+27830009999", "x".repeat(240));
+        cold.add(longest);
+        try (MappedMessageArchive.Writer w = MappedMessageArchive.writer(archiveFile)) {
+            for (Message m : cold) w.append(m);
+        }
+
+        StorageConfig config = new StorageConfig(dir.resolve("storedMessages.json").toFile(), StorageFormat.JSON);
+        config.setArchiveFile(archiveFile);
+        try (MessageManager m = new MessageManager(config)) {
+            assertEquals(1001, m.getArchive().size());
+            Message found = m.searchByMessageID(cold.get(500).getMessageID());
+            assertNotNull(found);
+            assertEquals("archived payload 500", found.getPayload());
+            assertEquals(143, m.searchMessagesByRecipient("+27830003").size());
+            assertEquals(longest.getMessageHash(), m.getLongestMessageAcrossAll().getMessageHash());
+
+            assertTrue(m.deleteMessageByHash(longest.getMessageHash()));
+            assertNull(m.searchByMessageID(longest.getMessageID()));
+            assertEquals(1000, m.getArchive().size());
+        }
+        // deletes survive reopening
+        MappedMessageArchive reopened = MappedMessageArchive.open(archiveFile);
+        try (reopened) {
+            assertEquals(1000, reopened.size());
+            assertNull(reopened.searchByMessageID(longest.getMessageID()));
+            assertEquals("archived payload 999".length(), reopened.getLongestMessage().getPayload().length());
+        }
+        assertThrows(IllegalStateException.class, () -> reopened.searchByMessageID(cold.get(1).getMessageID()));
+    }
+
+    @Test
+    void testColumnarStoreAnswersManagerQueries(@TempDir Path dir) throws Exception {
+        List<Message> cold = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) cold.add(new Message("+2783000" + (i % 7), "archived payload " + i));
+        Message longest = new Message("+27830009999", "\u00e9\u00e8 ".repeat(80));
+        cold.add(longest);
+        // loaded from an old file: string ID and hash not in MessageIds' shape
+        Message legacy = new Message();
+        legacy.setRecipient("+27830001");
+        legacy.setPayload(null);
+        legacy.setMessageID("MSG7");
+        legacy.setMessageHash("HASH-1234");
+        cold.add(legacy);
+
+        ColumnarMessageStore store = ColumnarMessageStore.build(cold);
+        assertEquals(8, store.recipientCount());
+        try (MessageManager m = new MessageManager(dir.resolve("storedMessages.json").toFile())) {
+            m.attachArchive(store);
+            assertEquals(1002, m.getArchive().size());
+            Message found = m.searchByMessageID(cold.get(500).getMessageID());
+            assertNotNull(found);
+            assertEquals("archived payload 500", found.getPayload());
+            assertEquals(cold.get(500).getMessageHash(), found.getMessageHash());
+            assertEquals("+27830003", found.getRecipient());
+
+            List<Message> forRecipient = m.searchMessagesByRecipient("+27830001");
+            assertEquals(144, forRecipient.size());
+            assertEquals("archived payload 1", forRecipient.get(0).getPayload());
+            assertNull(forRecipient.get(143).getPayload());
+            assertEquals("MSG7", m.searchByMessageID("MSG7").getMessageID());
+            assertEquals("HASH-1234", m.searchByMessageID("MSG7").getMessageHash());
+
+            assertEquals(longest.getPayload(), m.getLongestMessageAcrossAll().getPayload());
+            assertTrue(m.deleteMessageByHash(longest.getMessageHash()));
+            assertNull(m.searchByMessageID(longest.getMessageID()));
+            assertEquals("archived payload 100", m.getArchive().getLongestMessage().getPayload()); // first of the longest
+            assertTrue(m.deleteMessageByHash("HASH-1234"));
+            assertEquals(1000, m.getArchive().size());
+        }
+        // closing the manager closed the store: it refuses use instead of answering from stale indexes
+        assertThrows(IllegalStateException.class, () -> store.append(new Message("+27830001", "late")));
+        assertThrows(IllegalStateException.class, () -> store.searchByMessageID(cold.get(1).getMessageID()));
+    }
+
+    @Test
+    void testColumnarStoredMessagesPersistAndAnswerQueries(@TempDir Path dir) {
+        StorageConfig config = new StorageConfig(dir.resolve("storedMessages.json").toFile(), StorageFormat.BINARY);
+        config.setColumnarStored(true);
+        List<Message> stored = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) stored.add(new Message("+2783000" + (i % 5), "kept as columns " + i));
+        Message longest = new Message("+27830009999", "z".repeat(300));
+        try (MessageManager m = new MessageManager(config)) {
+            m.storeAll(stored);
+            m.storeMessage(longest);
+            m.sendMessage(new Message("+27830000", "sent as usual"));
+            assertEquals(3001, m.getStoredMessages().size());
+            assertEquals("kept as columns 7", m.getStoredMessages().get(7).getPayload());
+            assertEquals("kept as columns 42", m.searchByMessageID(stored.get(42).getMessageID()).getPayload());
+            assertEquals(601, m.searchMessagesByRecipient("+27830000").size()); // 600 stored + 1 sent
+            assertEquals(longest.getPayload(), m.getLongestMessageAcrossAll().getPayload());
+
+            List<Message> before = m.getStoredMessages();
+            assertTrue(m.deleteMessageByHash(longest.getMessageHash()));
+            assertTrue(m.deleteMessageByHash(stored.get(0).getMessageHash()));
+            assertEquals(3001, before.size()); // a snapshot
+            assertEquals(2999, m.getStoredMessages().size());
+            assertEquals("kept as columns 1", m.getStoredMessages().get(0).getPayload());
+            assertNull(m.searchByMessageID(stored.get(0).getMessageID()));
+            assertEquals("kept as columns 1000", m.getLongestMessageAcrossAll().getPayload());
+            assertEquals(2999, m.query().count(x -> x.getPayload().startsWith("kept")));
+        }
+        try (MessageManager reloaded = new MessageManager(config)) {
+            assertEquals(2999, reloaded.getStoredMessages().size());
+            assertEquals(stored.get(2999).getMessageHash(), reloaded.getStoredMessages().get(2998).getMessageHash());
+        }
+    }
+
+    @Test
+    void testColumnarStoreReclaimsDeletedRows() {
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 4000; i++) messages.add(new Message("+2783" + i, "row " + i + " " + "x".repeat(1000 + i % 50)));
+        ColumnarMessageStore store = ColumnarMessageStore.build(messages);
+        long full = store.footprintBytes();
+        List<Message> before = store.snapshot();
+
+        for (int i = 0; i < 3900; i++) assertEquals(1, store.removeByHash(messages.get(i).getMessageHash()).size());
+        assertEquals(100, store.size());
+        // columns, dictionary and payload pages were rebuilt from the live rows along the way
+        assertTrue(store.footprintBytes() < full / 2);
+        assertTrue(store.recipientCount() <= 200);
+        assertEquals(4000, before.size());
+        assertEquals(messages.get(0).getPayload(), before.get(0).getPayload()); // a snapshot keeps its rows
+
+        assertEquals(messages.get(3949).getPayload(), store.getLongestMessage().getPayload()); // first of the longest
+        store.removeByHash(messages.get(3949).getMessageHash());
+        assertEquals(messages.get(3999).getPayload(), store.getLongestMessage().getPayload());
+        assertEquals(messages.get(3950).getPayload(), store.searchByMessageID(messages.get(3950).getMessageID()).getPayload());
+        assertEquals(1, store.searchMessagesByRecipient("+27833901").size());
+        store.append(new Message("+27833901", "after reclaiming"));
+        assertEquals("after reclaiming", store.searchMessagesByRecipient("+27833901").get(1).getPayload());
+        assertEquals(100, store.snapshot().size());
+    }
+
+    @Test
+    void testArchiveCacheServesRepeatsAndInvalidates(@TempDir Path dir) throws Exception {
+        List<Message> cold = new ArrayList<>();
+        for (int i = 0; i < 700; i++) cold.add(new Message("+2783000" + (i % 7), "archived payload " + i));
+        StorageConfig config = new StorageConfig(dir.resolve("storedMessages.json").toFile(), StorageFormat.JSON);
+        config.setCacheSize(4);
+        try (MessageManager m = new MessageManager(config)) {
+            m.attachArchive(ColumnarMessageStore.build(cold));
+            CachingMessageArchive archive = assertInstanceOf(CachingMessageArchive.class, m.getArchive());
+            LookupCache<String, List<Message>> recipients = archive.getRecipientCache();
+
+            assertEquals(100, m.searchMessagesByRecipient("+27830001").size());
+            assertEquals(100, m.searchMessagesByRecipient("+27830001").size());
+            assertEquals(1, recipients.getHits());
+            assertEquals(1, recipients.getMisses());
+            for (int r = 2; r <= 6; r++) m.searchMessagesByRecipient("+2783000" + r);
+            assertEquals(4, recipients.size());
+            assertEquals(2, recipients.getEvictions());
+
+            // stores never reach the archive, so its cached answers stay
+            m.searchMessagesByRecipient("+27830006");
+            m.storeMessage(new Message("+27830006", "fresh"));
+            assertEquals(101, m.searchMessagesByRecipient("+27830006").size());
+            assertEquals(0, recipients.getInvalidations());
+
+            // a delete drops only the answers for the removed message's ID and recipient
+            Message doomed = cold.get(6); // recipient +27830006
+            assertEquals(doomed.getPayload(), m.searchByMessageID(doomed.getMessageID()).getPayload());
+            m.searchMessagesByRecipient("+27830005");
+            long hits = recipients.getHits();
+            assertTrue(m.deleteMessageByHash(doomed.getMessageHash()));
+            assertEquals(1, recipients.getInvalidations());
+            assertEquals(1, archive.getIdCache().getInvalidations());
+            assertNull(m.searchByMessageID(doomed.getMessageID()));
+            assertEquals(100, m.searchMessagesByRecipient("+27830006").size());
+            assertEquals(100, m.searchMessagesByRecipient("+27830005").size());
+            assertEquals(hits + 1, recipients.getHits());
+            assertNull(m.searchByMessageID("MSG99999999"));
+            assertNull(m.searchByMessageID("MSG99999999"));
+            assertEquals(1, archive.getIdCache().getHits(), "known misses are cached too");
+        }
+
+        LookupCache<String, String> shortLived = new LookupCache<>(10, 1);
+        shortLived.get("k", k -> "v1");
+        Thread.sleep(5);
+        assertEquals("v2", shortLived.get("k", k -> "v2"));
+        assertEquals(1, shortLived.getExpirations());
+    }
+
+    @Test
+    void testShardedStorePersistsPerRecipientAndRepartitions(@TempDir Path dir) throws Exception {
+        File storage = dir.resolve("store").toFile();
+        StorageConfig config = new StorageConfig();
+        config.setStorageDirectory(storage);
+        config.setShardCount(4);
+        Message doomed;
+        try (MessageManager m = new MessageManager(config)) {
+            List<Message> batch = new ArrayList<>();
+            for (int i = 0; i < 200; i++) batch.add(new Message("+2783100" + (i % 20), "sharded " + i));
+            m.storeAll(batch.subList(0, 150));
+            for (Message msg : batch.subList(150, 200)) m.storeMessage(msg);
+            doomed = batch.get(7);
+            assertTrue(m.deleteMessageByHash(doomed.getMessageHash()));
+        }
+        assertTrue(new File(storage, ShardedMessageStore.MANIFEST).exists());
+        // the delete was written to the doomed message's shard only
+        int shard = ShardedMessageStore.shardOf(doomed.getRecipient(), 4);
+        for (int s = 0; s < 4; s++) {
+            File log = new File(storage, "shard-" + s + "-of-4.json.log");
+            boolean hasDelete = log.exists() && java.nio.file.Files.readString(log.toPath()).contains("\"delete\"");
+            assertEquals(s == shard, hasDelete, "shard " + s);
+        }
+        ShardedMessageStore offline = new ShardedMessageStore(storage, 4, StorageFormat.JSON);
+        assertEquals(9, offline.loadRecipient(doomed.getRecipient()).size());
+
+        try (MessageManager m = new MessageManager(config)) {
+            assertEquals(199, m.getStoredMessages().size());
+            assertEquals(10, m.searchMessagesByRecipient("+27831003").size());
+            assertTrue(m.searchMessagesByRecipient(doomed.getRecipient()).stream().noneMatch(x -> x.getMessageHash().equals(doomed.getMessageHash())));
+        }
+
+        config.setShardCount(3);
+        try (MessageManager m = new MessageManager(config)) {
+            assertEquals(199, m.getStoredMessages().size());
+            assertEquals(10, m.searchMessagesByRecipient("+27831003").size());
+        }
+        String[] files = storage.list((d, name) -> name.startsWith("shard-"));
+        assertNotNull(files);
+        for (String name : files) assertTrue(name.contains("-of-3."), name);
+        assertEquals(9, new ShardedMessageStore(storage, 3, StorageFormat.JSON).loadRecipient(doomed.getRecipient()).size());
+    }
+
+    @Test
+    void testLazyLoadServesStoredMessagesOnceLoaded(@TempDir Path dir) throws Exception {
+        StorageConfig config = new StorageConfig(dir.resolve("storedMessages.json").toFile(), StorageFormat.NDJSON);
+        List<Message> stored = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) stored.add(new Message("+2783200" + (i % 10), "lazy " + i));
+        try (MessageManager m = new MessageManager(config)) {
+            m.storeAll(stored);
+        }
+
+        config.setLazyLoad(true);
+        try (MessageManager m = new MessageManager(config)) {
+            List<Message> view = m.getStoredMessages(); // handed out before the load may be done
+            m.sendMessage(new Message("+27832999", "sent while loading"));
+            assertEquals(5000, view.size());
+            assertTrue(m.isStoredLoaded());
+            m.whenStoredLoaded().get(10, java.util.concurrent.TimeUnit.SECONDS);
+            assertEquals("lazy 4999", view.get(4999).getPayload());
+            assertEquals("lazy 1234", m.searchByMessageID(stored.get(1234).getMessageID()).getPayload());
+            assertEquals(500, m.searchMessagesByRecipient("+27832003").size());
+            assertEquals(1, m.searchPayload("loading").size());
+            m.storeMessage(new Message("+27832999", "stored after load"));
+            assertEquals(5001, m.getStoredMessages().size());
+        }
+        try (MessageManager m = new MessageManager(config)) {
+            assertEquals(5001, m.getStoredMessages().size());
+        }
+    }
 }
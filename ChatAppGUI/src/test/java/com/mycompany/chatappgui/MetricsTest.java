@@ -0,0 +1,58 @@
+package com.mycompany.chatappgui;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    @Test
+    void histogramBucketsStayWithinAnEighth() {
+        for (long v : new long[]{0, 1, 7, 8, 9, 15, 16, 17, 1000, 123_456_789, Long.MAX_VALUE / 3}) {
+            long upper = LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(v));
+            assertTrue(upper >= v, "bucket of " + v);
+            assertTrue(upper - v <= v / 8, "bucket of " + v + " too wide: " + upper);
+        }
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) h.record(i * 1000L);
+        assertEquals(1000, h.getCount());
+        assertEquals(1_000_000, h.getMax());
+        long p50 = h.getPercentile(50);
+        assertTrue(p50 >= 500_000 && p50 <= 500_000 * 9 / 8, "p50 " + p50);
+        assertEquals(1_000_000, h.getPercentile(100));
+    }
+
+    @Test
+    void operationsAreRecordedAndPublished(@TempDir Path dir) throws Exception {
+        try (MessageManager manager = new MessageManager(dir.resolve("storedMessages.json").toFile())) {
+            long sends = Metric.SEND.getLatency().getCount();
+            long searches = Metric.SEARCH.getLatency().getCount();
+            Message m = new Message("+27830000001", "metrics");
+            manager.sendMessage(m);
+            manager.searchByMessageID(m.getMessageID());
+            manager.searchPayload("metrics");
+            assertEquals(sends + 1, Metric.SEND.getLatency().getCount());
+            assertEquals(searches + 2, Metric.SEARCH.getLatency().getCount());
+        }
+        long failedLogins = Metric.LOGIN.getFailures();
+        new Login(new PasswordHasher(PasswordHasher.MIN_ITERATIONS)).loginUser("nobody", "Abcdef1!");
+        assertEquals(failedLogins + 1, Metric.LOGIN.getFailures());
+
+        JsonNode json = new ObjectMapper().readTree(Metrics.toJson());
+        assertEquals(Metric.SEND.getLatency().getCount(), json.at("/operations/send/count").asLong());
+        assertTrue(Metrics.toText().contains("login"));
+
+        Metrics.registerMBeans();
+        Metrics.registerMBeans(); // idempotent
+        Object count = ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(new ObjectName(Metrics.DOMAIN + ":type=Operation,name=send"), "Count");
+        assertEquals(Metric.SEND.getLatency().getCount(), count);
+    }
+}